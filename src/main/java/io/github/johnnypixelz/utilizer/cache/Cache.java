@@ -12,6 +12,7 @@ public final class Cache<T> implements Supplier<T> {
 
     private final Supplier<T> supplier;
     private volatile T value = null;
+    private volatile CacheStats stats = null;
 
     private Cache(Supplier<T> supplier) {
         this.supplier = supplier;
@@ -26,15 +27,27 @@ public final class Cache<T> implements Supplier<T> {
             synchronized (this) {
                 val = this.value;
                 if (val == null) {
-                    val = this.supplier.get();
+                    val = load();
                     this.value = val;
+                    return val;
                 }
             }
         }
 
+        final CacheStats stats = this.stats;
+        if (stats != null) stats.recordHit();
+
         return val;
     }
 
+    private T load() {
+        final CacheStats stats = this.stats;
+        if (stats == null) return this.supplier.get();
+
+        stats.recordMiss();
+        return stats.timeLoad(this.supplier);
+    }
+
     public final Optional<T> getIfPresent() {
         return Optional.ofNullable(this.value);
     }
@@ -42,4 +55,13 @@ public final class Cache<T> implements Supplier<T> {
     public final void invalidate() {
         this.value = null;
     }
+
+    /**
+     * Starts counting hits, misses and load times under the given name in the
+     * {@link CacheRegistry}.
+     */
+    public final Cache<T> recordStats(String name) {
+        this.stats = CacheRegistry.register(name);
+        return this;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package io.github.johnnypixelz.utilizer.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+@FunctionalInterface
+public interface CacheLoader<K, V> {
+
+    V load(K key);
+
+    /**
+     * Loads every key in one go. Override when the backing source can answer
+     * a batch cheaper than one call per key, such as a single {@code IN (...)}
+     * query. Keys missing from the returned map are treated as absent.
+     */
+    default Map<K, V> loadAll(Set<? extends K> keys) {
+        final Map<K, V> loaded = new HashMap<>();
+
+        for (K key : keys) {
+            final V value = load(key);
+            if (value != null) {
+                loaded.put(key, value);
+            }
+        }
+
+        return loaded;
+    }
+
+}
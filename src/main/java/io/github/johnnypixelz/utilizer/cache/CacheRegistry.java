@@ -0,0 +1,54 @@
+package io.github.johnnypixelz.utilizer.cache;
+
+import io.github.johnnypixelz.utilizer.gson.GsonProvider;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Every cache that records statistics, by name.
+ * <p>
+ * Registering a name that is already taken replaces the old entry, so caches
+ * recreated on reload keep reporting under the same name instead of piling
+ * up.
+ */
+public final class CacheRegistry {
+    private static final Map<String, CacheStats> REGISTRY = new ConcurrentHashMap<>();
+
+    public static CacheStats register(String name) {
+        Objects.requireNonNull(name, "name");
+
+        final CacheStats stats = new CacheStats();
+        REGISTRY.put(name, stats);
+        return stats;
+    }
+
+    public static void unregister(String name) {
+        REGISTRY.remove(name);
+    }
+
+    public static Optional<CacheStats> get(String name) {
+        return Optional.ofNullable(REGISTRY.get(name));
+    }
+
+    public static Map<String, CacheStatsSnapshot> snapshot() {
+        final Map<String, CacheStatsSnapshot> snapshot = new TreeMap<>();
+        REGISTRY.forEach((name, stats) -> snapshot.put(name, stats.snapshot()));
+        return snapshot;
+    }
+
+    public static String toJson() {
+        return GsonProvider.prettyPrinting().toJson(snapshot());
+    }
+
+    public static void resetAll() {
+        REGISTRY.values().forEach(CacheStats::reset);
+    }
+
+    private CacheRegistry() {
+    }
+
+}
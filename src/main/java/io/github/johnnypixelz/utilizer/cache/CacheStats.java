@@ -0,0 +1,93 @@
+package io.github.johnnypixelz.utilizer.cache;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Live counters for one cache. Every counter is striped, so recording from
+ * many threads at once does not turn into contention on a single field.
+ */
+public final class CacheStats {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    private final LongAccumulator maxLoadNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder evictions = new LongAdder();
+
+    CacheStats() {
+    }
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordHits(int count) {
+        hits.add(count);
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public void recordMisses(int count) {
+        misses.add(count);
+    }
+
+    public void recordLoad(long nanos) {
+        loads.increment();
+        totalLoadNanos.add(nanos);
+        maxLoadNanos.accumulate(nanos);
+    }
+
+    public void recordLoadFailure(long nanos) {
+        loadFailures.increment();
+        totalLoadNanos.add(nanos);
+        maxLoadNanos.accumulate(nanos);
+    }
+
+    /**
+     * Runs a load, recording how long it took as a load or, when it throws, as
+     * a failed one.
+     */
+    public <T> T timeLoad(Supplier<T> load) {
+        final long start = System.nanoTime();
+        try {
+            final T loaded = load.get();
+            recordLoad(System.nanoTime() - start);
+            return loaded;
+        } catch (RuntimeException | Error throwable) {
+            recordLoadFailure(System.nanoTime() - start);
+            throw throwable;
+        }
+    }
+
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    public CacheStatsSnapshot snapshot() {
+        return new CacheStatsSnapshot(
+                hits.sum(),
+                misses.sum(),
+                loads.sum(),
+                loadFailures.sum(),
+                totalLoadNanos.sum(),
+                maxLoadNanos.get(),
+                evictions.sum()
+        );
+    }
+
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        loads.reset();
+        loadFailures.reset();
+        totalLoadNanos.reset();
+        maxLoadNanos.reset();
+        evictions.reset();
+    }
+
+}
@@ -0,0 +1,98 @@
+package io.github.johnnypixelz.utilizer.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point-in-time copy of a cache's {@link CacheStats}. The derived rates are
+ * stored as fields as well, so they show up when the snapshot is dumped to
+ * JSON.
+ */
+public class CacheStatsSnapshot {
+    private final long hits;
+    private final long misses;
+    private final long loads;
+    private final long loadFailures;
+    private final long evictions;
+    private final double hitRate;
+    private final double averageLoadMillis;
+    private final double maxLoadMillis;
+    private final long totalLoadNanos;
+    private final long maxLoadNanos;
+
+    CacheStatsSnapshot(long hits, long misses, long loads, long loadFailures, long totalLoadNanos, long maxLoadNanos, long evictions) {
+        this.hits = hits;
+        this.misses = misses;
+        this.loads = loads;
+        this.loadFailures = loadFailures;
+        this.totalLoadNanos = totalLoadNanos;
+        this.maxLoadNanos = maxLoadNanos;
+        this.evictions = evictions;
+
+        final long requests = hits + misses;
+        final long attempts = loads + loadFailures;
+        this.hitRate = requests == 0 ? 0.0 : (double) hits / requests;
+        this.averageLoadMillis = attempts == 0 ? 0.0 : (double) totalLoadNanos / attempts / TimeUnit.MILLISECONDS.toNanos(1);
+        this.maxLoadMillis = (double) maxLoadNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getRequests() {
+        return hits + misses;
+    }
+
+    public long getLoads() {
+        return loads;
+    }
+
+    public long getLoadFailures() {
+        return loadFailures;
+    }
+
+    public long getTotalLoadNanos() {
+        return totalLoadNanos;
+    }
+
+    public long getMaxLoadNanos() {
+        return maxLoadNanos;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the share of requests that were hits, or 0 before the first request
+     */
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public double getAverageLoadMillis() {
+        return averageLoadMillis;
+    }
+
+    public double getMaxLoadMillis() {
+        return maxLoadMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatsSnapshot(" +
+                "hits=" + hits + ", " +
+                "misses=" + misses + ", " +
+                "hitRate=" + String.format("%.3f", hitRate) + ", " +
+                "loads=" + loads + ", " +
+                "loadFailures=" + loadFailures + ", " +
+                "averageLoadMillis=" + String.format("%.3f", averageLoadMillis) + ", " +
+                "maxLoadMillis=" + String.format("%.3f", maxLoadMillis) + ", " +
+                "evictions=" + evictions + ")";
+    }
+
+}
@@ -1,12 +1,20 @@
 package io.github.johnnypixelz.utilizer.cache;
 
 import com.google.common.base.Preconditions;
+import io.github.johnnypixelz.utilizer.tasks.Tasks;
 
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 public final class Expiring<T> implements Supplier<T> {
+    private static final long INITIAL_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
 
     public static <T> Expiring<T> suppliedBy(Supplier<T> supplier, long duration, TimeUnit unit) {
         Objects.requireNonNull(supplier, "supplier");
@@ -16,6 +24,37 @@ public final class Expiring<T> implements Supplier<T> {
         return new Expiring<>(supplier, duration, unit);
     }
 
+    /**
+     * Creates an expiring value that is reloaded in the background instead of
+     * on the thread that happens to read it.
+     * <p>
+     * Once {@code refreshAfter} has passed, reads keep getting the old value
+     * while a reload runs on Bukkit's async scheduler. Only once
+     * {@code expireAfter} has passed without a successful reload do reads wait
+     * for it, which also covers the very first read. Call {@link #refresh()}
+     * while enabling to have the value ready before anyone asks for it.
+     * <p>
+     * A read that has to wait for a reload the executor has not started yet
+     * runs it itself, so an executor that runs on the reading thread, such as
+     * the main thread, cannot leave it waiting on itself. A failed reload is
+     * not retried until a backoff has passed, starting at one second and
+     * doubling up to {@code refreshAfter}; until then waiting reads fail with
+     * the same exception.
+     */
+    public static <T> Expiring<T> refreshAhead(Supplier<T> supplier, long refreshAfter, long expireAfter, TimeUnit unit) {
+        return refreshAhead(supplier, refreshAfter, expireAfter, unit, runnable -> Tasks.async().run(runnable));
+    }
+
+    public static <T> Expiring<T> refreshAhead(Supplier<T> supplier, long refreshAfter, long expireAfter, TimeUnit unit, Executor executor) {
+        Objects.requireNonNull(supplier, "supplier");
+        Preconditions.checkArgument(refreshAfter > 0);
+        Preconditions.checkArgument(expireAfter >= refreshAfter, "expireAfter must not be shorter than refreshAfter");
+        Objects.requireNonNull(unit, "unit");
+        Objects.requireNonNull(executor, "executor");
+
+        return new Expiring<>(supplier, expireAfter, unit, unit.toNanos(refreshAfter), executor);
+    }
+
     private final Supplier<T> supplier;
     private final long durationNanos;
 
@@ -24,13 +63,34 @@ public final class Expiring<T> implements Supplier<T> {
     // when to expire. 0 means "not yet initialized".
     private volatile long expirationNanos;
 
+    // refresh-ahead only. 0 means refresh-ahead is off.
+    private final long refreshNanos;
+    private final Executor executor;
+    // the running reload, or the last failed one until it may be retried.
+    private final AtomicReference<Reload> refreshing = new AtomicReference<>();
+    // when the current value was loaded. 0 means "not yet initialized".
+    private volatile long loadedNanos;
+    private volatile int failures;
+
+    private volatile CacheStats stats = null;
+
     private Expiring(Supplier<T> supplier, long duration, TimeUnit unit) {
+        this(supplier, duration, unit, 0, null);
+    }
+
+    private Expiring(Supplier<T> supplier, long duration, TimeUnit unit, long refreshNanos, Executor executor) {
         this.supplier = supplier;
         this.durationNanos = unit.toNanos(duration);
+        this.refreshNanos = refreshNanos;
+        this.executor = executor;
     }
 
     @Override
     public T get() {
+        if (refreshNanos > 0) {
+            return getRefreshingAhead();
+        }
+
         long nanos = this.expirationNanos;
         long now = System.nanoTime();
 
@@ -38,7 +98,7 @@ public final class Expiring<T> implements Supplier<T> {
             synchronized (this) {
                 if (nanos == this.expirationNanos) { // recheck for lost race
                     // compute the value using the delegate
-                    T t = this.supplier.get();
+                    T t = load();
                     this.value = t;
 
                     // reset expiration timer
@@ -50,6 +110,182 @@ public final class Expiring<T> implements Supplier<T> {
                 }
             }
         }
+
+        recordHit();
         return this.value;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the value without ever waiting for it. In refresh-ahead mode a
+     * missing or expired value starts a reload and comes back empty.
+     */
+    public Optional<T> getIfPresent() {
+        if (refreshNanos == 0) {
+            final long nanos = this.expirationNanos;
+            if (nanos == 0 || System.nanoTime() - nanos >= 0) {
+                recordMiss();
+                return Optional.empty();
+            }
+
+            recordHit();
+            return Optional.ofNullable(this.value);
+        }
+
+        final long loaded = this.loadedNanos;
+        final long age = System.nanoTime() - loaded;
+        if (loaded != 0 && age < durationNanos) {
+            if (age >= refreshNanos) refresh();
+            recordHit();
+            return Optional.ofNullable(this.value);
+        }
+
+        recordMiss();
+        refresh();
+        return Optional.empty();
+    }
+
+    /**
+     * Starts a background reload, or joins the one already running. Only
+     * available in refresh-ahead mode. While a failed reload is backing off
+     * this returns that failed reload instead of starting another.
+     *
+     * @return the reload, completing with the new value
+     */
+    public CompletableFuture<T> refresh() {
+        Preconditions.checkState(refreshNanos > 0, "refresh() needs an Expiring created with refreshAhead");
+
+        return startReload().future;
+    }
+
+    private Reload startReload() {
+        while (true) {
+            final Reload inFlight = refreshing.get();
+            if (inFlight != null) {
+                if (!inFlight.future.isCompletedExceptionally() || System.nanoTime() - inFlight.retryNanos < 0) {
+                    return inFlight;
+                }
+
+                refreshing.compareAndSet(inFlight, null);
+                continue;
+            }
+
+            final Reload reload = new Reload();
+            if (!refreshing.compareAndSet(null, reload)) continue;
+
+            try {
+                executor.execute(reload::run);
+            } catch (RuntimeException exception) {
+                // Rejected, most likely because the plugin is disabling.
+                reload.started.set(true);
+                refreshing.compareAndSet(reload, null);
+                reload.future.completeExceptionally(exception);
+            }
+
+            return reload;
+        }
+    }
+
+    private T getRefreshingAhead() {
+        final long loaded = this.loadedNanos;
+
+        if (loaded != 0) {
+            final long age = System.nanoTime() - loaded;
+
+            if (age < refreshNanos) {
+                recordHit();
+                return this.value;
+            }
+
+            if (age < durationNanos) {
+                refresh();
+                recordHit();
+                return this.value;
+            }
+        }
+
+        recordMiss();
+        final Reload reload = startReload();
+        if (reload.runner == Thread.currentThread() && !reload.future.isDone()) {
+            throw new IllegalStateException("Expiring value was read from inside its own reload");
+        }
+
+        // Nobody has picked the reload up yet, and if the executor runs on
+        // this thread nobody will until we return.
+        reload.run();
+
+        try {
+            return reload.future.join();
+        } catch (CompletionException exception) {
+            final Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            if (cause instanceof Error error) throw error;
+            throw exception;
+        }
+    }
+
+    /**
+     * Starts counting hits, misses and load times under the given name in the
+     * {@link CacheRegistry}.
+     */
+    public Expiring<T> recordStats(String name) {
+        this.stats = CacheRegistry.register(name);
+        return this;
+    }
+
+    private void recordHit() {
+        final CacheStats stats = this.stats;
+        if (stats != null) stats.recordHit();
+    }
+
+    private void recordMiss() {
+        final CacheStats stats = this.stats;
+        if (stats != null) stats.recordMiss();
+    }
+
+    private T load() {
+        final CacheStats stats = this.stats;
+        if (stats == null) return this.supplier.get();
+
+        stats.recordMiss();
+        return stats.timeLoad(this.supplier);
+    }
+
+    private void reload(Reload reload) {
+        try {
+            final CacheStats stats = this.stats;
+            final T t = stats == null ? this.supplier.get() : stats.timeLoad(this.supplier);
+            this.value = t;
+
+            final long now = System.nanoTime();
+            this.loadedNanos = (now == 0) ? 1 : now;
+            this.failures = 0;
+
+            refreshing.compareAndSet(reload, null);
+            reload.future.complete(t);
+        } catch (Throwable throwable) {
+            // Stays in refreshing until the backoff is over, so reads in the
+            // meantime get this failure instead of loading again.
+            final int failures = ++this.failures;
+            final long backoff = Math.min(INITIAL_RETRY_NANOS << Math.min(failures - 1, 16), Math.max(refreshNanos, INITIAL_RETRY_NANOS));
+            reload.retryNanos = System.nanoTime() + backoff;
+            reload.future.completeExceptionally(throwable);
+        }
+    }
+
+    private final class Reload {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile Thread runner;
+        private volatile long retryNanos;
+
+        /**
+         * Runs the reload unless another thread already did or is doing so.
+         */
+        private void run() {
+            if (!started.compareAndSet(false, true)) return;
+
+            runner = Thread.currentThread();
+            reload(this);
+        }
+    }
+}
@@ -16,6 +16,7 @@ public final class Lazy<T> implements Supplier<T> {
     private volatile Supplier<T> supplier;
     private volatile boolean initialized = false;
     private T value;
+    private volatile CacheStats stats = null;
 
     private Lazy(Supplier<T> supplier) {
         this.supplier = supplier;
@@ -32,7 +33,7 @@ public final class Lazy<T> implements Supplier<T> {
             synchronized (this) {
                 if (!this.initialized) {
                     // compute the value using the delegate
-                    T t = this.supplier.get();
+                    T t = load();
 
                     this.value = t;
                     this.initialized = true;
@@ -43,6 +44,27 @@ public final class Lazy<T> implements Supplier<T> {
                 }
             }
         }
+
+        final CacheStats stats = this.stats;
+        if (stats != null) stats.recordHit();
+
         return this.value;
     }
+
+    /**
+     * Starts counting hits, misses and load times under the given name in the
+     * {@link CacheRegistry}.
+     */
+    public Lazy<T> recordStats(String name) {
+        this.stats = CacheRegistry.register(name);
+        return this;
+    }
+
+    private T load() {
+        final CacheStats stats = this.stats;
+        if (stats == null) return this.supplier.get();
+
+        stats.recordMiss();
+        return stats.timeLoad(this.supplier);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,648 @@
+package io.github.johnnypixelz.utilizer.cache;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A keyed cache that loads missing values on demand and, when bounded, keeps
+ * its size in check with W-TinyLFU.
+ * <p>
+ * New entries land in a small LRU window. Whatever falls out of the window has
+ * to beat the coldest entry of the main space on estimated access frequency to
+ * be let in, so a burst of one-off lookups (a player list scan, a chunk of
+ * offline profiles) cannot flush out the entries that are actually reused.
+ * The main space is a segmented LRU: entries read again while on probation are
+ * promoted to a protected segment that makes up most of it.
+ * <p>
+ * Reads never block on the eviction lock. When it is contended the access is
+ * simply not recorded, which costs a little ordering precision and nothing
+ * else.
+ */
+public final class LoadingCache<K, V> {
+
+    public static LoadingCacheBuilder<Object, Object> builder() {
+        return new LoadingCacheBuilder<>();
+    }
+
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.80;
+
+    // Candidates this popular get the occasional free pass so that an attacker
+    // cannot pin the cache by keeping a single victim artificially hot.
+    private static final int ADMIT_RANDOMLY_THRESHOLD = 6;
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+    private static final byte DEAD = 3;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final CacheLoader<K, V> loader;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    private final LongSupplier ticker;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final CacheStats stats;
+    private final BiConsumer<? super K, ? super V> evictionListener;
+
+    private final boolean bounded;
+    private final long maximum;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final FrequencySketch sketch;
+
+    private final NodeQueue<K, V> window = new NodeQueue<>(false);
+    private final NodeQueue<K, V> probation = new NodeQueue<>(false);
+    private final NodeQueue<K, V> protectedSegment = new NodeQueue<>(false);
+    private final NodeQueue<K, V> writeOrder = new NodeQueue<>(true);
+
+    private long windowWeight;
+    private long mainWeight;
+    private long protectedWeight;
+
+    LoadingCache(LoadingCacheBuilder<K, V> builder, CacheLoader<K, V> loader) {
+        this.loader = loader;
+        this.weigher = builder.weigher;
+        this.ticker = builder.ticker;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+        this.stats = builder.statsName == null ? null : CacheRegistry.register(builder.statsName);
+        this.evictionListener = builder.evictionListener;
+
+        this.bounded = builder.maximum != -1;
+        this.maximum = bounded ? builder.maximum : Long.MAX_VALUE;
+
+        if (bounded) {
+            final long mainMaximum = (long) (maximum * (1 - WINDOW_SHARE));
+            this.windowMaximum = maximum - mainMaximum;
+            this.protectedMaximum = (long) (mainMaximum * PROTECTED_SHARE);
+            this.sketch = new FrequencySketch();
+        } else {
+            this.windowMaximum = Long.MAX_VALUE;
+            this.protectedMaximum = Long.MAX_VALUE;
+            this.sketch = null;
+        }
+    }
+
+    /**
+     * Returns the cached value for the key, loading it first if it is missing
+     * or expired. Concurrent loads of the same key share a single call to the
+     * loader.
+     *
+     * @return the value, or null if the loader had nothing for the key
+     */
+    public V get(K key) {
+        Objects.requireNonNull(key, "key");
+
+        final long now = ticker.getAsLong();
+        final Node<K, V> node = data.get(key);
+        if (node != null && !hasExpired(node, now)) {
+            afterRead(node, now);
+            if (stats != null) stats.recordHit();
+            return node.value;
+        }
+
+        if (stats != null) stats.recordMiss();
+        return load(key);
+    }
+
+    public Optional<V> getIfPresent(K key) {
+        Objects.requireNonNull(key, "key");
+
+        final long now = ticker.getAsLong();
+        final Node<K, V> node = data.get(key);
+        if (node == null || hasExpired(node, now)) {
+            if (stats != null) stats.recordMiss();
+            return Optional.empty();
+        }
+
+        afterRead(node, now);
+        if (stats != null) stats.recordHit();
+        return Optional.of(node.value);
+    }
+
+    /**
+     * Returns the values for every key, loading all missing ones with a single
+     * {@link CacheLoader#loadAll(Set)} call. Keys the loader had nothing for are
+     * left out of the result.
+     */
+    public Map<K, V> getAll(Iterable<? extends K> keys) {
+        final long now = ticker.getAsLong();
+        final Map<K, V> found = new LinkedHashMap<>();
+        final Set<K> missing = new LinkedHashSet<>();
+
+        for (K key : keys) {
+            Objects.requireNonNull(key, "key");
+
+            final Node<K, V> node = data.get(key);
+            if (node != null && !hasExpired(node, now)) {
+                afterRead(node, now);
+                found.put(key, node.value);
+            } else {
+                missing.add(key);
+            }
+        }
+
+        if (stats != null) {
+            stats.recordHits(found.size());
+            stats.recordMisses(missing.size());
+        }
+
+        if (missing.isEmpty()) {
+            return Collections.unmodifiableMap(found);
+        }
+
+        final Map<K, V> loaded = timed(() -> loader.loadAll(Collections.unmodifiableSet(missing)));
+        final Map<K, V> toCache = new LinkedHashMap<>();
+        for (K key : missing) {
+            final V value = loaded.get(key);
+            if (value != null) {
+                toCache.put(key, value);
+            }
+        }
+        putAll(toCache);
+
+        final Map<K, V> result = new LinkedHashMap<>();
+        for (K key : keys) {
+            final V value = found.containsKey(key) ? found.get(key) : toCache.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    public void put(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+
+        final long now = ticker.getAsLong();
+
+        evictionLock.lock();
+        try {
+            write(key, value, now);
+            maintenance(now);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void putAll(Map<? extends K, ? extends V> values) {
+        if (values.isEmpty()) return;
+
+        final long now = ticker.getAsLong();
+
+        evictionLock.lock();
+        try {
+            values.forEach((key, value) -> write(Objects.requireNonNull(key, "key"), Objects.requireNonNull(value, "value"), now));
+            maintenance(now);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        Objects.requireNonNull(key, "key");
+
+        evictionLock.lock();
+        try {
+            final Node<K, V> node = data.get(key);
+            if (node != null) {
+                remove(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        evictionLock.lock();
+        try {
+            for (Node<K, V> node : data.values()) {
+                node.queue = DEAD;
+            }
+
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+            writeOrder.clear();
+            windowWeight = 0;
+            mainWeight = 0;
+            protectedWeight = 0;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Drops expired entries right away instead of waiting for the next write
+     * to do it.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance(ticker.getAsLong());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return windowWeight + mainWeight;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private V load(K key) {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+
+        try {
+            // Someone may have finished loading between our miss and claiming the key.
+            final long now = ticker.getAsLong();
+            final Node<K, V> node = data.get(key);
+            if (node != null && !hasExpired(node, now)) {
+                future.complete(node.value);
+                return node.value;
+            }
+
+            final V value = timed(() -> loader.load(key));
+            if (value != null) {
+                put(key, value);
+            }
+
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error throwable) {
+            future.completeExceptionally(throwable);
+            throw throwable;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private <T> T timed(Supplier<T> load) {
+        if (stats == null) return load.get();
+
+        return stats.timeLoad(load);
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            final Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            if (cause instanceof Error error) throw error;
+            throw exception;
+        }
+    }
+
+    private boolean hasExpired(Node<K, V> node, long now) {
+        return (expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos)
+                || (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos);
+    }
+
+    private void afterRead(Node<K, V> node, long now) {
+        if (expireAfterAccessNanos > 0) {
+            node.accessTime = now;
+        }
+
+        if (!bounded && expireAfterAccessNanos == 0) return;
+
+        if (evictionLock.tryLock()) {
+            try {
+                onAccess(node);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private int weigh(K key, V value) {
+        if (weigher == null) return 1;
+
+        final int weight = weigher.applyAsInt(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Negative weight " + weight + " for key " + key);
+        }
+
+        return weight;
+    }
+
+    // Everything below runs under the eviction lock.
+
+    private void write(K key, V value, long now) {
+        final int weight = weigh(key, value);
+        Node<K, V> node = data.get(key);
+
+        if (node == null) {
+            node = new Node<>(key, value, weight, now);
+            data.put(key, node);
+
+            if (sketch != null) {
+                sketch.ensureCapacity(weigher == null ? Math.min(data.size(), maximum) : data.size());
+                sketch.increment(key);
+            }
+
+            node.queue = WINDOW;
+            window.addLast(node);
+            windowWeight += weight;
+
+            if (expireAfterWriteNanos > 0) writeOrder.addLast(node);
+            return;
+        }
+
+        node.value = value;
+        node.writeTime = now;
+        node.accessTime = now;
+
+        final int difference = weight - node.weight;
+        node.weight = weight;
+        if (node.queue == WINDOW) {
+            windowWeight += difference;
+        } else {
+            mainWeight += difference;
+            if (node.queue == PROTECTED) protectedWeight += difference;
+        }
+
+        if (expireAfterWriteNanos > 0) writeOrder.moveToBack(node);
+        onAccess(node);
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.queue == DEAD) return;
+
+        if (sketch != null) sketch.increment(node.key);
+
+        switch (node.queue) {
+            case WINDOW -> window.moveToBack(node);
+            case PROTECTED -> protectedSegment.moveToBack(node);
+            case PROBATION -> {
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedSegment.addLast(node);
+                protectedWeight += node.weight;
+
+                while (protectedWeight > protectedMaximum) {
+                    final Node<K, V> demoted = protectedSegment.pollFirst();
+                    if (demoted == null) break;
+
+                    protectedWeight -= demoted.weight;
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+            }
+        }
+    }
+
+    private void maintenance(long now) {
+        expire(now);
+
+        if (bounded) {
+            evict();
+        }
+    }
+
+    private void expire(long now) {
+        if (expireAfterAccessNanos > 0) {
+            expireAccessOrder(window, now);
+            expireAccessOrder(probation, now);
+            expireAccessOrder(protectedSegment, now);
+        }
+
+        if (expireAfterWriteNanos > 0) {
+            Node<K, V> node;
+            while ((node = writeOrder.peekFirst()) != null && now - node.writeTime >= expireAfterWriteNanos) {
+                evict(node);
+            }
+        }
+    }
+
+    private void expireAccessOrder(NodeQueue<K, V> queue, long now) {
+        Node<K, V> node;
+        while ((node = queue.peekFirst()) != null && now - node.accessTime >= expireAfterAccessNanos) {
+            evict(node);
+        }
+    }
+
+    private void evict() {
+        while (windowWeight > windowMaximum) {
+            final Node<K, V> node = window.pollFirst();
+            if (node == null) break;
+
+            windowWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+            mainWeight += node.weight;
+        }
+
+        while (windowWeight + mainWeight > maximum) {
+            Node<K, V> victim = probation.peekFirst();
+            Node<K, V> candidate = probation.peekLast();
+
+            if (victim == null) {
+                victim = protectedSegment.peekFirst();
+                candidate = null;
+            }
+
+            if (victim == null) {
+                victim = window.peekFirst();
+            }
+
+            if (victim == null) break;
+
+            if (candidate == null || candidate == victim || admit(candidate.key, victim.key)) {
+                evict(victim);
+            } else {
+                evict(candidate);
+            }
+        }
+    }
+
+    private void evict(Node<K, V> node) {
+        remove(node);
+
+        if (stats != null) stats.recordEviction();
+        if (evictionListener != null) evictionListener.accept(node.key, node.value);
+    }
+
+    private boolean admit(K candidateKey, K victimKey) {
+        final int candidateFrequency = sketch.frequency(candidateKey);
+        final int victimFrequency = sketch.frequency(victimKey);
+
+        if (candidateFrequency > victimFrequency) return true;
+        if (candidateFrequency < ADMIT_RANDOMLY_THRESHOLD) return false;
+
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    private void remove(Node<K, V> node) {
+        data.remove(node.key, node);
+
+        switch (node.queue) {
+            case WINDOW -> {
+                window.remove(node);
+                windowWeight -= node.weight;
+            }
+            case PROBATION -> {
+                probation.remove(node);
+                mainWeight -= node.weight;
+            }
+            case PROTECTED -> {
+                protectedSegment.remove(node);
+                mainWeight -= node.weight;
+                protectedWeight -= node.weight;
+            }
+            default -> {
+                return;
+            }
+        }
+
+        if (expireAfterWriteNanos > 0) writeOrder.remove(node);
+        node.queue = DEAD;
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private volatile V value;
+        private volatile long writeTime;
+        private volatile long accessTime;
+        private int weight;
+        private byte queue;
+
+        private Node<K, V> previous;
+        private Node<K, V> next;
+        private Node<K, V> previousInWriteOrder;
+        private Node<K, V> nextInWriteOrder;
+
+        private Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /**
+     * An intrusive doubly linked list, so that moving or unlinking an entry
+     * never has to search for it.
+     */
+    private static final class NodeQueue<K, V> {
+        private final boolean writeOrder;
+        private Node<K, V> first;
+        private Node<K, V> last;
+
+        private NodeQueue(boolean writeOrder) {
+            this.writeOrder = writeOrder;
+        }
+
+        private Node<K, V> peekFirst() {
+            return first;
+        }
+
+        private Node<K, V> peekLast() {
+            return last;
+        }
+
+        private Node<K, V> pollFirst() {
+            final Node<K, V> node = first;
+            if (node != null) remove(node);
+            return node;
+        }
+
+        private void addLast(Node<K, V> node) {
+            setPrevious(node, last);
+            setNext(node, null);
+
+            if (last == null) {
+                first = node;
+            } else {
+                setNext(last, node);
+            }
+
+            last = node;
+        }
+
+        private void moveToBack(Node<K, V> node) {
+            if (node == last) return;
+
+            remove(node);
+            addLast(node);
+        }
+
+        private void remove(Node<K, V> node) {
+            final Node<K, V> previous = previous(node);
+            final Node<K, V> next = next(node);
+
+            if (previous == null) {
+                first = next;
+            } else {
+                setNext(previous, next);
+            }
+
+            if (next == null) {
+                last = previous;
+            } else {
+                setPrevious(next, previous);
+            }
+
+            setPrevious(node, null);
+            setNext(node, null);
+        }
+
+        private void clear() {
+            first = null;
+            last = null;
+        }
+
+        private Node<K, V> previous(Node<K, V> node) {
+            return writeOrder ? node.previousInWriteOrder : node.previous;
+        }
+
+        private Node<K, V> next(Node<K, V> node) {
+            return writeOrder ? node.nextInWriteOrder : node.next;
+        }
+
+        private void setPrevious(Node<K, V> node, Node<K, V> previous) {
+            if (writeOrder) node.previousInWriteOrder = previous;
+            else node.previous = previous;
+        }
+
+        private void setNext(Node<K, V> node, Node<K, V> next) {
+            if (writeOrder) node.nextInWriteOrder = next;
+            else node.next = next;
+        }
+    }
+
+}
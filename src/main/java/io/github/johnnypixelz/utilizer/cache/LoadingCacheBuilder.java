@@ -0,0 +1,113 @@
+package io.github.johnnypixelz.utilizer.cache;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntBiFunction;
+
+public class LoadingCacheBuilder<K, V> {
+    long maximum = -1;
+    ToIntBiFunction<? super K, ? super V> weigher = null;
+    long expireAfterWriteNanos = 0;
+    long expireAfterAccessNanos = 0;
+    LongSupplier ticker = System::nanoTime;
+    String statsName = null;
+    BiConsumer<? super K, ? super V> evictionListener = null;
+
+    LoadingCacheBuilder() {}
+
+    /**
+     * Caps the cache at the given number of entries.
+     *
+     * @param maximumSize The most entries kept at once
+     * @return This object, for chaining
+     */
+    public LoadingCacheBuilder<K, V> maximumSize(long maximumSize) {
+        Preconditions.checkArgument(maximumSize >= 0, "maximumSize must not be negative");
+        Preconditions.checkState(this.maximum == -1, "maximum size or weight was already set");
+        this.maximum = maximumSize;
+        return this;
+    }
+
+    /**
+     * Caps the cache at the given total weight, as measured by the
+     * {@link #weigher(ToIntBiFunction) weigher}.
+     *
+     * @param maximumWeight The most weight kept at once
+     * @return This object, for chaining
+     */
+    public LoadingCacheBuilder<K, V> maximumWeight(long maximumWeight) {
+        Preconditions.checkArgument(maximumWeight >= 0, "maximumWeight must not be negative");
+        Preconditions.checkState(this.maximum == -1, "maximum size or weight was already set");
+        this.maximum = maximumWeight;
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <K1 extends K, V1 extends V> LoadingCacheBuilder<K1, V1> weigher(ToIntBiFunction<? super K1, ? super V1> weigher) {
+        final LoadingCacheBuilder<K1, V1> self = (LoadingCacheBuilder<K1, V1>) this;
+        self.weigher = Objects.requireNonNull(weigher, "weigher");
+        return self;
+    }
+
+    /**
+     * Drops entries once the given time has passed since they were loaded or
+     * last replaced.
+     */
+    public LoadingCacheBuilder<K, V> expireAfterWrite(long duration, TimeUnit unit) {
+        Preconditions.checkArgument(duration > 0);
+        this.expireAfterWriteNanos = Objects.requireNonNull(unit, "unit").toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Drops entries once the given time has passed since they were last read
+     * or written.
+     */
+    public LoadingCacheBuilder<K, V> expireAfterAccess(long duration, TimeUnit unit) {
+        Preconditions.checkArgument(duration > 0);
+        this.expireAfterAccessNanos = Objects.requireNonNull(unit, "unit").toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Counts hits, misses, load times and evictions under the given name in
+     * the {@link CacheRegistry}.
+     *
+     * @param name The name the statistics are reported under
+     * @return This object, for chaining
+     */
+    public LoadingCacheBuilder<K, V> recordStats(String name) {
+        this.statsName = Objects.requireNonNull(name, "name");
+        return this;
+    }
+
+    /**
+     * Calls the listener with every entry dropped for size or age, but not for
+     * entries that were invalidated or replaced. It runs while the cache is
+     * locked, so it should be quick and must not use the cache.
+     */
+    @SuppressWarnings("unchecked")
+    public <K1 extends K, V1 extends V> LoadingCacheBuilder<K1, V1> evictionListener(BiConsumer<? super K1, ? super V1> listener) {
+        final LoadingCacheBuilder<K1, V1> self = (LoadingCacheBuilder<K1, V1>) this;
+        self.evictionListener = Objects.requireNonNull(listener, "listener");
+        return self;
+    }
+
+    LoadingCacheBuilder<K, V> ticker(LongSupplier ticker) {
+        this.ticker = Objects.requireNonNull(ticker, "ticker");
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <K1 extends K, V1 extends V> LoadingCache<K1, V1> build(CacheLoader<? super K1, V1> loader) {
+        Objects.requireNonNull(loader, "loader");
+        Preconditions.checkState(weigher == null || maximum != -1, "weigher requires maximumWeight");
+
+        return new LoadingCache<>((LoadingCacheBuilder<K1, V1>) this, (CacheLoader<K1, V1>) loader);
+    }
+
+}
@@ -0,0 +1,225 @@
+package io.github.johnnypixelz.utilizer.cache;
+
+import com.google.common.base.Preconditions;
+import io.github.johnnypixelz.utilizer.tasks.Tasks;
+import org.bukkit.entity.Player;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Per-player values that are dropped as soon as the player quits.
+ * <p>
+ * Every cache shares one quit listener, so nothing has to be wired up by hand
+ * and entries cannot outlive the session they were computed for. Values
+ * produced by the loader are only kept if the session they were loaded for is
+ * still going when they finish, otherwise a lookup of someone offline, or a
+ * load that outlived the player's quit, would sit in the cache with no quit to
+ * clear it. Values {@link #put(UUID, Object) put} explicitly are always kept,
+ * so data prepared during pre-login is not lost, and are dropped again if the
+ * login is denied.
+ */
+public final class PlayerCache<V> {
+
+    public static <V> PlayerCache<V> create() {
+        return new PlayerCache<>(null, 0);
+    }
+
+    public static <V> PlayerCache<V> create(long duration, TimeUnit unit) {
+        Preconditions.checkArgument(duration > 0);
+        Objects.requireNonNull(unit, "unit");
+
+        return new PlayerCache<>(null, unit.toNanos(duration));
+    }
+
+    public static <V> PlayerCache<V> loadedBy(Function<UUID, V> loader) {
+        return new PlayerCache<>(Objects.requireNonNull(loader, "loader"), 0);
+    }
+
+    public static <V> PlayerCache<V> loadedBy(Function<UUID, V> loader, long duration, TimeUnit unit) {
+        Objects.requireNonNull(loader, "loader");
+        Preconditions.checkArgument(duration > 0);
+        Objects.requireNonNull(unit, "unit");
+
+        return new PlayerCache<>(loader, unit.toNanos(duration));
+    }
+
+    private final UUIDMap<V> store = new UUIDMap<>();
+    private final ConcurrentHashMap<UUID, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final Function<UUID, V> loader;
+    private final long ttlNanos;
+    private volatile boolean tracked = false;
+    private volatile CacheStats stats = null;
+
+    private PlayerCache(Function<UUID, V> loader, long ttlNanos) {
+        this.loader = loader;
+        this.ttlNanos = ttlNanos;
+        PlayerCacheListener.register();
+    }
+
+    public V get(Player player) {
+        return get(player.getUniqueId());
+    }
+
+    /**
+     * Returns the cached value, loading it on the calling thread if it is
+     * missing and this cache has a loader.
+     *
+     * @return the value, or null if there is none
+     */
+    public V get(UUID uniqueId) {
+        final V cached = store.get(uniqueId, System.nanoTime(), ttlNanos);
+        record(cached);
+        if (cached != null || loader == null) return cached;
+
+        final CompletableFuture<V> inFlight = loading.get(uniqueId);
+        if (inFlight != null) return inFlight.join();
+
+        final Object session = PlayerCacheListener.session(uniqueId);
+        final V loaded = load(uniqueId);
+        keepIfOnline(uniqueId, session, loaded);
+        return loaded;
+    }
+
+    public Optional<V> getIfPresent(Player player) {
+        return getIfPresent(player.getUniqueId());
+    }
+
+    public Optional<V> getIfPresent(UUID uniqueId) {
+        final V cached = store.get(uniqueId, System.nanoTime(), ttlNanos);
+        record(cached);
+        return Optional.ofNullable(cached);
+    }
+
+    public CompletableFuture<V> getAsync(Player player) {
+        return getAsync(player.getUniqueId());
+    }
+
+    /**
+     * Returns the cached value right away, or loads it on Bukkit's async
+     * scheduler. Concurrent requests for the same player share one load.
+     */
+    public CompletableFuture<V> getAsync(UUID uniqueId) {
+        final V cached = store.get(uniqueId, System.nanoTime(), ttlNanos);
+        record(cached);
+        if (cached != null || loader == null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return loading.computeIfAbsent(uniqueId, id -> {
+            final CompletableFuture<V> future = new CompletableFuture<>();
+            final Object session = PlayerCacheListener.session(id);
+
+            Tasks.async().run(() -> {
+                try {
+                    final V loaded = load(id);
+                    keepIfOnline(id, session, loaded);
+                    future.complete(loaded);
+                } catch (Throwable throwable) {
+                    future.completeExceptionally(throwable);
+                } finally {
+                    loading.remove(id, future);
+                }
+            });
+
+            return future;
+        });
+    }
+
+    public void put(Player player, V value) {
+        put(player.getUniqueId(), value);
+    }
+
+    public void put(UUID uniqueId, V value) {
+        Objects.requireNonNull(uniqueId, "uniqueId");
+
+        if (value == null) {
+            store.remove(uniqueId);
+        } else {
+            ensureTracked();
+            store.put(uniqueId, value, System.nanoTime());
+        }
+    }
+
+    public void invalidate(Player player) {
+        invalidate(player.getUniqueId());
+    }
+
+    public void invalidate(UUID uniqueId) {
+        store.remove(uniqueId);
+    }
+
+    public void invalidateAll() {
+        store.clear();
+    }
+
+    public void forEach(BiConsumer<UUID, V> consumer) {
+        store.forEach(consumer);
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Starts counting hits, misses and load times under the given name in the
+     * {@link CacheRegistry}.
+     */
+    public PlayerCache<V> recordStats(String name) {
+        this.stats = CacheRegistry.register(name);
+        return this;
+    }
+
+    /**
+     * Stops listening for quits and drops every entry.
+     */
+    public void close() {
+        PlayerCacheListener.untrack(this);
+        tracked = false;
+        store.clear();
+    }
+
+    private void ensureTracked() {
+        if (!tracked) {
+            PlayerCacheListener.track(this);
+            tracked = true;
+        }
+    }
+
+    private void record(V cached) {
+        final CacheStats stats = this.stats;
+        if (stats == null) return;
+
+        if (cached != null) {
+            stats.recordHit();
+        } else {
+            stats.recordMiss();
+        }
+    }
+
+    private V load(UUID uniqueId) {
+        final CacheStats stats = this.stats;
+        if (stats == null) return loader.apply(uniqueId);
+
+        return stats.timeLoad(() -> loader.apply(uniqueId));
+    }
+
+    private void keepIfOnline(UUID uniqueId, Object session, V value) {
+        if (value == null || session == null || PlayerCacheListener.session(uniqueId) != session) return;
+
+        ensureTracked();
+        store.put(uniqueId, value, System.nanoTime());
+
+        // The player may have quit while we were storing, after the listener ran.
+        if (PlayerCacheListener.session(uniqueId) != session) {
+            store.remove(uniqueId, value);
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package io.github.johnnypixelz.utilizer.cache;
+
+import io.github.johnnypixelz.utilizer.plugin.Provider;
+import io.github.johnnypixelz.utilizer.tasks.Tasks;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Internal listener shared by every {@link PlayerCache}. Caches are held
+ * weakly so one that is simply dropped does not have to be closed.
+ * <p>
+ * It also hands out one token per online session, replaced on every join and
+ * dropped on quit. A load remembers the token it started under, so a value
+ * that finishes after the player quit, or after they quit and joined again,
+ * can tell it belongs to a session that is over without asking Bukkit from
+ * off the main thread.
+ */
+class PlayerCacheListener implements Listener {
+    private static final Set<PlayerCache<?>> CACHES = Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+    private static final ConcurrentHashMap<UUID, Object> SESSIONS = new ConcurrentHashMap<>();
+    private static final AtomicBoolean REGISTERED = new AtomicBoolean(false);
+
+    /**
+     * Registers the listener and opens a session for everyone online, once,
+     * on the main thread. Called when a cache is made, which is usually on
+     * the main thread already, otherwise it is done on the next tick.
+     */
+    static void register() {
+        if (!REGISTERED.compareAndSet(false, true)) return;
+
+        if (Bukkit.isPrimaryThread()) {
+            registerNow();
+        } else {
+            Tasks.sync().run(() -> registerNow());
+        }
+    }
+
+    private static void registerNow() {
+        Bukkit.getPluginManager().registerEvents(new PlayerCacheListener(), Provider.getPlugin());
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            SESSIONS.putIfAbsent(player.getUniqueId(), new Object());
+        }
+    }
+
+    static void track(PlayerCache<?> cache) {
+        CACHES.add(cache);
+    }
+
+    /**
+     * @return the token of the player's current session, or null if they are
+     * not online
+     */
+    static Object session(UUID uniqueId) {
+        return SESSIONS.get(uniqueId);
+    }
+
+    static void untrack(PlayerCache<?> cache) {
+        CACHES.remove(cache);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        SESSIONS.put(event.getPlayer().getUniqueId(), new Object());
+    }
+
+    /**
+     * Drops whatever was put for a player during pre-login when a later
+     * listener turns the login down, as no quit will follow for them.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+
+        invalidateAll(event.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        final UUID uniqueId = event.getPlayer().getUniqueId();
+
+        // Ended before the entries go, so a load that stores after this point
+        // sees its session is over and takes its value back out.
+        SESSIONS.remove(uniqueId);
+        invalidateAll(uniqueId);
+    }
+
+    private static void invalidateAll(UUID uniqueId) {
+        final List<PlayerCache<?>> caches;
+        synchronized (CACHES) {
+            caches = new ArrayList<>(CACHES);
+        }
+
+        for (PlayerCache<?> cache : caches) {
+            cache.invalidate(uniqueId);
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package io.github.johnnypixelz.utilizer.cache;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * The per-player counterpart of {@link TickCache}: each player's value is
+ * computed at most once per server tick, and dropped when they quit.
+ */
+public final class PlayerTickCache<T> implements Function<Player, T> {
+
+    public static <T> PlayerTickCache<T> computedBy(Function<Player, T> function) {
+        return new PlayerTickCache<>(Objects.requireNonNull(function, "function"));
+    }
+
+    private final Function<Player, T> function;
+    private final PlayerCache<TickCache.Snapshot<T>> snapshots = PlayerCache.create();
+
+    private PlayerTickCache(Function<Player, T> function) {
+        this.function = function;
+    }
+
+    @Override
+    public T apply(Player player) {
+        return get(player);
+    }
+
+    public T get(Player player) {
+        final int tick = Bukkit.getCurrentTick();
+
+        final TickCache.Snapshot<T> snapshot = snapshots.get(player.getUniqueId());
+        if (snapshot != null && snapshot.tick() == tick) {
+            return snapshot.value();
+        }
+
+        final T value = function.apply(player);
+        snapshots.put(player.getUniqueId(), new TickCache.Snapshot<>(tick, value));
+        return value;
+    }
+
+    public void invalidate(Player player) {
+        snapshots.invalidate(player);
+    }
+
+    public void invalidateAll() {
+        snapshots.invalidateAll();
+    }
+
+}
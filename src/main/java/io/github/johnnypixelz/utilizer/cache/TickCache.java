@@ -0,0 +1,81 @@
+package io.github.johnnypixelz.utilizer.cache;
+
+import org.bukkit.Bukkit;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A value that is computed at most once per server tick.
+ * <p>
+ * Meant for things that every scoreboard line, bossbar and placeholder asks
+ * for on the same tick, such as the online player count. Reads within the
+ * tick the value was computed on do not allocate or lock.
+ */
+public final class TickCache<T> implements Supplier<T> {
+
+    public static <T> TickCache<T> suppliedBy(Supplier<T> supplier) {
+        return new TickCache<>(Objects.requireNonNull(supplier, "supplier"));
+    }
+
+    private final Supplier<T> supplier;
+    private volatile Snapshot<T> snapshot = null;
+    private volatile CacheStats stats = null;
+
+    private TickCache(Supplier<T> supplier) {
+        this.supplier = supplier;
+    }
+
+    @Override
+    public T get() {
+        final int tick = Bukkit.getCurrentTick();
+
+        Snapshot<T> current = this.snapshot;
+        if (current != null && current.tick == tick) {
+            recordHit();
+            return current.value;
+        }
+
+        synchronized (this) {
+            current = this.snapshot;
+            if (current != null && current.tick == tick) {
+                recordHit();
+                return current.value;
+            }
+
+            final T value = load();
+            this.snapshot = new Snapshot<>(tick, value);
+            return value;
+        }
+    }
+
+    public void invalidate() {
+        this.snapshot = null;
+    }
+
+    /**
+     * Starts counting hits, misses and load times under the given name in the
+     * {@link CacheRegistry}.
+     */
+    public TickCache<T> recordStats(String name) {
+        this.stats = CacheRegistry.register(name);
+        return this;
+    }
+
+    private void recordHit() {
+        final CacheStats stats = this.stats;
+        if (stats != null) stats.recordHit();
+    }
+
+    private T load() {
+        final CacheStats stats = this.stats;
+        if (stats == null) return supplier.get();
+
+        stats.recordMiss();
+        return stats.timeLoad(supplier);
+    }
+
+    record Snapshot<T>(int tick, T value) {
+    }
+
+}
@@ -0,0 +1,264 @@
+package io.github.johnnypixelz.utilizer.cache;
+
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+/**
+ * An open-addressing map from UUID to value that stores the two halves of
+ * each key and a write timestamp in flat primitive arrays.
+ * <p>
+ * A HashMap entry for a player costs a node, the boxed key and whatever
+ * wrapper holds the timestamp; here it costs three longs and a reference.
+ * Reads are optimistic and never take a lock unless they race a write. The
+ * table shrinks again as entries leave, so its footprint follows the number
+ * of online players rather than the peak.
+ */
+final class UUIDMap<V> {
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table = new Table(MINIMUM_CAPACITY);
+    private int size;
+
+    V get(UUID key, long now, long ttlNanos) {
+        final long stamp = lock.tryOptimisticRead();
+        V value = find(table, key, now, ttlNanos);
+
+        if (!lock.validate(stamp)) {
+            final long readStamp = lock.readLock();
+            try {
+                value = find(table, key, now, ttlNanos);
+            } finally {
+                lock.unlockRead(readStamp);
+            }
+        }
+
+        return value;
+    }
+
+    void put(UUID key, V value, long now) {
+        final long stamp = lock.writeLock();
+        try {
+            Table table = this.table;
+            final int existing = indexOf(table, key.getMostSignificantBits(), key.getLeastSignificantBits());
+            if (existing >= 0) {
+                table.values[existing] = value;
+                table.writeNanos[existing] = now;
+                return;
+            }
+
+            if ((size + 1) * 2 > table.values.length) {
+                table = resize(table.values.length * 2);
+            }
+
+            insert(table, key.getMostSignificantBits(), key.getLeastSignificantBits(), value, now);
+            size++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(UUID key) {
+        final long stamp = lock.writeLock();
+        try {
+            final Table table = this.table;
+            final int index = indexOf(table, key.getMostSignificantBits(), key.getLeastSignificantBits());
+            if (index < 0) return null;
+
+            final V removed = (V) table.values[index];
+            removeAt(table, index);
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the entry only while it still holds this exact value.
+     */
+    boolean remove(UUID key, V value) {
+        final long stamp = lock.writeLock();
+        try {
+            final Table table = this.table;
+            final int index = indexOf(table, key.getMostSignificantBits(), key.getLeastSignificantBits());
+            if (index < 0 || table.values[index] != value) return false;
+
+            removeAt(table, index);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void removeAt(Table table, int index) {
+        delete(table, index);
+        size--;
+
+        if (table.values.length > MINIMUM_CAPACITY && size * 8 < table.values.length) {
+            resize(table.values.length / 2);
+        }
+    }
+
+    void clear() {
+        final long stamp = lock.writeLock();
+        try {
+            this.table = new Table(MINIMUM_CAPACITY);
+            this.size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        final long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(BiConsumer<UUID, V> consumer) {
+        final Table snapshot;
+        final long stamp = lock.readLock();
+        try {
+            snapshot = this.table.copy();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        for (int i = 0; i < snapshot.values.length; i++) {
+            if (snapshot.values[i] != null) {
+                consumer.accept(new UUID(snapshot.mostSignificant[i], snapshot.leastSignificant[i]), (V) snapshot.values[i]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V find(Table table, UUID key, long now, long ttlNanos) {
+        final long most = key.getMostSignificantBits();
+        final long least = key.getLeastSignificantBits();
+        final int mask = table.values.length - 1;
+
+        // Bounded so that a torn optimistic read cannot spin forever.
+        int index = hash(most, least) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            final Object value = table.values[index];
+            if (value == null) return null;
+
+            if (table.mostSignificant[index] == most && table.leastSignificant[index] == least) {
+                if (ttlNanos > 0 && now - table.writeNanos[index] >= ttlNanos) return null;
+                return (V) value;
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        return null;
+    }
+
+    private int indexOf(Table table, long most, long least) {
+        final int mask = table.values.length - 1;
+
+        int index = hash(most, least) & mask;
+        while (table.values[index] != null) {
+            if (table.mostSignificant[index] == most && table.leastSignificant[index] == least) {
+                return index;
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    private void insert(Table table, long most, long least, Object value, long now) {
+        final int mask = table.values.length - 1;
+
+        int index = hash(most, least) & mask;
+        while (table.values[index] != null) {
+            index = (index + 1) & mask;
+        }
+
+        table.mostSignificant[index] = most;
+        table.leastSignificant[index] = least;
+        table.writeNanos[index] = now;
+        table.values[index] = value;
+    }
+
+    /**
+     * Backward-shift deletion: later entries of the same probe run are moved
+     * up into the gap so that lookups never need tombstones.
+     */
+    private void delete(Table table, int index) {
+        final int mask = table.values.length - 1;
+
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (table.values[next] != null) {
+            final int home = hash(table.mostSignificant[next], table.leastSignificant[next]) & mask;
+
+            // Move the entry only if its home slot is not between the gap and where it sits.
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table.mostSignificant[gap] = table.mostSignificant[next];
+                table.leastSignificant[gap] = table.leastSignificant[next];
+                table.writeNanos[gap] = table.writeNanos[next];
+                table.values[gap] = table.values[next];
+                gap = next;
+            }
+
+            next = (next + 1) & mask;
+        }
+
+        table.values[gap] = null;
+    }
+
+    private Table resize(int capacity) {
+        final Table previous = this.table;
+        final Table resized = new Table(capacity);
+
+        for (int i = 0; i < previous.values.length; i++) {
+            if (previous.values[i] != null) {
+                insert(resized, previous.mostSignificant[i], previous.leastSignificant[i], previous.values[i], previous.writeNanos[i]);
+            }
+        }
+
+        this.table = resized;
+        return resized;
+    }
+
+    private static int hash(long most, long least) {
+        long hash = most ^ least;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+    private static final class Table {
+        private final long[] mostSignificant;
+        private final long[] leastSignificant;
+        private final long[] writeNanos;
+        private final Object[] values;
+
+        private Table(int capacity) {
+            this.mostSignificant = new long[capacity];
+            this.leastSignificant = new long[capacity];
+            this.writeNanos = new long[capacity];
+            this.values = new Object[capacity];
+        }
+
+        private Table copy() {
+            final Table copy = new Table(values.length);
+            System.arraycopy(mostSignificant, 0, copy.mostSignificant, 0, values.length);
+            System.arraycopy(leastSignificant, 0, copy.leastSignificant, 0, values.length);
+            System.arraycopy(writeNanos, 0, copy.writeNanos, 0, values.length);
+            System.arraycopy(values, 0, copy.values, 0, values.length);
+            return copy;
+        }
+    }
+
+}
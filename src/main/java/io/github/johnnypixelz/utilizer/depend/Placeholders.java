@@ -1,7 +1,10 @@
 package io.github.johnnypixelz.utilizer.depend;
 
+import io.github.johnnypixelz.utilizer.cache.PlayerTickCache;
+import io.github.johnnypixelz.utilizer.cache.TickCache;
 import me.clip.placeholderapi.PlaceholderAPI;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
@@ -63,6 +66,9 @@ public final class Placeholders {
     private static final Map<String, Function<Player, String>> playerPlaceholders = new HashMap<>();
     private static final Map<String, Supplier<String>> staticPlaceholders = new HashMap<>();
 
+    // A scoreboard showing all three coordinates would otherwise copy the location three times a tick.
+    private static final PlayerTickCache<Location> playerLocations = PlayerTickCache.computedBy(Player::getLocation);
+
     static {
         // Register default player placeholders
         register("player", Player::getName);
@@ -74,12 +80,12 @@ public final class Placeholders {
         register("player_food", player -> String.valueOf(player.getFoodLevel()));
         register("player_level", player -> String.valueOf(player.getLevel()));
         register("player_gamemode", player -> player.getGameMode().name().toLowerCase());
-        register("player_x", player -> String.valueOf(player.getLocation().getBlockX()));
-        register("player_y", player -> String.valueOf(player.getLocation().getBlockY()));
-        register("player_z", player -> String.valueOf(player.getLocation().getBlockZ()));
+        register("player_x", player -> String.valueOf(playerLocations.get(player).getBlockX()));
+        register("player_y", player -> String.valueOf(playerLocations.get(player).getBlockY()));
+        register("player_z", player -> String.valueOf(playerLocations.get(player).getBlockZ()));
 
         // Register default static placeholders
-        register("server_online", () -> String.valueOf(Bukkit.getOnlinePlayers().size()));
+        register("server_online", TickCache.suppliedBy(() -> String.valueOf(Bukkit.getOnlinePlayers().size())));
         register("server_max", () -> String.valueOf(Bukkit.getMaxPlayers()));
         register("server_name", () -> Bukkit.getServer().getName());
         register("server_version", () -> Bukkit.getServer().getVersion());
@@ -96,6 +96,17 @@ public abstract class CustomBlock {
         return manager;
     }
 
+    /**
+     * Reports that this block's state changed, so the manager's next
+     * auto-save writes it. Auto-saves skip writing when nothing was reported,
+     * apart from a periodic full save.
+     */
+    protected final void markDirty() {
+        if (manager != null) {
+            manager.markDirty(blockPosition);
+        }
+    }
+
     /**
      * Sets the manager reference. Called internally by the manager.
      *
@@ -1,4 +1,5 @@
 package io.github.johnnypixelz.utilizer.features.customblocks;
+import io.github.johnnypixelz.utilizer.file.storage.container.file.FileStorageContainer;
 import io.github.johnnypixelz.utilizer.plugin.Provider;
 import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.ItemStack;
@@ -88,6 +89,23 @@ public class CustomBlockBuilder<CB extends CustomBlock> {
         return this;
     }
 
+    /**
+     * Spreads blocks over several files in a directory named after the
+     * storage file, so saves only rewrite the files holding changed blocks.
+     * Worth it for block types with many thousands of blocks.
+     * An existing single storage file is split on the first save.
+     *
+     * @param shards the number of files, or 0 to keep a single file (default)
+     * @return this builder for chaining
+     */
+    public CustomBlockBuilder<CB> shards(int shards) {
+        if (shards < 0) {
+            throw new IllegalArgumentException("Shard count cannot be negative");
+        }
+        settingsBuilder.storageShards = shards;
+        return this;
+    }
+
     // Optional: Item configuration
 
     /**
@@ -280,6 +298,13 @@ public class CustomBlockBuilder<CB extends CustomBlock> {
     /**
      * Sets the auto-save interval in server ticks.
      * Set to 0 to disable auto-save (default).
+     * Auto-saves write after a block was registered, unregistered or
+     * reported changed with {@link CustomBlock#markDirty()}. Blocks that
+     * change their state in place without reporting it are only written by
+     * every {@value FileStorageContainer#FULL_SAVE_EVERY}th auto-save, which
+     * saves everything, or by {@link CustomBlockManager#save()}. Storage that
+     * writes per block, such as sharded storage, skips that full save, so
+     * there unreported changes wait for {@link CustomBlockManager#save()}.
      *
      * @param ticks the interval in ticks, or 0 to disable
      * @return this builder for chaining
@@ -1,8 +1,10 @@
 package io.github.johnnypixelz.utilizer.features.customblocks;
 
+import com.google.gson.Gson;
 import io.github.johnnypixelz.utilizer.features.customblocks.item.BlockItemHandler;
 import io.github.johnnypixelz.utilizer.file.storage.Storage;
 import io.github.johnnypixelz.utilizer.file.storage.container.file.FileStorageContainer;
+import io.github.johnnypixelz.utilizer.file.storage.container.file.MapFileStorageContainer;
 import io.github.johnnypixelz.utilizer.gson.GsonProvider;
 import io.github.johnnypixelz.utilizer.plugin.Provider;
 import io.github.johnnypixelz.utilizer.serialize.world.BlockPosition;
@@ -57,9 +59,16 @@ public class CustomBlockManager<CB extends CustomBlock> {
         this.blockType = blockType;
         this.settings = settings;
 
-        this.storage = Storage.map(BlockPosition.class, blockType)
-                .json(fileName, GsonProvider.builder().enableComplexMapKeySerialization().create())
-                .container(HashMap::new);
+        final Gson gson = GsonProvider.builder().enableComplexMapKeySerialization().create();
+        if (settings.getStorageShards() > 0) {
+            this.storage = Storage.map(BlockPosition.class, blockType)
+                    .jsonSharded(fileName, settings.getStorageShards(), gson)
+                    .container(HashMap::new);
+        } else {
+            this.storage = Storage.map(BlockPosition.class, blockType)
+                    .json(fileName, gson)
+                    .container(HashMap::new);
+        }
 
         this.itemHandler = settings.hasItemRepresentation()
                 ? new BlockItemHandler<>(settings)
@@ -94,10 +103,11 @@ public class CustomBlockManager<CB extends CustomBlock> {
             }, settings.getTickInterval());
         }
 
-        // Start auto-save if configured
+        // Start auto-save if configured. Writes off the main thread, and only
+        // when something changed or a periodic full save is due.
         if (settings.getAutoSaveTicks() > 0) {
             autoSaveTask = Tasks.sync().delayedTimer(
-                    task -> save(),
+                    task -> storage.autoSaveAsync(),
                     settings.getAutoSaveTicks(),
                     settings.getAutoSaveTicks()
             );
@@ -135,6 +145,23 @@ public class CustomBlockManager<CB extends CustomBlock> {
         storage.save();
     }
 
+    /**
+     * Reports that a block changed, so the next auto-save writes it.
+     * Registering and unregistering blocks already does this.
+     *
+     * @param position the position of the block that changed
+     * @see CustomBlock#markDirty()
+     */
+    public void markDirty(@NotNull BlockPosition position) {
+        Objects.requireNonNull(position, "position");
+
+        if (storage instanceof MapFileStorageContainer<BlockPosition, CB> keyed) {
+            keyed.markDirty(position);
+        } else {
+            storage.markDirty();
+        }
+    }
+
     // Block operations
 
     /**
@@ -175,6 +202,7 @@ public class CustomBlockManager<CB extends CustomBlock> {
 
         block.setManager(this);
         storage.get().put(position, block);
+        markDirty(position);
         block.onRegister();
         block.onLoad();
 
@@ -198,6 +226,7 @@ public class CustomBlockManager<CB extends CustomBlock> {
         block.onUnload();
         block.onUnregister();
         storage.get().remove(block.getBlockPosition());
+        markDirty(block.getBlockPosition());
     }
 
     // Accessors
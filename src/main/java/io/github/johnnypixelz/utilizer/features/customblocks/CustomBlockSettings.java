@@ -40,6 +40,9 @@ public final class CustomBlockSettings<CB extends CustomBlock> {
     // Auto-save configuration
     private final long autoSaveTicks;
 
+    // Storage configuration
+    private final int storageShards;
+
     // Block type for reflection-based factory
     private final Class<CB> blockType;
 
@@ -58,6 +61,7 @@ public final class CustomBlockSettings<CB extends CustomBlock> {
         this.tickEnabled = builder.tickEnabled;
         this.tickInterval = builder.tickInterval;
         this.autoSaveTicks = builder.autoSaveTicks;
+        this.storageShards = builder.storageShards;
         this.blockType = builder.blockType;
     }
 
@@ -145,6 +149,15 @@ public final class CustomBlockSettings<CB extends CustomBlock> {
         return autoSaveTicks;
     }
 
+    // Storage getters
+
+    /**
+     * @return how many files blocks are spread over, or 0 to keep them in one file
+     */
+    public int getStorageShards() {
+        return storageShards;
+    }
+
     /**
      * Builder for CustomBlockSettings.
      * Package-private, only accessible through CustomBlockBuilder.
@@ -164,6 +177,7 @@ public final class CustomBlockSettings<CB extends CustomBlock> {
         boolean tickEnabled = true;
         long tickInterval = 1L;
         long autoSaveTicks = 0L;
+        int storageShards = 0;
         Class<CB> blockType = null;
 
         CustomBlockSettings<CB> build() {
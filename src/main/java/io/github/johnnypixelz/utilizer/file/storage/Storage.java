@@ -2,7 +2,10 @@ package io.github.johnnypixelz.utilizer.file.storage;
 
 import io.github.johnnypixelz.utilizer.file.storage.builder.ListStorageBuilder;
 import io.github.johnnypixelz.utilizer.file.storage.builder.MapStorageBuilder;
+import io.github.johnnypixelz.utilizer.file.storage.builder.MappedStorageBuilder;
 import io.github.johnnypixelz.utilizer.file.storage.builder.SingleStorageBuilder;
+import io.github.johnnypixelz.utilizer.file.storage.handler.file.mapped.MappedKey;
+import io.github.johnnypixelz.utilizer.file.storage.handler.file.mapped.MappedSchema;
 
 public final class Storage {
 
@@ -18,4 +21,12 @@ public final class Storage {
         return new MapStorageBuilder<>(keyType, valueType);
     }
 
+    /**
+     * Fixed-layout records kept in a memory-mapped file, for counters and
+     * stats that would otherwise go through JSON for nothing.
+     */
+    public static <K> MappedStorageBuilder<K> mapped(MappedKey<K> key, MappedSchema schema) {
+        return new MappedStorageBuilder<>(key, schema);
+    }
+
 }
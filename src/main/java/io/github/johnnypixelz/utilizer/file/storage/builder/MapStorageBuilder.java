@@ -1,5 +1,6 @@
 package io.github.johnnypixelz.utilizer.file.storage.builder;
 
+import com.google.common.base.Preconditions;
 import com.google.gson.Gson;
 import com.google.gson.internal.$Gson$Types;
 import io.github.johnnypixelz.utilizer.file.storage.handler.database.sql.DynamicSQLStorageHandler;
@@ -7,6 +8,8 @@ import io.github.johnnypixelz.utilizer.file.storage.handler.database.sql.SQLStor
 import io.github.johnnypixelz.utilizer.file.storage.handler.database.sql.StringSQLStorageHandler;
 import io.github.johnnypixelz.utilizer.file.storage.handler.file.FileStorageHandler;
 import io.github.johnnypixelz.utilizer.file.storage.handler.file.json.GsonStorageHandler;
+import io.github.johnnypixelz.utilizer.file.storage.handler.file.json.JournalGsonStorageHandler;
+import io.github.johnnypixelz.utilizer.file.storage.handler.file.json.ShardedGsonStorageHandler;
 import io.github.johnnypixelz.utilizer.gson.GsonProvider;
 import io.github.johnnypixelz.utilizer.sql.DatabaseCredentials;
 
@@ -34,6 +37,47 @@ public class MapStorageBuilder<K, V> implements StorageBuilder<Map<K, V>> {
         return new GsonStorageHandler<>(fileName, type, gson);
     }
 
+    public ShardedGsonStorageHandler<K, V> jsonSharded(String directoryName, int shards) {
+        return jsonSharded(directoryName, shards, GsonProvider.standard());
+    }
+
+    /**
+     * Stores the map as a directory of {@code shards} JSON files, keys spread
+     * between them by hash, so saves only rewrite the files that changed.
+     */
+    public ShardedGsonStorageHandler<K, V> jsonSharded(String directoryName, int shards, Gson gson) {
+        Preconditions.checkArgument(shards > 0, "shards must be positive");
+        return new ShardedGsonStorageHandler<>(directoryName, keyType, valueType, gson, shards);
+    }
+
+    public ShardedGsonStorageHandler<K, V> jsonPerKey(String directoryName) {
+        return jsonPerKey(directoryName, GsonProvider.standard());
+    }
+
+    /**
+     * Stores the map as a directory holding a JSON file per key.
+     */
+    public ShardedGsonStorageHandler<K, V> jsonPerKey(String directoryName, Gson gson) {
+        return new ShardedGsonStorageHandler<>(directoryName, keyType, valueType, gson, 0);
+    }
+
+    public JournalGsonStorageHandler<K, V> journal(String fileName) {
+        return journal(fileName, GsonProvider.standard());
+    }
+
+    public JournalGsonStorageHandler<K, V> journal(String fileName, Gson gson) {
+        return journal(fileName, gson, 2);
+    }
+
+    /**
+     * Stores the map as a snapshot plus an append-only journal of changed
+     * keys, compacted in the background once the journal outgrows the live
+     * data by {@code compactionRatio} times.
+     */
+    public JournalGsonStorageHandler<K, V> journal(String fileName, Gson gson, double compactionRatio) {
+        return new JournalGsonStorageHandler<>(fileName, keyType, valueType, gson, compactionRatio);
+    }
+
     public SQLStorageHandler<K, V> sql(DatabaseCredentials credentials, String table) {
         return sql(credentials, table, GsonProvider.standard());
     }
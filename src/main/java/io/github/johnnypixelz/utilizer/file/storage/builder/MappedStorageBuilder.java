@@ -0,0 +1,31 @@
+package io.github.johnnypixelz.utilizer.file.storage.builder;
+
+import io.github.johnnypixelz.utilizer.file.storage.handler.file.mapped.MappedKey;
+import io.github.johnnypixelz.utilizer.file.storage.handler.file.mapped.MappedSchema;
+import io.github.johnnypixelz.utilizer.file.storage.handler.file.mapped.MappedStorageHandler;
+import io.github.johnnypixelz.utilizer.plugin.Provider;
+
+public class MappedStorageBuilder<K> {
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final MappedKey<K> key;
+    private final MappedSchema schema;
+
+    public MappedStorageBuilder(MappedKey<K> key, MappedSchema schema) {
+        this.key = key;
+        this.schema = schema;
+    }
+
+    public MappedStorageHandler<K> file(String fileName) {
+        return file(fileName, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity how many records to make room for when the file is
+     *                 created, it grows past that when needed
+     */
+    public MappedStorageHandler<K> file(String fileName, int capacity) {
+        return new MappedStorageHandler<>(fileName, key, schema, capacity, Provider.getPlugin().getDataFolder());
+    }
+
+}
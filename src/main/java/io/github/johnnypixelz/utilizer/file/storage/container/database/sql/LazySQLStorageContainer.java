@@ -0,0 +1,293 @@
+package io.github.johnnypixelz.utilizer.file.storage.container.database.sql;
+
+import com.google.gson.Gson;
+import io.github.johnnypixelz.utilizer.cache.LoadingCache;
+import io.github.johnnypixelz.utilizer.cache.LoadingCacheBuilder;
+import io.github.johnnypixelz.utilizer.file.storage.handler.database.sql.SQLStorageHandler;
+import io.github.johnnypixelz.utilizer.plugin.Provider;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A view of an SQL table that only keeps the rows it was asked for.
+ * <p>
+ * Unlike {@link SQLStorageContainer}, nothing is read up front. {@link #get(Object)}
+ * loads a missing row asynchronously, with concurrent requests for the same key
+ * sharing a single query. Loaded rows stay resident within the bounds of the
+ * {@link LoadingCacheBuilder} the container was opened with, except for keys
+ * marked hot, such as those of online players, which stay until unmarked.
+ * <pre>{@code
+ * LazySQLStorageContainer<UUID, PlayerData> players = Storage.map(UUID.class, PlayerData.class)
+ *         .sql(credentials, "players")
+ *         .lazyContainer(LoadingCache.builder().maximumSize(5_000).expireAfterAccess(30, TimeUnit.MINUTES))
+ *         .hotOnlinePlayers(uuid -> uuid);
+ * }</pre>
+ */
+public class LazySQLStorageContainer<K, V> {
+    protected final SQLStorageHandler<K, V> storageHandler;
+    private final Gson gson;
+
+    private final LoadingCache<K, V> resident;
+    private final Map<K, V> hot = new ConcurrentHashMap<>();
+    private final Set<K> hotKeys = ConcurrentHashMap.newKeySet();
+    private final Map<K, CompletableFuture<Optional<V>>> loading = new ConcurrentHashMap<>();
+
+    private volatile SQLSync<K, V> sync;
+    private Listener playerListener;
+
+    public LazySQLStorageContainer(SQLStorageHandler<K, V> storageHandler, LoadingCacheBuilder<? super K, ? super V> residency, Gson gson) {
+        this.storageHandler = storageHandler;
+        this.gson = gson;
+        // Loads go through get(), so that they are async and can be raced against
+        // updates. The cache only bounds what they bring in.
+        this.resident = residency.<K, V>evictionListener((key, value) -> {
+            final SQLSync<K, V> sync = this.sync;
+            if (sync != null) {
+                sync.forget(key);
+            }
+        }).build(key -> null);
+    }
+
+    /**
+     * Returns the value for the key, loading it from the table if it is not
+     * resident. The future completes on an SQL worker thread; see
+     * {@link io.github.johnnypixelz.utilizer.sql.SQLClient#thenSync}.
+     */
+    public CompletableFuture<Optional<V>> get(K key) {
+        final Optional<V> loaded = getIfLoaded(key);
+        if (loaded.isPresent()) {
+            return CompletableFuture.completedFuture(loaded);
+        }
+
+        final CompletableFuture<Optional<V>> future = new CompletableFuture<>();
+        final CompletableFuture<Optional<V>> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        storageHandler.findAsync(key).whenComplete((value, throwable) -> {
+            // An update that landed meanwhile has already completed the future
+            // with a newer value than the one read here.
+            if (!loading.remove(key, future)) return;
+
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+                return;
+            }
+
+            value.ifPresent(present -> store(key, present));
+            future.complete(value);
+        });
+
+        return future;
+    }
+
+    /**
+     * Returns the value only if it is already in memory. Never touches the
+     * table, so it is safe to call on the main thread.
+     */
+    public Optional<V> getIfLoaded(K key) {
+        final V hotValue = hot.get(key);
+        if (hotValue != null) {
+            return Optional.of(hotValue);
+        }
+
+        return resident.getIfPresent(key);
+    }
+
+    public boolean isLoaded(K key) {
+        return hot.containsKey(key) || resident.getIfPresent(key).isPresent();
+    }
+
+    public void update(K key, V value) {
+        storageHandler.insert(key, value);
+        apply(key, value);
+
+        if (sync != null) {
+            sync.publish(key, value);
+        }
+    }
+
+    /**
+     * Keeps the key resident regardless of the residency bounds, loading it
+     * if needed, until {@link #unmarkHot(Object)} is called.
+     */
+    public CompletableFuture<Optional<V>> markHot(K key) {
+        hotKeys.add(key);
+
+        final Optional<V> loaded = resident.getIfPresent(key);
+        if (loaded.isPresent()) {
+            hot.put(key, loaded.get());
+            resident.invalidate(key);
+            return CompletableFuture.completedFuture(loaded);
+        }
+
+        return get(key);
+    }
+
+    /**
+     * Marks every key hot, loading the missing ones with as few queries as
+     * possible. Useful to warm up the keys of everyone online on startup.
+     */
+    public CompletableFuture<Void> markHot(Collection<? extends K> keys) {
+        final List<K> missing = new ArrayList<>();
+        for (K key : keys) {
+            hotKeys.add(key);
+
+            final Optional<V> loaded = resident.getIfPresent(key);
+            if (loaded.isPresent()) {
+                hot.put(key, loaded.get());
+                resident.invalidate(key);
+            } else if (!hot.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return storageHandler.findAllAsync(missing).thenAccept(found -> {
+            found.forEach((key, value) -> {
+                // Keep whatever an update or another load put in meanwhile.
+                if (!isLoaded(key)) {
+                    store(key, value);
+                }
+            });
+        });
+    }
+
+    /**
+     * Hands the key back to the residency bounds.
+     */
+    public void unmarkHot(K key) {
+        hotKeys.remove(key);
+
+        final V value = hot.remove(key);
+        if (value != null) {
+            resident.put(key, value);
+        }
+    }
+
+    /**
+     * Keeps the rows of online players hot. Rows are loaded while the player
+     * is still logging in, off the main thread, so they are resident by the
+     * time the player joins. A login refused after that, which no quit will
+     * follow, hands the row back to the residency bounds.
+     *
+     * @param keyFunction Maps a player's unique id to their key in this table
+     * @return This object, for chaining
+     */
+    public LazySQLStorageContainer<K, V> hotOnlinePlayers(Function<UUID, K> keyFunction) {
+        if (playerListener != null) return this;
+
+        playerListener = new Listener() {
+            @EventHandler(priority = EventPriority.MONITOR)
+            public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+                if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+
+                markHot(keyFunction.apply(event.getUniqueId())).exceptionally(throwable -> Optional.empty()).join();
+            }
+
+            @EventHandler(priority = EventPriority.MONITOR)
+            public void onLogin(PlayerLoginEvent event) {
+                if (event.getResult() == PlayerLoginEvent.Result.ALLOWED) return;
+
+                unmarkHot(keyFunction.apply(event.getPlayer().getUniqueId()));
+            }
+
+            @EventHandler(priority = EventPriority.MONITOR)
+            public void onQuit(PlayerQuitEvent event) {
+                unmarkHot(keyFunction.apply(event.getPlayer().getUniqueId()));
+            }
+        };
+        Bukkit.getPluginManager().registerEvents(playerListener, Provider.getPlugin());
+
+        final List<K> online = new ArrayList<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            online.add(keyFunction.apply(player.getUniqueId()));
+        }
+        markHot(online);
+
+        return this;
+    }
+
+    public LazySQLStorageContainer<K, V> setupSync() {
+        return setupSync(null);
+    }
+
+    public LazySQLStorageContainer<K, V> setupSync(long tickInterval) {
+        return setupSync(null, tickInterval);
+    }
+
+    public LazySQLStorageContainer<K, V> setupSync(BiConsumer<K, V> callback) {
+        return setupSync(callback, 20);
+    }
+
+    /**
+     * Applies updates from other servers to the keys resident here. Snapshots
+     * of keys that are not loaded are passed to the callback but not kept,
+     * and patches to them are dropped, since there is nothing to apply them
+     * to. Evicted keys stop being tracked.
+     */
+    public LazySQLStorageContainer<K, V> setupSync(BiConsumer<K, V> callback, long tickInterval) {
+        if (sync != null) return this;
+
+        sync = new SQLSync<>(storageHandler, gson, tickInterval, (key, value) -> {
+            if (isLoaded(key) || loading.containsKey(key)) {
+                apply(key, value);
+            }
+
+            if (callback != null) {
+                callback.accept(key, value);
+            }
+        }, key -> isLoaded(key) || loading.containsKey(key));
+
+        return this;
+    }
+
+    public int getLoadedCount() {
+        return hot.size() + resident.size();
+    }
+
+    private void apply(K key, V value) {
+        if (value == null) {
+            hot.remove(key);
+            resident.invalidate(key);
+        } else {
+            store(key, value);
+        }
+
+        final CompletableFuture<Optional<V>> inFlight = loading.remove(key);
+        if (inFlight != null) {
+            inFlight.complete(Optional.ofNullable(value));
+        }
+    }
+
+    private void store(K key, V value) {
+        if (hotKeys.contains(key)) {
+            hot.put(key, value);
+        } else {
+            resident.put(key, value);
+        }
+    }
+
+}
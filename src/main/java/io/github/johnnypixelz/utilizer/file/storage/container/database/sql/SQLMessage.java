@@ -0,0 +1,83 @@
+package io.github.johnnypixelz.utilizer.file.storage.container.database.sql;
+
+import com.google.gson.JsonElement;
+
+/**
+ * A change to a single key, as sent to the other servers syncing the table.
+ * Only the members used by the message's {@link Type} are set.
+ */
+class SQLMessage<K> {
+    private final Type type;
+    // The poller id of the server that sent it, which settles ties between
+    // servers that wrote the same version at once.
+    private final String origin;
+    private final K key;
+    private final long version;
+    private final long base;
+    private final JsonElement data;
+
+    private SQLMessage(Type type, String origin, K key, long version, long base, JsonElement data) {
+        this.type = type;
+        this.origin = origin;
+        this.key = key;
+        this.version = version;
+        this.base = base;
+        this.data = data;
+    }
+
+    /**
+     * The whole value at a version, or a deletion if the value is null.
+     */
+    static <K> SQLMessage<K> snapshot(String origin, K key, long version, JsonElement value) {
+        return new SQLMessage<>(Type.SNAPSHOT, origin, key, version, 0, value);
+    }
+
+    /**
+     * A merge patch turning the value at {@code base} into the one at {@code version}.
+     */
+    static <K> SQLMessage<K> patch(String origin, K key, long version, long base, JsonElement patch) {
+        return new SQLMessage<>(Type.PATCH, origin, key, version, base, patch);
+    }
+
+    /**
+     * Asks whoever wrote the latest version of the key to send a snapshot.
+     */
+    static <K> SQLMessage<K> resync(String origin, K key, long version) {
+        return new SQLMessage<>(Type.RESYNC, origin, key, version, 0, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the sender's poller id, empty for messages from versions that
+     * did not send one
+     */
+    public String getOrigin() {
+        return origin == null ? "" : origin;
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getBase() {
+        return base;
+    }
+
+    public JsonElement getData() {
+        return data;
+    }
+
+    enum Type {
+        SNAPSHOT,
+        PATCH,
+        RESYNC
+    }
+
+}
@@ -1,13 +1,9 @@
 package io.github.johnnypixelz.utilizer.file.storage.container.database.sql;
 
 import com.google.gson.Gson;
-import com.google.gson.internal.$Gson$Types;
 import io.github.johnnypixelz.utilizer.file.storage.container.database.DatabaseStorageContainer;
 import io.github.johnnypixelz.utilizer.file.storage.handler.database.sql.SQLStorageHandler;
-import io.github.johnnypixelz.utilizer.sql.SQL;
-import io.github.johnnypixelz.utilizer.sql.SQLPoller;
 
-import java.lang.reflect.ParameterizedType;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Supplier;
@@ -15,7 +11,7 @@ import java.util.function.Supplier;
 public class SQLStorageContainer<K, V> extends DatabaseStorageContainer<Map<K, V>> {
     protected final SQLStorageHandler<K, V> storageHandler;
     private final Gson gson;
-    private SQLPoller sqlPoller;
+    private SQLSync<K, V> sync;
 
     public SQLStorageContainer(SQLStorageHandler<K, V> storageHandler, Supplier<Map<K, V>> supplier, Gson gson) {
         super(supplier);
@@ -34,10 +30,8 @@ public class SQLStorageContainer<K, V> extends DatabaseStorageContainer<Map<K, V
             get().put(key, value);
         }
 
-        if (sqlPoller != null) {
-            final SQLMessage<K, V> message = new SQLMessage<>(key, value);
-            final String payload = gson.toJson(message);
-            sqlPoller.sendMessage(payload);
+        if (sync != null) {
+            sync.publish(key, value);
         }
     }
 
@@ -53,44 +47,27 @@ public class SQLStorageContainer<K, V> extends DatabaseStorageContainer<Map<K, V
         return setupSync(callback, 20);
     }
 
+    /**
+     * Sends every update to the other servers syncing this table, and applies
+     * theirs here. Updates travel as patches against the previous version of
+     * the value, see {@link SQLSync}.
+     */
     public SQLStorageContainer<K, V> setupSync(BiConsumer<K, V> callback, long tickInterval) {
-        if (sqlPoller != null) return this;
-
-        sqlPoller = SQL.newPoller(storageHandler.getCredentials(), storageHandler.getTable() + "_messages", (int) tickInterval);
-        sqlPoller.getEventEmitter().listen(payload -> {
-            final ParameterizedType type = $Gson$Types.newParameterizedTypeWithOwner(null, SQLMessage.class, storageHandler.getKeyType(), storageHandler.getValueType());
-            final SQLMessage<K, V> sqlMessage = gson.fromJson(payload, type);
-            if (sqlMessage.value == null) {
-                get().remove(sqlMessage.key);
+        if (sync != null) return this;
+
+        sync = new SQLSync<>(storageHandler, gson, tickInterval, (key, value) -> {
+            if (value == null) {
+                get().remove(key);
             } else {
-                get().put(sqlMessage.key, sqlMessage.value);
+                get().put(key, value);
             }
 
             if (callback != null) {
-                callback.accept(sqlMessage.key, sqlMessage.value);
+                callback.accept(key, value);
             }
-        });
+        }, key -> true);
 
         return this;
     }
 
-    private static class SQLMessage<K, V> {
-        private final K key;
-        private final V value;
-
-        public SQLMessage(K key, V value) {
-            this.key = key;
-            this.value = value;
-        }
-
-        public K getKey() {
-            return key;
-        }
-
-        public V getValue() {
-            return value;
-        }
-
-    }
-
 }
@@ -0,0 +1,233 @@
+package io.github.johnnypixelz.utilizer.file.storage.container.database.sql;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.internal.$Gson$Types;
+import io.github.johnnypixelz.utilizer.file.storage.handler.database.sql.SQLStorageHandler;
+import io.github.johnnypixelz.utilizer.gson.JsonMergePatch;
+import io.github.johnnypixelz.utilizer.plugin.Logs;
+import io.github.johnnypixelz.utilizer.sql.SQL;
+import io.github.johnnypixelz.utilizer.sql.SQLPoller;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the values of a storage container in step across servers.
+ * <p>
+ * Every key carries a version that each change bumps by one. A change is sent
+ * as a JSON merge patch against the previous version, so a small edit to a
+ * large value costs a small message. A server that gets a patch for a version
+ * it does not have asks for a snapshot instead, which the server that wrote
+ * the latest version answers. A snapshot is also sent on a key's first change,
+ * and every {@link #SNAPSHOT_INTERVAL} versions, so a missed snapshot does not
+ * leave a key out of date for long.
+ * <p>
+ * Two servers that write the same version of a key at once each see the
+ * other's message as conflicting. The one with the greater poller id keeps its
+ * version and answers resyncs for it, the other takes it over.
+ * <p>
+ * State is only kept for keys the container holds. Changes to other keys are
+ * still passed on as snapshots, but patches to them are dropped.
+ * <p>
+ * These messages go through their own {@code <table>_sync} table. Servers
+ * that predate them read {@code <table>_messages}, and would take a patch for
+ * a deletion. Messages old servers still write there are read and applied as
+ * snapshots, so servers can be upgraded one at a time, although the old ones
+ * stop seeing the changes of upgraded ones until they are upgraded too.
+ */
+final class SQLSync<K, V> {
+    private static final int SNAPSHOT_INTERVAL = 32;
+
+    private final Gson gson;
+    private final Class<V> valueType;
+    private final Type messageType;
+    private final BiConsumer<K, V> receiver;
+    private final Predicate<K> tracked;
+    private final Type keyType;
+    private final SQLPoller sqlPoller;
+    private final SQLPoller legacyPoller;
+    private final String origin;
+
+    // Guarded by this.
+    private final Map<K, KeyState> states = new HashMap<>();
+
+    /**
+     * @param receiver Called with every change received from another server,
+     *                 with a null value for deletions
+     * @param tracked  Whether the container holds the key, and so needs its
+     *                 state to follow patches
+     */
+    SQLSync(SQLStorageHandler<K, V> storageHandler, Gson gson, long tickInterval, BiConsumer<K, V> receiver, Predicate<K> tracked) {
+        this.gson = gson;
+        this.valueType = storageHandler.getValueType();
+        this.keyType = storageHandler.getKeyType();
+        this.messageType = $Gson$Types.newParameterizedTypeWithOwner(null, SQLMessage.class, keyType);
+        this.receiver = receiver;
+        this.tracked = tracked;
+
+        this.sqlPoller = SQL.newPoller(storageHandler.getCredentials(), storageHandler.getTable() + "_sync", (int) tickInterval);
+        this.origin = sqlPoller.getPollerId().toString();
+        this.sqlPoller.getEventEmitter().listen(this::receive);
+
+        this.legacyPoller = SQL.newPoller(storageHandler.getCredentials(), storageHandler.getTable() + "_messages", (int) tickInterval);
+        this.legacyPoller.getEventEmitter().listen(this::receiveLegacy);
+    }
+
+    /**
+     * Drops the state of a key the container no longer holds.
+     */
+    synchronized void forget(K key) {
+        states.remove(key);
+    }
+
+    /**
+     * Sends a change made on this server.
+     *
+     * @param value The new value, or null if the key was deleted
+     */
+    void publish(K key, V value) {
+        final SQLMessage<K> message;
+
+        synchronized (this) {
+            final KeyState state = states.get(key);
+            final long version = state == null ? 1 : state.version + 1;
+
+            if (value == null) {
+                states.remove(key);
+                message = SQLMessage.snapshot(origin, key, version, null);
+            } else {
+                final JsonElement json = gson.toJsonTree(value, valueType);
+
+                if (state == null || state.json == null || version % SNAPSHOT_INTERVAL == 0) {
+                    message = SQLMessage.snapshot(origin, key, version, json);
+                } else {
+                    final JsonElement patch = JsonMergePatch.diff(state.json, json);
+                    if (JsonMergePatch.isEmpty(patch)) return;
+
+                    message = SQLMessage.patch(origin, key, version, state.version, patch);
+                }
+
+                states.put(key, new KeyState(version, json, origin));
+            }
+        }
+
+        sqlPoller.sendMessage(gson.toJson(message, messageType));
+    }
+
+    private void receive(String payload) {
+        final SQLMessage<K> message = gson.fromJson(payload, messageType);
+        if (message == null || message.getType() == null || message.getKey() == null) {
+            Logs.warn("Ignoring a sync message in an unknown format: " + payload);
+            return;
+        }
+
+        final K key = message.getKey();
+        // Outside the lock, it asks the container.
+        final boolean tracking = message.getType() == SQLMessage.Type.RESYNC || tracked.test(key);
+
+        JsonElement received = null;
+        boolean changed = false;
+        SQLMessage<K> reply = null;
+
+        synchronized (this) {
+            final KeyState state = states.get(key);
+
+            // Written at the same time as the version held here, and losing the tie.
+            if (message.getType() != SQLMessage.Type.RESYNC && state != null && state.json != null
+                    && state.version == message.getVersion() && state.origin.compareTo(message.getOrigin()) > 0) {
+                return;
+            }
+
+            switch (message.getType()) {
+                case SNAPSHOT -> {
+                    // Messages reach every server in the same order, so the
+                    // latest snapshot wins even over a newer local version.
+                    received = message.getData() == null || message.getData().isJsonNull() ? null : message.getData();
+                    if (received == null || !tracking) {
+                        states.remove(key);
+                    } else {
+                        states.put(key, new KeyState(message.getVersion(), received, message.getOrigin()));
+                    }
+                    changed = true;
+                }
+                case PATCH -> {
+                    if (!tracking) {
+                        states.remove(key);
+                    } else if (state != null && state.json != null && state.version == message.getBase()) {
+                        received = JsonMergePatch.apply(state.json, message.getData());
+                        states.put(key, new KeyState(message.getVersion(), received, message.getOrigin()));
+                        changed = true;
+                    } else if (state == null || state.json != null) {
+                        // Missed a version. Patches are ignored until a snapshot arrives.
+                        states.put(key, new KeyState(message.getVersion(), null, message.getOrigin()));
+                        reply = SQLMessage.resync(origin, key, message.getVersion());
+                    }
+                }
+                case RESYNC -> {
+                    if (state != null && state.json != null && state.origin.equals(origin)) {
+                        reply = SQLMessage.snapshot(origin, key, state.version, state.json);
+                    }
+                }
+            }
+        }
+
+        if (reply != null) {
+            sqlPoller.sendMessage(gson.toJson(reply, messageType));
+        }
+
+        if (changed) {
+            receiver.accept(key, received == null ? null : gson.fromJson(received, valueType));
+        }
+    }
+
+    /**
+     * Applies a {@code {key, value}} message written by a server that predates
+     * versions. Whatever version was held for the key no longer says anything
+     * about its value, so it is dropped, and the next local change is sent as
+     * a snapshot.
+     */
+    private void receiveLegacy(String payload) {
+        final K key;
+        final JsonElement value;
+        try {
+            final JsonObject object = JsonParser.parseString(payload).getAsJsonObject();
+            key = gson.fromJson(object.get("key"), keyType);
+            value = object.get("value");
+        } catch (JsonParseException | IllegalStateException exception) {
+            Logs.warn("Ignoring a sync message in an unknown format: " + payload);
+            return;
+        }
+
+        if (key == null) return;
+
+        synchronized (this) {
+            states.remove(key);
+        }
+
+        receiver.accept(key, value == null || value.isJsonNull() ? null : gson.fromJson(value, valueType));
+    }
+
+    private static final class KeyState {
+        private final long version;
+        // Null while waiting for a snapshot.
+        private final JsonElement json;
+        // The poller id of the server that wrote the version, which answers
+        // resyncs for it.
+        private final String origin;
+
+        private KeyState(long version, JsonElement json, String origin) {
+            this.version = version;
+            this.json = json;
+            this.origin = origin;
+        }
+
+    }
+
+}
@@ -2,13 +2,43 @@ package io.github.johnnypixelz.utilizer.file.storage.container.file;
 
 import io.github.johnnypixelz.utilizer.file.storage.container.StorageContainer;
 import io.github.johnnypixelz.utilizer.file.storage.handler.file.FileStorageHandler;
+import io.github.johnnypixelz.utilizer.file.storage.handler.file.PreparedSave;
 import io.github.johnnypixelz.utilizer.tasks.Tasks;
 import org.bukkit.scheduler.BukkitTask;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
+/**
+ * Holds the data of a file in memory.
+ * <p>
+ * The container counts changes, so {@link #saveAsync()} and {@link #autoSave(long)}
+ * can skip writing when nothing changed. {@link #set(Object)} counts as a change,
+ * while changes made to the value in place have to be reported with
+ * {@link #markDirty()}. {@link #save()} always writes, and so does every
+ * {@value #FULL_SAVE_EVERY}th auto-save, so changes that were never reported
+ * still reach the file.
+ */
 public class FileStorageContainer<T> extends StorageContainer<T> {
+    /**
+     * How often an auto-save writes whether or not anything was reported
+     * changed.
+     */
+    public static final int FULL_SAVE_EVERY = 10;
+
     private final FileStorageHandler<T> storageHandler;
+    private final AtomicInteger autoSaves = new AtomicInteger();
+
+    private final AtomicLong version = new AtomicLong();
+    // The version the file holds. Only moved while holding writeLock.
+    private volatile long savedVersion = 0;
+
+    // Held for the whole of a write, so writes never overlap or land out of order.
+    private final Object writeLock = new Object();
+    // Guarded by this.
+    private PendingSave pendingSave = null;
+    private boolean writing = false;
 
     public FileStorageContainer(FileStorageHandler<T> storageHandler, Supplier<T> supplier) {
         super(supplier);
@@ -23,20 +53,157 @@ public class FileStorageContainer<T> extends StorageContainer<T> {
 
     public void set(T value) {
         this.value.set(value);
+        markDirty();
+    }
+
+    /**
+     * Reports a change made to the value in place, so the next
+     * {@link #saveAsync()} writes it.
+     */
+    public void markDirty() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return whether anything changed since the last successful save
+     */
+    public boolean isDirty() {
+        return version.get() != savedVersion;
     }
 
     public FileStorageContainer<T> load() {
         value.set(storageHandler.load(supplier));
+        savedVersion = version.get();
         return this;
     }
 
+    /**
+     * Writes the value right away, on the calling thread, whether it changed
+     * or not, streaming it into the file without copying it first. Waits for
+     * a background save that is already writing.
+     */
     public FileStorageContainer<T> save() {
-        storageHandler.save(value.get());
+        final long saving = version.get();
+
+        synchronized (writeLock) {
+            // Older than what is about to be written.
+            discardPending();
+
+            if (storageHandler.trySave(value.get())) {
+                savedVersion = Math.max(savedVersion, saving);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Saves the value if it changed since the last save. The value is copied
+     * on the calling thread, which should be the one that changes it, and
+     * written on a background thread. The copy is whatever the handler's
+     * snapshot takes, which for JSON files is a tree of the whole document,
+     * so it still costs the calling thread about as much as serializing. Saves made while another is writing
+     * are merged, so only the latest of them is written.
+     */
+    public FileStorageContainer<T> saveAsync() {
+        final long saving = version.get();
+        if (saving == savedVersion) return this;
+
+        synchronized (this) {
+            if (pendingSave != null && pendingSave.version == saving) return this;
+        }
+
+        // Before the new snapshot is taken, so that it covers whatever the
+        // discarded one would have written.
+        discardPending();
+        final PreparedSave save = storageHandler.prepareSave(value.get());
+
+        synchronized (this) {
+            pendingSave = new PendingSave(saving, save);
+            if (writing) return this;
+            writing = true;
+        }
+
+        Tasks.async().run(this::writePending);
         return this;
     }
 
+    /**
+     * Saves the value every so many ticks, if it changed, without writing on
+     * the main thread.
+     *
+     * @see #autoSaveAsync()
+     */
     public BukkitTask autoSave(long ticks) {
-        return Tasks.sync().timer(this::save, ticks);
+        return Tasks.sync().timer(this::autoSaveAsync, ticks);
+    }
+
+    /**
+     * One run of an auto-save. Like {@link #saveAsync()}, but every
+     * {@value #FULL_SAVE_EVERY}th run writes even when nothing was reported,
+     * so a change made in place without {@link #markDirty()} is not lost if
+     * the server goes down before the next {@link #save()}. Containers whose
+     * handler writes per key opt out, see {@link #hasPeriodicFullSave()}.
+     */
+    public FileStorageContainer<T> autoSaveAsync() {
+        if (hasPeriodicFullSave() && autoSaves.incrementAndGet() % FULL_SAVE_EVERY == 0) {
+            // Not markDirty(), which subclasses widen to everything the handler tracks.
+            version.incrementAndGet();
+        }
+
+        return saveAsync();
+    }
+
+    /**
+     * @return whether every {@value #FULL_SAVE_EVERY}th auto-save writes
+     * whether or not anything was reported
+     */
+    protected boolean hasPeriodicFullSave() {
+        return true;
+    }
+
+    private void writePending() {
+        while (true) {
+            synchronized (writeLock) {
+                final PendingSave next;
+                synchronized (this) {
+                    next = pendingSave;
+                    pendingSave = null;
+
+                    if (next == null) {
+                        writing = false;
+                        return;
+                    }
+                }
+
+                if (next.save.write()) {
+                    savedVersion = Math.max(savedVersion, next.version);
+                }
+            }
+        }
+    }
+
+    private void discardPending() {
+        final PendingSave discarded;
+        synchronized (this) {
+            discarded = pendingSave;
+            pendingSave = null;
+        }
+
+        if (discarded != null) {
+            discarded.save.discard();
+        }
+    }
+
+    private static final class PendingSave {
+        private final long version;
+        private final PreparedSave save;
+
+        private PendingSave(long version, PreparedSave save) {
+            this.version = version;
+            this.save = save;
+        }
+
     }
 
 }
@@ -0,0 +1,63 @@
+package io.github.johnnypixelz.utilizer.file.storage.container.file;
+
+import io.github.johnnypixelz.utilizer.file.storage.handler.file.MapFileStorageHandler;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A {@link FileStorageContainer} for maps stored by a
+ * {@link MapFileStorageHandler}. Changes reported per key only write that key;
+ * {@link #markDirty()} and {@link #set(Object)} still write the whole map.
+ * Auto-saves only ever write what was reported, the periodic full save would
+ * rewrite every file these handlers exist to leave alone.
+ */
+public class MapFileStorageContainer<K, V> extends FileStorageContainer<Map<K, V>> {
+    private final MapFileStorageHandler<K, V> storageHandler;
+
+    public MapFileStorageContainer(MapFileStorageHandler<K, V> storageHandler, Supplier<Map<K, V>> supplier) {
+        super(storageHandler, supplier);
+
+        this.storageHandler = storageHandler;
+    }
+
+    @Override
+    public MapFileStorageHandler<K, V> getStorageHandler() {
+        return storageHandler;
+    }
+
+    @Override
+    protected boolean hasPeriodicFullSave() {
+        return false;
+    }
+
+    /**
+     * Reports a change to a single key, whether it was added, replaced,
+     * removed or changed in place.
+     */
+    public void markDirty(K key) {
+        storageHandler.markDirty(key);
+        super.markDirty();
+    }
+
+    @Override
+    public void markDirty() {
+        storageHandler.markAllDirty();
+        super.markDirty();
+    }
+
+    public V put(K key, V value) {
+        final V previous = get().put(key, value);
+        markDirty(key);
+        return previous;
+    }
+
+    public V remove(K key) {
+        final V previous = get().remove(key);
+        if (previous != null) {
+            markDirty(key);
+        }
+        return previous;
+    }
+
+}
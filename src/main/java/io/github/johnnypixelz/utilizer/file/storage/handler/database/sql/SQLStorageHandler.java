@@ -1,31 +1,504 @@
 package io.github.johnnypixelz.utilizer.file.storage.handler.database.sql;
 
+import com.google.common.base.Preconditions;
 import com.google.gson.Gson;
+import io.github.johnnypixelz.utilizer.cache.LoadingCacheBuilder;
+import io.github.johnnypixelz.utilizer.file.storage.container.database.sql.LazySQLStorageContainer;
 import io.github.johnnypixelz.utilizer.file.storage.container.database.sql.SQLStorageContainer;
 import io.github.johnnypixelz.utilizer.file.storage.handler.database.DatabaseStorageHandler;
+import io.github.johnnypixelz.utilizer.file.storage.handler.database.sql.codec.ValueCodec;
+import io.github.johnnypixelz.utilizer.plugin.Logs;
 import io.github.johnnypixelz.utilizer.sql.DatabaseCredentials;
 import io.github.johnnypixelz.utilizer.sql.SQLClient;
+import io.github.johnnypixelz.utilizer.sql.dialects.SQLDialect;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 public abstract class SQLStorageHandler<K, V> extends DatabaseStorageHandler<K, V> {
+    private static final List<String> KEY_COLUMNS = List.of("id");
+    private static final List<String> VALUE_COLUMNS = List.of("data");
+    // Rows per multi-row statement. Past a few hundred rows the gains flatten out.
+    private static final int BATCH_ROWS = 500;
+    private static final int LOAD_FETCH_SIZE = 10_000;
+    // Rows handed to a decoding task at once, enough to dwarf the task overhead.
+    private static final int DECODE_CHUNK_ROWS = 1_000;
+    private static final int LOG_THRESHOLD_ROWS = 10_000;
+
     protected final String table;
     protected final SQLClient sqlClient;
+    protected final SQLDialect dialect;
     protected final Class<K> keyType;
     protected final Class<V> valueType;
     protected final Gson gson;
+    private volatile boolean initializedTable = false;
+    private WriteBehindQueue writeBehind = null;
+    // Statements still running per key, so that a find never overtakes a
+    // write made before it and writes to a key land in order.
+    private final ConcurrentHashMap<String, CompletableFuture<?>> writing = new ConcurrentHashMap<>();
+    private ValueCodec codec = null;
 
     public SQLStorageHandler(DatabaseCredentials credentials, String table, Gson gson, Class<K> keyType, Class<V> valueType) {
         super(credentials);
         this.table = table;
         this.sqlClient = new SQLClient(credentials);
+        this.dialect = credentials.getSqlDriver().getDialect();
         this.gson = gson;
         this.keyType = keyType;
         this.valueType = valueType;
     }
 
-    public abstract void insert(K key, V value);
+    /**
+     * Turns a key into the string stored in the id column.
+     */
+    protected abstract String serializeKey(K key);
+
+    /**
+     * Turns the string stored in the id column back into a key.
+     */
+    protected abstract K deserializeKey(String id);
+
+    /**
+     * Reads the whole table. Rows are fetched {@link #LOAD_FETCH_SIZE} at a
+     * time on the calling thread while the common ForkJoin pool decodes the
+     * values of the rows read so far, since parsing, not the query, is what
+     * takes long on large tables.
+     */
+    @Override
+    public Optional<Map<K, V>> load() {
+        checkTableInitialization();
+
+        final long start = System.nanoTime();
+        final Map<K, V> dataMap = new ConcurrentHashMap<>();
+        final List<ForkJoinTask<?>> decoding = new ArrayList<>();
+        int rows = 0;
+
+        try (Connection connection = sqlClient.getConnection()) {
+            final boolean autoCommit = connection.getAutoCommit();
+            // Most drivers only honor the fetch size outside of auto-commit.
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement preparedStatement = connection.prepareStatement("""
+                    SELECT id, data
+                    FROM %s
+                    """.formatted(table), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                dialect.configureStreaming(connection, preparedStatement, LOAD_FETCH_SIZE);
+
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    List<Object> chunk = new ArrayList<>(DECODE_CHUNK_ROWS * 2);
+                    while (resultSet.next()) {
+                        chunk.add(resultSet.getString("id"));
+                        chunk.add(readData(resultSet));
+                        rows++;
+
+                        if (chunk.size() == DECODE_CHUNK_ROWS * 2) {
+                            decoding.add(decodeAsync(chunk, dataMap));
+                            chunk = new ArrayList<>(DECODE_CHUNK_ROWS * 2);
+                        }
+                    }
+
+                    if (!chunk.isEmpty()) {
+                        decoding.add(decodeAsync(chunk, dataMap));
+                    }
+                }
+
+                connection.commit();
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+            decoding.forEach(task -> task.cancel(false));
+            return Optional.empty();
+        }
+
+        final long readNanos = System.nanoTime() - start;
+        decoding.forEach(ForkJoinTask::join);
+        final long totalNanos = System.nanoTime() - start;
+
+        if (rows >= LOG_THRESHOLD_ROWS) {
+            final long totalMillis = TimeUnit.NANOSECONDS.toMillis(totalNanos);
+            Logs.info("Loaded %d rows from %s in %d ms (%d ms reading, %d rows/s decoded on %d threads)".formatted(
+                    rows, table, totalMillis, TimeUnit.NANOSECONDS.toMillis(readNanos),
+                    rows * 1_000L / Math.max(1, totalMillis), ForkJoinPool.getCommonPoolParallelism()));
+        }
+
+        return Optional.of(dataMap);
+    }
+
+    private ForkJoinTask<?> decodeAsync(List<Object> chunk, Map<K, V> dataMap) {
+        return ForkJoinPool.commonPool().submit(() -> {
+            for (int i = 0; i < chunk.size(); i += 2) {
+                final K parsedKey = deserializeKey((String) chunk.get(i));
+                final V parsedData = decode(chunk.get(i + 1));
+                if (parsedData != null) {
+                    dataMap.put(parsedKey, parsedData);
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads the value stored under a single key. A value still waiting in
+     * the write-behind queue is returned as is, and otherwise the query runs
+     * after any write to the key that is still in flight.
+     */
+    public CompletableFuture<Optional<V>> findAsync(K key) {
+        checkTableInitialization();
+
+        final String keyString = serializeKey(key);
+        if (writeBehind != null) {
+            final Optional<Object> queued = writeBehind.peek(keyString);
+            if (queued != null) {
+                return CompletableFuture.completedFuture(queued.map(this::decode));
+            }
+        }
+
+        final Supplier<CompletableFuture<Optional<V>>> query = () -> sqlClient.queryAsync("""
+                SELECT data
+                FROM %s
+                WHERE id = ?
+                """.formatted(table), preparedStatement -> {
+            preparedStatement.setString(1, keyString);
+        }, resultSet -> resultSet.next() ? decode(readData(resultSet)) : null);
+
+        final CompletableFuture<?> pending = writing.get(keyString);
+        return pending == null ? query.get() : pending.handle((ignored, throwable) -> null).thenCompose(ignored -> query.get());
+    }
+
+    /**
+     * Loads the values stored under the given keys, with one {@code IN (...)}
+     * query per {@link #BATCH_ROWS} keys. Keys without a row are left out.
+     * Like {@link #findAsync(Object)}, queued values win over the table and
+     * queries wait for writes in flight.
+     */
+    public CompletableFuture<Map<K, V>> findAllAsync(Collection<? extends K> keys) {
+        checkTableInitialization();
+
+        final Map<K, V> queued = new HashMap<>();
+        final List<String> keyStrings = new ArrayList<>(keys.size());
+        final List<CompletableFuture<?>> pending = new ArrayList<>();
+        for (K key : keys) {
+            final String keyString = serializeKey(key);
+
+            final Optional<Object> data = writeBehind == null ? null : writeBehind.peek(keyString);
+            if (data != null) {
+                data.ifPresent(present -> queued.put(key, decode(present)));
+                continue;
+            }
+
+            keyStrings.add(keyString);
+            final CompletableFuture<?> write = writing.get(keyString);
+            if (write != null) {
+                pending.add(write.handle((ignored, throwable) -> null));
+            }
+        }
+
+        if (keyStrings.isEmpty()) {
+            return CompletableFuture.completedFuture(queued);
+        }
+
+        final CompletableFuture<Map<K, V>> query = pending.isEmpty()
+                ? queryAll(keyStrings)
+                : CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).thenCompose(ignored -> queryAll(keyStrings));
+
+        return query.thenApply(found -> {
+            found.putAll(queued);
+            return found;
+        });
+    }
+
+    private CompletableFuture<Map<K, V>> queryAll(List<String> keyStrings) {
+
+        final int maxRows = dialect.getMaxRows(1, BATCH_ROWS);
+        final List<CompletableFuture<Optional<Map<K, V>>>> chunks = new ArrayList<>();
+        for (int start = 0; start < keyStrings.size(); start += maxRows) {
+            final List<String> chunk = keyStrings.subList(start, Math.min(keyStrings.size(), start + maxRows));
+
+            chunks.add(sqlClient.queryAsync("""
+                    SELECT id, data
+                    FROM %s
+                    WHERE id IN %s
+                    """.formatted(table, SQLDialect.placeholders(chunk.size(), 1)), preparedStatement -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    preparedStatement.setString(i + 1, chunk.get(i));
+                }
+            }, this::readRows));
+        }
+
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            final Map<K, V> found = new HashMap<>();
+            for (CompletableFuture<Optional<Map<K, V>>> chunk : chunks) {
+                chunk.join().ifPresent(found::putAll);
+            }
+
+            return found;
+        });
+    }
+
+    private Map<K, V> readRows(ResultSet resultSet) throws SQLException {
+        final Map<K, V> dataMap = new HashMap<>();
+        while (resultSet.next()) {
+            final K parsedKey = deserializeKey(resultSet.getString("id"));
+            final V parsedData = decode(readData(resultSet));
+            dataMap.put(parsedKey, parsedData);
+        }
+
+        return dataMap;
+    }
+
+    protected void checkTableInitialization() {
+        if (initializedTable) return;
+
+        final String dataType = codec == null ? dialect.getLargeTextType() : dialect.getLargeBinaryType();
+        sqlClient.execute("""
+                CREATE TABLE IF NOT EXISTS %s (
+                    id VARCHAR(256) NOT NULL,
+                    data %s NOT NULL,
+                    PRIMARY KEY (id)
+                );
+                """.formatted(table, dataType));
+
+        // Tables made in text mode keep their JSON rows, which read back as
+        // legacy JSON once the column holds their bytes.
+        if (codec != null) {
+            final String alter = dialect.alterColumnType(table, "data", dataType, true);
+            if (alter != null && isTextType(sqlClient.getColumnType(table, "data").orElse(Types.OTHER))) {
+                sqlClient.execute(alter);
+            }
+        }
+
+        initializedTable = true;
+    }
+
+    /**
+     * Stores values in a binary column, encoded by the given codec, instead of
+     * as JSON text. Existing rows, JSON text or written by another codec, are
+     * still read, and take the new encoding the next time they are written.
+     * Must be set before the handler is first used.
+     *
+     * @param codec One of {@link ValueCodec#JSON}, {@link ValueCodec#BINARY}
+     *              or {@link ValueCodec#DEFLATE}
+     * @return This object, for chaining
+     */
+    public SQLStorageHandler<K, V> codec(ValueCodec codec) {
+        Preconditions.checkState(!initializedTable, "codec must be set before the table is used");
+
+        this.codec = Objects.requireNonNull(codec, "codec");
+        return this;
+    }
+
+    private Object encode(V value) {
+        if (codec == null) {
+            return gson.toJson(value, valueType);
+        }
+
+        return codec.write(gson.toJsonTree(value, valueType));
+    }
+
+    private V decode(Object data) {
+        if (data instanceof byte[] bytes) {
+            return gson.fromJson(ValueCodec.read(bytes), valueType);
+        }
+
+        return gson.fromJson((String) data, valueType);
+    }
+
+    private Object readData(ResultSet resultSet) throws SQLException {
+        return codec == null ? resultSet.getString("data") : resultSet.getBytes("data");
+    }
+
+    private static void bind(PreparedStatement preparedStatement, int index, Object data) throws SQLException {
+        if (data instanceof byte[] bytes) {
+            preparedStatement.setBytes(index, bytes);
+        } else {
+            preparedStatement.setString(index, (String) data);
+        }
+    }
+
+    private static boolean isTextType(int type) {
+        return switch (type) {
+            case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR, Types.CLOB,
+                    Types.NCHAR, Types.NVARCHAR, Types.LONGNVARCHAR, Types.NCLOB -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Stores the value, or deletes the key if the value is null. Without
+     * write-behind, every call is its own async statement.
+     */
+    public void insert(K key, V value) {
+        final String keyString = serializeKey(key);
+
+        if (writeBehind != null) {
+            // Encoded now, as the queue holds a snapshot of the value.
+            writeBehind.enqueue(keyString, value == null ? null : encode(value));
+            return;
+        }
+
+        // Encoding and creating the table are left to the executor, off the calling thread.
+        writeInOrder(keyString, () -> sqlClient.callAsync(() -> {
+            checkTableInitialization();
+
+            final String statement = value == null
+                    ? dialect.deleteIn(table, "id", 1)
+                    : dialect.upsert(table, KEY_COLUMNS, VALUE_COLUMNS, 1);
+            try (Connection connection = sqlClient.getConnection(); PreparedStatement preparedStatement = connection.prepareStatement(statement)) {
+                preparedStatement.setString(1, keyString);
+                if (value != null) {
+                    bind(preparedStatement, 2, encode(value));
+                }
+                preparedStatement.execute();
+            }
+
+            return null;
+        }));
+    }
+
+    /**
+     * Runs the write once the previous write to the key is done, since the
+     * client's executor would otherwise run them in any order.
+     */
+    private void writeInOrder(String keyString, Supplier<CompletableFuture<Void>> write) {
+        // Claim the key's turn first and submit outside the map, so that
+        // submitting never runs, or fails, inside a map function.
+        final CompletableFuture<Void> turn = new CompletableFuture<>();
+        final CompletableFuture<?> previous = writing.put(keyString, turn);
+
+        final CompletableFuture<Void> written = previous == null
+                ? write.get()
+                : previous.handle((result, throwable) -> null).thenCompose(result -> write.get());
+
+        written.whenComplete((result, throwable) -> {
+            writing.remove(keyString, turn);
+            if (throwable == null) {
+                turn.complete(null);
+            } else {
+                turn.completeExceptionally(throwable);
+            }
+        });
+    }
+
+    /**
+     * Switches {@link #insert(Object, Object)} to write-behind. Writes are
+     * queued with only the latest value per key kept, and written as a single
+     * batch in one transaction every {@code tickInterval} ticks, or as soon as
+     * {@code flushThreshold} keys are dirty. Whatever is still queued is
+     * flushed when the plugin disables or the handler is closed, and writes
+     * made after that, in {@code onDisable()} for instance, are written right
+     * away on the calling thread.
+     *
+     * @param tickInterval   Ticks between flushes
+     * @param flushThreshold How many dirty keys trigger an early flush
+     * @return This object, for chaining
+     */
+    public SQLStorageHandler<K, V> writeBehind(long tickInterval, int flushThreshold) {
+        Preconditions.checkArgument(tickInterval > 0, "tickInterval must be positive");
+        Preconditions.checkArgument(flushThreshold > 0, "flushThreshold must be positive");
+        Preconditions.checkState(writeBehind == null, "write-behind is already enabled");
+
+        this.writeBehind = new WriteBehindQueue(this::writeBatch, tickInterval, flushThreshold);
+        return this;
+    }
+
+    /**
+     * Writes everything the write-behind queue is holding, on the calling
+     * thread. Does nothing if write-behind is off.
+     */
+    public void flush() {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    /**
+     * Flushes pending writes and closes the connection pool.
+     */
+    public void close() {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+
+        sqlClient.close();
+    }
+
+    /**
+     * Writes the whole batch in one transaction, as multi-row upserts and
+     * deletes of up to {@link #BATCH_ROWS} rows each.
+     */
+    private void writeBatch(Map<String, Optional<Object>> batch) throws SQLException {
+        checkTableInitialization();
+
+        final List<Object> upserts = new ArrayList<>();
+        final List<Object> deletes = new ArrayList<>();
+        batch.forEach((key, data) -> {
+            if (data.isPresent()) {
+                upserts.add(key);
+                upserts.add(data.get());
+            } else {
+                deletes.add(key);
+            }
+        });
+
+        // Retried on deadlocks, which servers flushing the same keys at once can run into.
+        sqlClient.transaction(transaction -> {
+            final int upsertRows = dialect.getMaxRows(2, BATCH_ROWS);
+            executeChunked(transaction.getConnection(), upserts, 2, upsertRows, rows -> dialect.upsert(table, KEY_COLUMNS, VALUE_COLUMNS, rows));
+
+            final int deleteRows = dialect.getMaxRows(1, BATCH_ROWS);
+            executeChunked(transaction.getConnection(), deletes, 1, deleteRows, rows -> dialect.deleteIn(table, "id", rows));
+            return null;
+        });
+    }
+
+    private static void executeChunked(Connection connection, List<Object> parameters, int columns, int maxRows, StatementBuilder builder) throws SQLException {
+        final int totalRows = parameters.size() / columns;
+        String fullChunk = null;
+
+        for (int start = 0; start < totalRows; start += maxRows) {
+            final int rows = Math.min(maxRows, totalRows - start);
+
+            final String statement;
+            if (rows == maxRows) {
+                if (fullChunk == null) fullChunk = builder.build(maxRows);
+                statement = fullChunk;
+            } else {
+                statement = builder.build(rows);
+            }
+
+            try (PreparedStatement preparedStatement = connection.prepareStatement(statement)) {
+                final int offset = start * columns;
+                for (int i = 0; i < rows * columns; i++) {
+                    bind(preparedStatement, i + 1, parameters.get(offset + i));
+                }
+
+                preparedStatement.executeUpdate();
+            }
+        }
+    }
+
+    private interface StatementBuilder {
+
+        String build(int rows);
+
+    }
 
     public Class<K> getKeyType() {
         return keyType;
@@ -47,4 +520,15 @@ public abstract class SQLStorageHandler<K, V> extends DatabaseStorageHandler<K,
         return new SQLStorageContainer<>(this, supplier, gson);
     }
 
+    /**
+     * Opens a container that loads rows on demand instead of reading the whole
+     * table up front.
+     *
+     * @param residency Bounds on the rows kept in memory, such as
+     *                  {@code LoadingCache.builder().maximumSize(10_000).expireAfterAccess(30, TimeUnit.MINUTES)}
+     */
+    public LazySQLStorageContainer<K, V> lazyContainer(LoadingCacheBuilder<? super K, ? super V> residency) {
+        return new LazySQLStorageContainer<>(this, residency, gson);
+    }
+
 }
@@ -0,0 +1,143 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.database.sql;
+
+import io.github.johnnypixelz.utilizer.plugin.Provider;
+import io.github.johnnypixelz.utilizer.tasks.Tasks;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the latest serialized value of every key written since the last
+ * flush. Rewriting a key before it was flushed replaces the queued value, so
+ * the database sees one write per dirty key rather than one per update.
+ * <p>
+ * Values are queued already encoded, on the thread that wrote them, so a
+ * flush never reads an object the main thread is still changing. An empty
+ * value stands for a delete.
+ * <p>
+ * The queue closes on {@link PluginDisableEvent}, which fires before the
+ * plugin's own {@code onDisable()}. Whatever is written after that, such as
+ * the usual save on disable, is written right away on the calling thread.
+ */
+final class WriteBehindQueue implements Listener {
+    private final ConcurrentHashMap<String, Optional<Object>> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final BatchWriter writer;
+    private final int flushThreshold;
+    private final BukkitTask timer;
+    private volatile boolean closed = false;
+    // The batch being written, still the latest values of its keys until the
+    // write is done.
+    private volatile Map<String, Optional<Object>> flushing = Map.of();
+
+    WriteBehindQueue(BatchWriter writer, long tickInterval, int flushThreshold) {
+        this.writer = writer;
+        this.flushThreshold = flushThreshold;
+        this.timer = Tasks.async().delayedTimer(this::flush, tickInterval, tickInterval);
+
+        Bukkit.getPluginManager().registerEvents(this, Provider.getPlugin());
+    }
+
+    void enqueue(String key, Object data) {
+        pending.put(key, Optional.ofNullable(data));
+
+        if (closed) {
+            // No timer is left to pick it up, and async tasks can no longer
+            // be scheduled.
+            flush();
+            return;
+        }
+
+        if (pending.size() >= flushThreshold && flushScheduled.compareAndSet(false, true)) {
+            try {
+                Tasks.async().run(this::flush);
+            } catch (RuntimeException exception) {
+                // The plugin is disabling, so write it here rather than
+                // hoping a later flush still comes.
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Writes everything queued so far as one batch. Flushes never overlap, so
+     * an older value of a key cannot land after a newer one.
+     */
+    void flush() {
+        flushLock.lock();
+        try {
+            flushScheduled.set(false);
+            if (pending.isEmpty()) return;
+
+            final Map<String, Optional<Object>> batch = new LinkedHashMap<>();
+            for (Map.Entry<String, Optional<Object>> entry : pending.entrySet()) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+
+            // Published before the keys leave the queue, so peek() never
+            // misses them in between.
+            flushing = batch;
+            batch.forEach(pending::remove);
+
+            try {
+                writer.write(batch);
+            } catch (SQLException | RuntimeException exception) {
+                exception.printStackTrace();
+
+                // Requeue for the next flush, unless the key was written again in the meantime.
+                batch.forEach(pending::putIfAbsent);
+            } finally {
+                flushing = Map.of();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return the value queued or being written for the key, empty for a
+     * delete, or null if the table is up to date for it
+     */
+    Optional<Object> peek(String key) {
+        final Optional<Object> data = pending.get(key);
+        return data != null ? data : flushing.get(key);
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    void close() {
+        closed = true;
+        timer.cancel();
+        HandlerList.unregisterAll(this);
+        flush();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        if (event.getPlugin() != Provider.getPlugin()) return;
+
+        close();
+    }
+
+    interface BatchWriter {
+
+        void write(Map<String, Optional<Object>> batch) throws SQLException;
+
+    }
+
+}
@@ -0,0 +1,253 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.database.sql.codec;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Every element is a tag byte followed by its payload. Integers are zig-zag
+ * varints, so small ones take a single byte, and counts and string lengths
+ * are plain varints.
+ */
+class BinaryValueCodec implements ValueCodec {
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INTEGER = 3;
+    private static final byte DOUBLE = 4;
+    // Numbers that fit neither, kept as their text.
+    private static final byte DECIMAL = 5;
+    private static final byte STRING = 6;
+    private static final byte ARRAY = 7;
+    private static final byte OBJECT = 8;
+
+    @Override
+    public byte getId() {
+        return 2;
+    }
+
+    @Override
+    public byte[] encode(JsonElement value) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        write(out, value);
+        return out.toByteArray();
+    }
+
+    @Override
+    public JsonElement decode(byte[] data, int offset, int length) {
+        final Reader reader = new Reader(data, offset, offset + length);
+        final JsonElement value = reader.readElement();
+        if (reader.position != reader.end) {
+            throw new IllegalArgumentException("Trailing bytes after binary value");
+        }
+
+        return value;
+    }
+
+    private static void write(ByteArrayOutputStream out, JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            out.write(NULL);
+        } else if (element.isJsonObject()) {
+            final JsonObject object = element.getAsJsonObject();
+            out.write(OBJECT);
+            writeVarInt(out, object.size());
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                writeString(out, entry.getKey());
+                write(out, entry.getValue());
+            }
+        } else if (element.isJsonArray()) {
+            final JsonArray array = element.getAsJsonArray();
+            out.write(ARRAY);
+            writeVarInt(out, array.size());
+            for (JsonElement item : array) {
+                write(out, item);
+            }
+        } else {
+            writePrimitive(out, element.getAsJsonPrimitive());
+        }
+    }
+
+    private static void writePrimitive(ByteArrayOutputStream out, JsonPrimitive primitive) {
+        if (primitive.isBoolean()) {
+            out.write(primitive.getAsBoolean() ? TRUE : FALSE);
+        } else if (primitive.isString()) {
+            out.write(STRING);
+            writeString(out, primitive.getAsString());
+        } else {
+            writeNumber(out, primitive.getAsNumber());
+        }
+    }
+
+    private static void writeNumber(ByteArrayOutputStream out, Number number) {
+        if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+            out.write(INTEGER);
+            writeVarLong(out, number.longValue());
+            return;
+        }
+
+        if (number instanceof Double || number instanceof Float) {
+            final double value = number.doubleValue();
+            if (value == Math.rint(value) && Math.abs(value) < 0x1p53 && !(value == 0 && 1 / value < 0)) {
+                // Whole doubles such as coins = 1500.0 are far more common than fractions.
+                out.write(INTEGER);
+                writeVarLong(out, (long) value);
+            } else {
+                out.write(DOUBLE);
+                writeLong(out, Double.doubleToRawLongBits(value));
+            }
+            return;
+        }
+
+        // BigInteger, BigDecimal, or text parsed lazily from JSON.
+        final String text = number instanceof LazilyParsedNumber ? number.toString() : new BigDecimal(number.toString()).toString();
+        try {
+            final long value = new BigInteger(text).longValueExact();
+            out.write(INTEGER);
+            writeVarLong(out, value);
+        } catch (NumberFormatException | ArithmeticException notALong) {
+            out.write(DECIMAL);
+            writeString(out, text);
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String string) {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            out.write((int) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        out.write((int) zigZag);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private final int end;
+        private int position;
+
+        private Reader(byte[] data, int position, int end) {
+            this.data = data;
+            this.position = position;
+            this.end = end;
+        }
+
+        private JsonElement readElement() {
+            final byte tag = readByte();
+            return switch (tag) {
+                case NULL -> JsonNull.INSTANCE;
+                case TRUE -> new JsonPrimitive(true);
+                case FALSE -> new JsonPrimitive(false);
+                case INTEGER -> new JsonPrimitive(readVarLong());
+                case DOUBLE -> new JsonPrimitive(Double.longBitsToDouble(readLong()));
+                case DECIMAL -> new JsonPrimitive(new LazilyParsedNumber(readString()));
+                case STRING -> new JsonPrimitive(readString());
+                case ARRAY -> readArray();
+                case OBJECT -> readObject();
+                default -> throw new IllegalArgumentException("Unknown tag " + tag + " in binary value");
+            };
+        }
+
+        private JsonArray readArray() {
+            final int size = readVarInt();
+            final JsonArray array = new JsonArray(Math.min(size, end - position));
+            for (int i = 0; i < size; i++) {
+                array.add(readElement());
+            }
+
+            return array;
+        }
+
+        private JsonObject readObject() {
+            final int size = readVarInt();
+            final JsonObject object = new JsonObject();
+            for (int i = 0; i < size; i++) {
+                final String key = readString();
+                object.add(key, readElement());
+            }
+
+            return object;
+        }
+
+        private byte readByte() {
+            if (position >= end) {
+                throw new IllegalArgumentException("Binary value ends early");
+            }
+
+            return data[position++];
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                final byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+
+            throw new IllegalArgumentException("Malformed varint in binary value");
+        }
+
+        private long readVarLong() {
+            long zigZag = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                final byte b = readByte();
+                zigZag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigZag >>> 1) ^ -(zigZag & 1);
+                }
+            }
+
+            throw new IllegalArgumentException("Malformed varint in binary value");
+        }
+
+        private long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+
+            return value;
+        }
+
+        private String readString() {
+            final int length = readVarInt();
+            if (length < 0 || length > end - position) {
+                throw new IllegalArgumentException("Binary value ends early");
+            }
+
+            final String string = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return string;
+        }
+
+    }
+
+}
@@ -0,0 +1,68 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.database.sql.codec;
+
+import com.google.gson.JsonElement;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+class DeflateValueCodec implements ValueCodec {
+    private final ValueCodec inner;
+
+    DeflateValueCodec(ValueCodec inner) {
+        this.inner = inner;
+    }
+
+    @Override
+    public byte getId() {
+        return 3;
+    }
+
+    @Override
+    public byte[] encode(JsonElement value) {
+        final byte[] raw = inner.encode(value);
+        final Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            final byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                final int written = deflater.deflate(buffer);
+                out.write(buffer, 0, written);
+            }
+
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public JsonElement decode(byte[] data, int offset, int length) {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, length);
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(length * 4);
+            final byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                final int read = inflater.inflate(buffer);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Deflated value ends early");
+                }
+                out.write(buffer, 0, read);
+            }
+
+            final byte[] raw = out.toByteArray();
+            return inner.decode(raw, 0, raw.length);
+        } catch (DataFormatException exception) {
+            throw new IllegalArgumentException("Malformed deflated value", exception);
+        } finally {
+            inflater.end();
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.database.sql.codec;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.nio.charset.StandardCharsets;
+
+class JsonValueCodec implements ValueCodec {
+
+    @Override
+    public byte getId() {
+        return 1;
+    }
+
+    @Override
+    public byte[] encode(JsonElement value) {
+        return value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public JsonElement decode(byte[] data, int offset, int length) {
+        return JsonParser.parseString(new String(data, offset, length, StandardCharsets.UTF_8));
+    }
+
+}
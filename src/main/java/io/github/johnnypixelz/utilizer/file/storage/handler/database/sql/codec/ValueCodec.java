@@ -0,0 +1,77 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.database.sql.codec;
+
+import com.google.gson.JsonElement;
+
+/**
+ * Turns values into the bytes stored in an SQL storage table, see
+ * {@link io.github.johnnypixelz.utilizer.file.storage.handler.database.sql.SQLStorageHandler#codec(ValueCodec)}.
+ * <p>
+ * Stored values start with the id of the codec that wrote them, so rows keep
+ * decoding after the codec is changed. Rows without a known id are read as
+ * the plain JSON text older versions stored.
+ */
+public interface ValueCodec {
+
+    /**
+     * UTF-8 JSON text, as readable as the text column but in binary form.
+     */
+    ValueCodec JSON = new JsonValueCodec();
+
+    /**
+     * A tagged binary form of the JSON tree. Numbers and booleans take a byte
+     * or a few instead of their text, and nothing needs escaping or parsing.
+     */
+    ValueCodec BINARY = new BinaryValueCodec();
+
+    /**
+     * {@link #BINARY}, deflated. Worth it for large values with repeated keys,
+     * such as lists of objects.
+     */
+    ValueCodec DEFLATE = new DeflateValueCodec(BINARY);
+
+    /**
+     * @return the header byte identifying this codec, below {@code 0x20} so it
+     * can never be mistaken for the start of JSON text
+     */
+    byte getId();
+
+    byte[] encode(JsonElement value);
+
+    JsonElement decode(byte[] data, int offset, int length);
+
+    /**
+     * Encodes the value behind this codec's header byte.
+     */
+    default byte[] write(JsonElement value) {
+        final byte[] encoded = encode(value);
+        final byte[] stored = new byte[encoded.length + 1];
+        stored[0] = getId();
+        System.arraycopy(encoded, 0, stored, 1, encoded.length);
+        return stored;
+    }
+
+    /**
+     * Decodes a stored value with whichever codec wrote it.
+     */
+    static JsonElement read(byte[] stored) {
+        if (stored.length > 0) {
+            final ValueCodec codec = byId(stored[0]);
+            if (codec != null) {
+                return codec.decode(stored, 1, stored.length - 1);
+            }
+        }
+
+        // Written before codecs existed.
+        return JSON.decode(stored, 0, stored.length);
+    }
+
+    static ValueCodec byId(byte id) {
+        return switch (id) {
+            case 1 -> JSON;
+            case 2 -> BINARY;
+            case 3 -> DEFLATE;
+            default -> null;
+        };
+    }
+
+}
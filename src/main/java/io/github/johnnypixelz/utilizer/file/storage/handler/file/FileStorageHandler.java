@@ -13,6 +13,7 @@ import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 public abstract class FileStorageHandler<T> implements StorageHandler<T> {
@@ -32,6 +33,25 @@ public abstract class FileStorageHandler<T> implements StorageHandler<T> {
 
     protected abstract void saveData(Path path, T t);
 
+    /**
+     * Copies what {@link #saveSnapshot(Path, Object)} needs out of the data.
+     * Runs on the thread that owns the data, so it should do as little as it
+     * can. The default hands back the data itself, which is only safe if
+     * nothing changes it until it has been written.
+     */
+    protected Object snapshot(T t) {
+        return t;
+    }
+
+    /**
+     * Writes a snapshot taken by {@link #snapshot(Object)}, possibly on
+     * another thread.
+     */
+    @SuppressWarnings("unchecked")
+    protected void saveSnapshot(Path path, Object snapshot) {
+        saveData(path, (T) snapshot);
+    }
+
     public Optional<T> load() {
         File file = new File(this.dataFolder, this.fileName + this.fileExtension);
         final T t = loadData(file.toPath());
@@ -51,8 +71,38 @@ public abstract class FileStorageHandler<T> implements StorageHandler<T> {
     }
 
     public void save(T data) {
+        trySave(data);
+    }
+
+    /**
+     * Like {@link #save(Object)}, writing straight from the data on the
+     * calling thread.
+     *
+     * @return whether the file was replaced
+     */
+    public boolean trySave(T data) {
         this.dataFolder.mkdirs();
-        writeAtomically(new File(this.dataFolder, this.fileName + this.fileExtension).toPath(), data);
+        return writeAtomically(new File(this.dataFolder, this.fileName + this.fileExtension).toPath(), path -> saveData(path, data));
+    }
+
+    /**
+     * Splits a save in two. The snapshot is taken right away, on the calling
+     * thread, while the returned save can be written on any thread.
+     */
+    public PreparedSave prepareSave(T data) {
+        final Object snapshot;
+        try {
+            snapshot = snapshot(data);
+        } catch (Exception exception) {
+            Logs.severe("Failed to snapshot " + this.fileName + this.fileExtension + ": " + exception.getMessage());
+            exception.printStackTrace();
+            return () -> false;
+        }
+
+        return () -> {
+            this.dataFolder.mkdirs();
+            return writeAtomically(new File(this.dataFolder, this.fileName + this.fileExtension).toPath(), path -> saveSnapshot(path, snapshot));
+        };
     }
 
     public void saveAndBackup(T data) {
@@ -72,7 +122,7 @@ public abstract class FileStorageHandler<T> implements StorageHandler<T> {
             }
         }
 
-        writeAtomically(file.toPath(), data);
+        writeAtomically(file.toPath(), path -> saveData(path, data));
     }
 
     /**
@@ -82,8 +132,10 @@ public abstract class FileStorageHandler<T> implements StorageHandler<T> {
      * moment serialization fails partway -- there is no copy left and what did
      * get flushed is half a document. Building the replacement separately means
      * a failure leaves the previous file exactly as it was.
+     *
+     * @return whether the target was replaced
      */
-    private void writeAtomically(Path target, T data) {
+    protected boolean writeAtomically(Path target, Consumer<Path> writer) {
         final Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
 
         try {
@@ -92,20 +144,22 @@ public abstract class FileStorageHandler<T> implements StorageHandler<T> {
             e.printStackTrace();
         }
 
-        saveData(temporary, data);
+        writer.accept(temporary);
 
         if (!Files.exists(temporary)) {
             Logs.severe("Nothing was written for " + target.getFileName() + ", keeping the previous file");
-            return;
+            return false;
         }
 
         try {
             Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
         } catch (AtomicMoveNotSupportedException exception) {
             // Some filesystems cannot promise it; a plain replace is still
             // better than having deleted the original up front.
             try {
                 Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+                return true;
             } catch (IOException e) {
                 Logs.severe("Failed to replace " + target.getFileName() + ": " + e.getMessage());
                 e.printStackTrace();
@@ -114,6 +168,8 @@ public abstract class FileStorageHandler<T> implements StorageHandler<T> {
             Logs.severe("Failed to replace " + target.getFileName() + ": " + exception.getMessage());
             exception.printStackTrace();
         }
+
+        return false;
     }
 
     public FileStorageContainer<T> container(Supplier<T> supplier) {
@@ -0,0 +1,36 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.file;
+
+import io.github.johnnypixelz.utilizer.file.storage.container.file.MapFileStorageContainer;
+
+import java.io.File;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A handler for maps that can save changes to single keys without rewriting
+ * the whole map. Changes have to be reported to it, usually through
+ * {@link MapFileStorageContainer}, for a save to know what to write.
+ */
+public abstract class MapFileStorageHandler<K, V> extends FileStorageHandler<Map<K, V>> {
+
+    public MapFileStorageHandler(String fileName, String fileExtension, File dataFolder) {
+        super(fileName, fileExtension, dataFolder);
+    }
+
+    /**
+     * Has the next save write the key, whether it was added, replaced,
+     * removed or changed in place.
+     */
+    public abstract void markDirty(K key);
+
+    /**
+     * Has the next save write the whole map.
+     */
+    public abstract void markAllDirty();
+
+    @Override
+    public MapFileStorageContainer<K, V> container(Supplier<Map<K, V>> supplier) {
+        return new MapFileStorageContainer<>(this, supplier);
+    }
+
+}
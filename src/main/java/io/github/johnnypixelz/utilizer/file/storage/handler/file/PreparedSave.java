@@ -0,0 +1,25 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.file;
+
+/**
+ * A save whose snapshot was already taken, ready to be written on any thread.
+ *
+ * @see FileStorageHandler#prepareSave(Object)
+ */
+public interface PreparedSave {
+
+    /**
+     * Writes the snapshot.
+     *
+     * @return whether everything was written
+     */
+    boolean write();
+
+    /**
+     * Called instead of {@link #write()} when a newer save replaces this one.
+     * Handlers that only write what changed since the last save use it to
+     * pick up what this one would have written.
+     */
+    default void discard() {
+    }
+
+}
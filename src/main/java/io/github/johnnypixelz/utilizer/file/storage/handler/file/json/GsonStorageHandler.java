@@ -1,6 +1,7 @@
 package io.github.johnnypixelz.utilizer.file.storage.handler.file.json;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import io.github.johnnypixelz.utilizer.file.storage.handler.file.FileStorageHandler;
 import io.github.johnnypixelz.utilizer.plugin.Logs;
 import io.github.johnnypixelz.utilizer.plugin.Provider;
@@ -50,7 +51,7 @@ public class GsonStorageHandler<T> extends FileStorageHandler<T> {
      * Renames a file we could not parse, so the next save does not overwrite
      * whatever is still recoverable from it.
      */
-    private void quarantine(Path path) {
+    static synchronized void quarantine(Path path) {
         final Path broken = path.resolveSibling(path.getFileName() + ".broken-" + BROKEN_SUFFIX.format(new Date()));
 
         try {
@@ -63,28 +64,41 @@ public class GsonStorageHandler<T> extends FileStorageHandler<T> {
 
     @Override
     protected void saveData(Path path, T t) {
-        final String json;
+        write(path, this.gson, t, this.type);
+    }
 
-        try {
-//            Serialized in full before the file is opened. Streaming straight
-//            into the writer means a throw partway through the object graph
-//            leaves a truncated document behind, and only IOException was
-//            being caught, so the failure itself went unreported.
-            json = this.gson.toJson(t, this.type);
-        } catch (Exception exception) {
-            Logs.severe("Failed to serialize " + path.getFileName() + ": " + exception.getMessage());
-            exception.printStackTrace();
-            return;
-        }
+    /**
+     * Converts the data to a tree, a copy it no longer shares anything with,
+     * so turning it into text and writing it can wait for another thread.
+     * The tree is a full copy of the document: building it costs about as
+     * much as serializing it, on the calling thread, and it takes more memory
+     * than the text would. Synchronous saves skip it and stream the data.
+     */
+    @Override
+    protected Object snapshot(T t) {
+        return this.gson.toJsonTree(t, this.type);
+    }
+
+    @Override
+    protected void saveSnapshot(Path path, Object snapshot) {
+        write(path, this.gson, snapshot, JsonElement.class);
+    }
 
+    /**
+     * Serializes the value straight into the file, never holding the whole
+     * document in memory.
+     */
+    static void write(Path path, Gson gson, Object value, Type type) {
         try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-            writer.write(json);
-        } catch (IOException exception) {
+            gson.toJson(value, type, writer);
+        } catch (Exception exception) {
+//            Serialization can throw partway through the object graph, not just
+//            the disk, so everything is caught and reported. The path is the
+//            temporary file of writeAtomically, and deleting the truncated
+//            document keeps it from being swapped over a good file.
             Logs.severe("Failed to write " + path.getFileName() + ": " + exception.getMessage());
             exception.printStackTrace();
 
-//            Whatever landed on disk is incomplete, and leaving it there would
-//            let it be swapped over a good file.
             try {
                 Files.deleteIfExists(path);
             } catch (IOException ignored) {
@@ -0,0 +1,735 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.file.json;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.internal.$Gson$Types;
+import io.github.johnnypixelz.utilizer.file.storage.container.file.MapFileStorageContainer;
+import io.github.johnnypixelz.utilizer.file.storage.handler.file.MapFileStorageHandler;
+import io.github.johnnypixelz.utilizer.file.storage.handler.file.PreparedSave;
+import io.github.johnnypixelz.utilizer.plugin.Logs;
+import io.github.johnnypixelz.utilizer.plugin.Provider;
+import io.github.johnnypixelz.utilizer.tasks.Tasks;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Stores a map as a snapshot plus a journal of the changes made since, so a
+ * save only appends the keys that changed.
+ * <p>
+ * Both files are a header followed by records, each prefixed with its length
+ * and a CRC32 of its contents. A put holds a key and its value as JSON, a
+ * remove just the key. Loading replays the snapshot, then the journal. A
+ * record cut short by a crash fails its checksum, and the journal is cut back
+ * to the last whole record before anything else is appended to it.
+ * <p>
+ * Once the journal outgrows the live data by {@code compactionRatio} times,
+ * it is folded into a new snapshot on a background thread, working on the
+ * records alone, and only swaps the files in under the lock, carrying over
+ * what was appended meanwhile. Every snapshot has a generation, and a journal only counts
+ * on top of the snapshot of its own generation, so a crash between writing a
+ * snapshot and clearing the journal cannot replay old changes over new data.
+ * <p>
+ * Changes to single keys have to be reported through
+ * {@link MapFileStorageContainer#markDirty(Object)} to be appended on their
+ * own, any other change writes a new snapshot. A map saved as a single file
+ * by {@link GsonStorageHandler} under the same name is read if there is no
+ * snapshot or journal yet, and moved into them on the first save.
+ */
+public class JournalGsonStorageHandler<K, V> extends MapFileStorageHandler<K, V> {
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+    private static final String JOURNAL_EXTENSION = ".journal";
+    private static final SimpleDateFormat BACKUP_SUFFIX = new SimpleDateFormat("yyyy-MM-dd-HH-mm");
+
+    // "UJNL", then the generation.
+    private static final int MAGIC = 0x554A4E4C;
+    private static final int FILE_HEADER = 12;
+    // Length, then checksum.
+    private static final int RECORD_HEADER = 8;
+    // Operation, then key length.
+    private static final int RECORD_PREFIX = 5;
+    static final byte PUT = 1;
+    static final byte REMOVE = 2;
+    // Not worth compacting below this, however much of it is stale.
+    private static final long MIN_COMPACTION_SIZE = 256 * 1024;
+
+    private final String fileName;
+    private final File dataFolder;
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final Class<K> keyType;
+    private final Class<V> valueType;
+    private final Type mapType;
+    private final Gson gson;
+    private final double compactionRatio;
+
+    // Guarded by this.
+    private final Set<K> dirtyKeys = new HashSet<>();
+    private boolean allDirty = true;
+
+    // Guarded by fileLock, which is held for any file access, bar compaction
+    // reading the files and writing the new snapshot beside them.
+    private final Object fileLock = new Object();
+    private long generation = 0;
+    private FileChannel journal;
+    private long journalSize = 0;
+    // The size of the put record of every live key, by the key's JSON.
+    private Map<String, Integer> liveRecords = new HashMap<>();
+    private long liveSize = 0;
+    private boolean compacting = false;
+    // Bumped whenever the files are replaced or read anew, so that a
+    // compaction can tell whether the files it started from are still current.
+    private long fileVersion = 0;
+
+    /**
+     * @param compactionRatio How many times larger than the live data the
+     *                        journal may grow before it is compacted
+     */
+    public JournalGsonStorageHandler(String fileName, Class<K> keyType, Class<V> valueType, Gson gson, double compactionRatio) {
+        super(fileName, JOURNAL_EXTENSION, Provider.getPlugin().getDataFolder());
+        Preconditions.checkArgument(compactionRatio > 0, "compactionRatio must be positive");
+
+        this.fileName = fileName;
+        this.dataFolder = Provider.getPlugin().getDataFolder();
+        this.snapshotPath = new File(dataFolder, fileName + SNAPSHOT_EXTENSION).toPath();
+        this.journalPath = new File(dataFolder, fileName + JOURNAL_EXTENSION).toPath();
+        this.keyType = keyType;
+        this.valueType = valueType;
+        this.mapType = $Gson$Types.newParameterizedTypeWithOwner(null, HashMap.class, keyType, valueType);
+        this.gson = gson;
+        this.compactionRatio = compactionRatio;
+    }
+
+    @Override
+    public synchronized void markDirty(K key) {
+        dirtyKeys.add(key);
+    }
+
+    @Override
+    public synchronized void markAllDirty() {
+        allDirty = true;
+    }
+
+    @Override
+    public Optional<Map<K, V>> load() {
+        synchronized (this) {
+            dirtyKeys.clear();
+            allDirty = true;
+        }
+
+        final Map<String, String> entries = new HashMap<>();
+
+        synchronized (fileLock) {
+            closeJournal();
+            fileVersion++;
+            generation = 0;
+            journalSize = 0;
+            setLiveRecords(new HashMap<>());
+
+            if (!Files.exists(snapshotPath) && !Files.exists(journalPath)) {
+                final File legacyFile = new File(dataFolder, fileName + ".json");
+                if (legacyFile.isFile()) {
+                    Logs.info("Moving " + legacyFile.getName() + " into a journal on the next save");
+                    return Optional.ofNullable(loadData(legacyFile.toPath()));
+                }
+
+                return Optional.empty();
+            }
+
+            final Map<String, Integer> sizes = new HashMap<>();
+            try {
+                generation = Files.exists(snapshotPath) ? read(snapshotPath, -1, entries, sizes).generation() : 0;
+                journalSize = Files.exists(journalPath) ? read(journalPath, generation, entries, sizes).length() : 0;
+            } catch (IOException exception) {
+                Logs.severe("Could not read " + fileName + ": " + exception.getMessage());
+                quarantine();
+                return Optional.empty();
+            }
+
+            setLiveRecords(sizes);
+        }
+
+        final Map<K, V> data = new HashMap<>();
+        try {
+            entries.forEach((key, value) -> data.put(gson.fromJson(key, keyType), gson.fromJson(value, valueType)));
+        } catch (Exception exception) {
+            Logs.severe("Could not read " + fileName + ": " + exception.getMessage());
+            synchronized (fileLock) {
+                quarantine();
+            }
+
+            return Optional.empty();
+        }
+
+        synchronized (this) {
+            allDirty = false;
+        }
+
+        compactIfDue();
+        return Optional.of(data);
+    }
+
+    @Override
+    public Map<K, V> load(Supplier<Map<K, V>> supplier) {
+        return load().orElseGet(supplier);
+    }
+
+    /**
+     * Reads a map written by {@link GsonStorageHandler}.
+     */
+    @Override
+    protected Map<K, V> loadData(Path path) {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return this.gson.fromJson(reader, this.mapType);
+        } catch (IOException exception) {
+            return null;
+        } catch (Exception exception) {
+            Logs.severe("Could not read " + path.getFileName() + ": " + exception.getMessage());
+            GsonStorageHandler.quarantine(path);
+            return null;
+        }
+    }
+
+    @Override
+    protected void saveData(Path path, Map<K, V> data) {
+        GsonStorageHandler.write(path, this.gson, data, this.mapType);
+    }
+
+    /**
+     * Writes a new snapshot of the whole map, whether it changed or not.
+     */
+    @Override
+    public boolean trySave(Map<K, V> data) {
+        markAllDirty();
+        return prepareSave(data).write();
+    }
+
+    @Override
+    public void saveAndBackup(Map<K, V> data) {
+        final Path backups = new File(dataFolder, "backups").toPath();
+        final String suffix = "-" + BACKUP_SUFFIX.format(new Date());
+
+        synchronized (fileLock) {
+            try {
+                Files.createDirectories(backups);
+                for (Path path : List.of(snapshotPath, journalPath)) {
+                    if (Files.exists(path)) {
+                        Files.copy(path, backups.resolve(fileName + suffix + path.getFileName().toString().substring(fileName.length())), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        save(data);
+    }
+
+    /**
+     * Snapshots the keys marked dirty, to be appended to the journal, or the
+     * whole map after a change that was not tied to a key.
+     */
+    @Override
+    public PreparedSave prepareSave(Map<K, V> data) {
+        final boolean full;
+        final List<K> keys;
+
+        synchronized (this) {
+            full = allDirty;
+            keys = full ? List.of() : new ArrayList<>(dirtyKeys);
+            allDirty = false;
+            dirtyKeys.clear();
+        }
+
+        final List<Change> changes = new ArrayList<>();
+        try {
+            if (full) {
+                data.forEach((key, value) -> {
+                    if (value != null) {
+                        changes.add(new Change(gson.toJsonTree(key, keyType), gson.toJsonTree(value, valueType)));
+                    }
+                });
+            } else {
+                for (K key : keys) {
+                    final V value = data.get(key);
+                    changes.add(new Change(gson.toJsonTree(key, keyType), value == null ? null : gson.toJsonTree(value, valueType)));
+                }
+            }
+        } catch (Exception exception) {
+            Logs.severe("Failed to snapshot " + fileName + ": " + exception.getMessage());
+            exception.printStackTrace();
+            redo(full, keys);
+            return () -> false;
+        }
+
+        return new PreparedSave() {
+            @Override
+            public boolean write() {
+                final boolean written = full ? writeSnapshot(changes) : append(changes);
+                if (!written) {
+                    redo(full, keys);
+                }
+                return written;
+            }
+
+            @Override
+            public void discard() {
+                redo(full, keys);
+            }
+        };
+    }
+
+    private synchronized void redo(boolean full, Collection<K> keys) {
+        if (full) {
+            allDirty = true;
+        } else {
+            dirtyKeys.addAll(keys);
+        }
+    }
+
+    private boolean append(List<Change> changes) {
+        if (changes.isEmpty()) return true;
+
+        final List<byte[]> records = new ArrayList<>(changes.size());
+        int size = 0;
+        for (Change change : changes) {
+            final byte[] record = change.value == null
+                    ? record(REMOVE, gson.toJson(change.key), null)
+                    : record(PUT, gson.toJson(change.key), gson.toJson(change.value));
+            records.add(record);
+            size += record.length;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        records.forEach(buffer::put);
+        buffer.flip();
+
+        synchronized (fileLock) {
+            long start = -1;
+            try {
+                openJournal();
+                start = journal.size();
+                journal.position(start);
+                while (buffer.hasRemaining()) {
+                    journal.write(buffer);
+                }
+                journal.force(false);
+                journalSize = journal.size();
+            } catch (IOException exception) {
+                Logs.severe("Failed to append to " + journalPath.getFileName() + ": " + exception.getMessage());
+                exception.printStackTrace();
+
+//                Half a record would hide everything appended after it.
+                if (start >= 0) {
+                    try {
+                        journal.truncate(start);
+                    } catch (IOException ignored) {
+                    }
+                }
+                closeJournal();
+                return false;
+            }
+
+            for (int i = 0; i < changes.size(); i++) {
+                final String key = gson.toJson(changes.get(i).key);
+                final Integer previous = changes.get(i).value == null ? liveRecords.remove(key) : liveRecords.put(key, records.get(i).length);
+                liveSize += (changes.get(i).value == null ? 0 : records.get(i).length) - (previous == null ? 0 : previous);
+            }
+        }
+
+        compactIfDue();
+        return true;
+    }
+
+    private boolean writeSnapshot(List<Change> changes) {
+        final Map<String, String> entries = new HashMap<>();
+        for (Change change : changes) {
+            entries.put(gson.toJson(change.key), gson.toJson(change.value));
+        }
+
+        synchronized (fileLock) {
+            return replaceSnapshot(entries);
+        }
+    }
+
+    /**
+     * Writes the entries as the next generation's snapshot and drops the
+     * journal, which the new snapshot already covers. Called holding fileLock.
+     */
+    private boolean replaceSnapshot(Map<String, String> entries) {
+        final long nextGeneration = generation + 1;
+        final Map<String, Integer> sizes = new HashMap<>();
+
+        dataFolder.mkdirs();
+        final boolean written = writeAtomically(snapshotPath, path -> {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel))) {
+                output.write(fileHeader(nextGeneration));
+                for (Map.Entry<String, String> entry : entries.entrySet()) {
+                    final byte[] record = record(PUT, entry.getKey(), entry.getValue());
+                    output.write(record);
+                    sizes.put(entry.getKey(), record.length);
+                }
+
+                // On disk before the journal it replaces is deleted.
+                output.flush();
+                channel.force(true);
+            } catch (IOException exception) {
+                Logs.severe("Failed to write " + path.getFileName() + ": " + exception.getMessage());
+                exception.printStackTrace();
+
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                }
+            }
+        });
+
+        if (!written) return false;
+
+        adopt(nextGeneration, sizes);
+        return true;
+    }
+
+    /**
+     * Moves on to a snapshot of the given generation, just put in place, and
+     * drops the journal it covers. Called holding fileLock.
+     */
+    private void adopt(long nextGeneration, Map<String, Integer> sizes) {
+        generation = nextGeneration;
+        fileVersion++;
+        setLiveRecords(sizes);
+
+        // Left over, it is ignored for being of the previous generation.
+        closeJournal();
+        journalSize = 0;
+        try {
+            Files.deleteIfExists(journalPath);
+        } catch (IOException exception) {
+            Logs.warn("Could not delete " + journalPath.getFileName() + ": " + exception.getMessage());
+        }
+    }
+
+    private void compactIfDue() {
+        synchronized (fileLock) {
+            if (compacting || journalSize < MIN_COMPACTION_SIZE || journalSize < liveSize * compactionRatio) return;
+            // Picked up by the next load instead.
+            if (!Provider.getPlugin().isEnabled()) return;
+
+            compacting = true;
+        }
+
+        Tasks.async().run(this::compact);
+    }
+
+    private void compact() {
+        final long version;
+        final long nextGeneration;
+        final int offset;
+        synchronized (fileLock) {
+            version = fileVersion;
+            nextGeneration = generation + 1;
+            offset = (int) journalSize;
+        }
+
+        final Path compacted = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".compacting");
+        try {
+            // Built from the journal as far as it went when compaction was
+            // due, without fileLock, so appends and saves carry on meanwhile.
+            final Map<String, String> entries = new HashMap<>();
+            final Map<String, Integer> sizes = new HashMap<>();
+            if (Files.exists(snapshotPath)) {
+                final byte[] snapshot = Files.readAllBytes(snapshotPath);
+                readGeneration(snapshot, snapshotPath);
+                applyRecords(snapshot, FILE_HEADER, snapshot.length, entries, sizes);
+            }
+            final byte[] journalBytes = readRange(journalPath, 0, offset);
+            readGeneration(journalBytes, journalPath);
+            applyRecords(journalBytes, FILE_HEADER, offset, entries, sizes);
+
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(compacted))) {
+                output.write(fileHeader(nextGeneration));
+                for (Map.Entry<String, String> entry : entries.entrySet()) {
+                    output.write(record(PUT, entry.getKey(), entry.getValue()));
+                }
+            }
+
+            synchronized (fileLock) {
+                if (fileVersion != version) {
+                    // A full save or a load got there first.
+                    Files.deleteIfExists(compacted);
+                    return;
+                }
+
+                // The records appended since are whole, and go on the end of
+                // the new snapshot as they are.
+                final long before = journalSize;
+                final byte[] tail = readRange(journalPath, offset, (int) (journalSize - offset));
+                applyRecords(tail, 0, tail.length, entries, sizes);
+                try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    final ByteBuffer buffer = ByteBuffer.wrap(tail);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    // On disk before the journal it replaces is deleted.
+                    channel.force(true);
+                }
+
+                try {
+                    Files.move(compacted, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException exception) {
+                    Files.move(compacted, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                adopt(nextGeneration, sizes);
+                Logs.info("Compacted " + (before / 1024) + " KiB of journal into " + fileName + SNAPSHOT_EXTENSION);
+            }
+        } catch (IOException exception) {
+            Logs.severe("Failed to compact " + fileName + ": " + exception.getMessage());
+            exception.printStackTrace();
+
+            try {
+                Files.deleteIfExists(compacted);
+            } catch (IOException ignored) {
+            }
+        } finally {
+            synchronized (fileLock) {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * {@link #replay(Path, long, Map, Map)}, logging what it had to drop.
+     * Called holding fileLock.
+     */
+    private Replay read(Path path, long expectedGeneration, Map<String, String> entries, Map<String, Integer> sizes) throws IOException {
+        final Replay replay = replay(path, expectedGeneration, entries, sizes);
+        if (replay.stale()) {
+            Logs.warn("Ignoring " + path.getFileName() + ", which is older than the snapshot");
+        } else if (replay.dropped() > 0) {
+            Logs.warn("Dropped " + replay.dropped() + " bytes from the end of " + path.getFileName() + ", left by an interrupted write");
+        }
+
+        return replay;
+    }
+
+    /**
+     * Applies a file's records to the entries. A journal of another
+     * generation than expected is deleted instead, and one that ends in part
+     * of a record is cut back to the last whole one.
+     *
+     * @param expectedGeneration The generation a journal must have to be
+     *                           replayed, or -1 for a snapshot
+     */
+    static Replay replay(Path path, long expectedGeneration, Map<String, String> entries, Map<String, Integer> sizes) throws IOException {
+        final byte[] bytes = Files.readAllBytes(path);
+        final long fileGeneration = readGeneration(bytes, path);
+
+        if (expectedGeneration >= 0 && fileGeneration != expectedGeneration) {
+            // Left behind by a crash right after a new snapshot was written.
+            Files.delete(path);
+            return new Replay(fileGeneration, 0, 0, true);
+        }
+
+        final int end = applyRecords(bytes, FILE_HEADER, bytes.length, entries, sizes);
+        if (end < bytes.length && expectedGeneration >= 0) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+            }
+        }
+
+        return new Replay(fileGeneration, end, bytes.length - end, false);
+    }
+
+    /**
+     * What {@link #replay(Path, long, Map, Map)} found.
+     *
+     * @param length  How long the file is up to its last whole record
+     * @param dropped How many bytes of a partial record followed it
+     * @param stale   Whether the file was a journal of another generation
+     */
+    record Replay(long generation, long length, long dropped, boolean stale) {
+    }
+
+    private static long readGeneration(byte[] bytes, Path path) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < FILE_HEADER || buffer.getInt(0) != MAGIC) {
+            throw new IOException(path.getFileName() + " is not a journal file");
+        }
+
+        return buffer.getLong(4);
+    }
+
+    /**
+     * Applies the whole records between {@code start} and {@code limit}.
+     *
+     * @return the offset just past the last whole record
+     */
+    private static int applyRecords(byte[] bytes, int start, int limit, Map<String, String> entries, Map<String, Integer> sizes) {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        int end = start;
+        while (limit - end >= RECORD_HEADER) {
+            final int length = buffer.getInt(end);
+            final int checksum = buffer.getInt(end + 4);
+            final int body = end + RECORD_HEADER;
+            if (length < RECORD_PREFIX || length > limit - body) break;
+
+            final CRC32 crc = new CRC32();
+            crc.update(bytes, body, length);
+            if ((int) crc.getValue() != checksum) break;
+
+            final byte operation = bytes[body];
+            final int keyLength = buffer.getInt(body + 1);
+            if (keyLength < 0 || keyLength > length - RECORD_PREFIX) break;
+
+            final String key = new String(bytes, body + RECORD_PREFIX, keyLength, StandardCharsets.UTF_8);
+            if (operation == PUT) {
+                final int valueOffset = body + RECORD_PREFIX + keyLength;
+                entries.put(key, new String(bytes, valueOffset, body + length - valueOffset, StandardCharsets.UTF_8));
+                sizes.put(key, RECORD_HEADER + length);
+            } else if (operation == REMOVE) {
+                entries.remove(key);
+                sizes.remove(key);
+            } else {
+                break;
+            }
+
+            end = body + length;
+        }
+
+        return end;
+    }
+
+    private static byte[] readRange(Path path, long position, int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException(path.getFileName() + " is shorter than expected");
+                }
+            }
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Same as a broken file for {@link GsonStorageHandler}: moved aside, so
+     * the next save does not overwrite what is still recoverable from it.
+     * Called holding fileLock.
+     */
+    private void quarantine() {
+        for (Path path : List.of(snapshotPath, journalPath)) {
+            if (Files.exists(path)) {
+                GsonStorageHandler.quarantine(path);
+            }
+        }
+
+        fileVersion++;
+        generation = 0;
+        journalSize = 0;
+        setLiveRecords(new HashMap<>());
+    }
+
+    /**
+     * Called holding fileLock.
+     */
+    private void openJournal() throws IOException {
+        if (journal != null) return;
+
+        dataFolder.mkdirs();
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        // A journal that could not be deleted after a snapshot is stale.
+        final ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        if (journal.read(header, 0) < FILE_HEADER || header.getInt(0) != MAGIC || header.getLong(4) != generation) {
+            journal.truncate(0);
+            journal.write(ByteBuffer.wrap(fileHeader(generation)), 0);
+        }
+    }
+
+    /**
+     * Called holding fileLock.
+     */
+    private void closeJournal() {
+        if (journal == null) return;
+
+        try {
+            journal.close();
+        } catch (IOException ignored) {
+        }
+        journal = null;
+    }
+
+    /**
+     * Called holding fileLock.
+     */
+    private void setLiveRecords(Map<String, Integer> sizes) {
+        liveRecords = sizes;
+        liveSize = 0;
+        for (int size : sizes.values()) {
+            liveSize += size;
+        }
+    }
+
+    static byte[] fileHeader(long generation) {
+        return ByteBuffer.allocate(FILE_HEADER).putInt(MAGIC).putLong(generation).array();
+    }
+
+    static byte[] record(byte operation, String key, String value) {
+        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        final byte[] valueBytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        final int length = RECORD_PREFIX + keyBytes.length + valueBytes.length;
+
+        final ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER + length);
+        buffer.putInt(length).putInt(0).put(operation).putInt(keyBytes.length).put(keyBytes).put(valueBytes);
+
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), RECORD_HEADER, length);
+        buffer.putInt(4, (int) crc.getValue());
+
+        return buffer.array();
+    }
+
+    private static final class Change {
+        private final JsonElement key;
+        // Null for removals.
+        private final JsonElement value;
+
+        private Change(JsonElement key, JsonElement value) {
+            this.key = key;
+            this.value = value;
+        }
+
+    }
+
+}
@@ -0,0 +1,373 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.file.json;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.internal.$Gson$Types;
+import io.github.johnnypixelz.utilizer.file.storage.container.file.MapFileStorageContainer;
+import io.github.johnnypixelz.utilizer.file.storage.handler.file.MapFileStorageHandler;
+import io.github.johnnypixelz.utilizer.file.storage.handler.file.PreparedSave;
+import io.github.johnnypixelz.utilizer.plugin.Logs;
+import io.github.johnnypixelz.utilizer.plugin.Provider;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Stores a map as a directory of JSON files, so that a save only rewrites the
+ * files holding keys that changed.
+ * <p>
+ * Keys are spread over a fixed number of shard files by the hash of their
+ * JSON, or each get a file of their own. Every file holds a plain map, as
+ * {@link GsonStorageHandler} would write it, so loading reads them all in
+ * parallel whatever the number of shards was when they were written. Changes
+ * to single keys have to be reported through
+ * {@link MapFileStorageContainer#markDirty(Object)} to be written on their
+ * own, any other change rewrites every file.
+ * <p>
+ * A map saved as a single file by {@link GsonStorageHandler} under the same
+ * name is read if the directory does not exist yet, and split on the first save.
+ */
+public class ShardedGsonStorageHandler<K, V> extends MapFileStorageHandler<K, V> {
+    private static final String EXTENSION = ".json";
+    private static final int MAX_NAME_LENGTH = 64;
+    private static final SimpleDateFormat BACKUP_SUFFIX = new SimpleDateFormat("yyyy-MM-dd-HH-mm");
+
+    private final String directoryName;
+    private final File dataFolder;
+    private final File directory;
+    private final Class<K> keyType;
+    private final Type mapType;
+    private final Gson gson;
+    private final int shards;
+
+    // Guarded by this. Which keys each file holds, so a dirty file can be
+    // rebuilt without going through the whole map.
+    private final Map<String, Set<K>> shardKeys = new HashMap<>();
+    private final Set<String> dirtyShards = new HashSet<>();
+    private boolean allDirty = true;
+
+    /**
+     * @param shards How many files to spread the keys over, or 0 to give every
+     *               key its own file
+     */
+    public ShardedGsonStorageHandler(String directoryName, Class<K> keyType, Class<V> valueType, Gson gson, int shards) {
+        super(directoryName, "", Provider.getPlugin().getDataFolder());
+        Preconditions.checkArgument(shards >= 0, "shards cannot be negative");
+
+        this.directoryName = directoryName;
+        this.dataFolder = Provider.getPlugin().getDataFolder();
+        this.directory = new File(dataFolder, directoryName);
+        this.keyType = keyType;
+        this.mapType = $Gson$Types.newParameterizedTypeWithOwner(null, HashMap.class, keyType, valueType);
+        this.gson = gson;
+        this.shards = shards;
+    }
+
+    /**
+     * Has the file holding the key rewritten on the next save.
+     */
+    @Override
+    public void markDirty(K key) {
+        final String shard = shardOf(key);
+
+        synchronized (this) {
+            shardKeys.computeIfAbsent(shard, name -> new HashSet<>()).add(key);
+            dirtyShards.add(shard);
+        }
+    }
+
+    /**
+     * Has every file rewritten on the next save.
+     */
+    @Override
+    public synchronized void markAllDirty() {
+        allDirty = true;
+    }
+
+    @Override
+    public Optional<Map<K, V>> load() {
+        synchronized (this) {
+            shardKeys.clear();
+            dirtyShards.clear();
+            allDirty = true;
+        }
+
+        if (directory.isDirectory()) {
+            return Optional.ofNullable(loadData(directory.toPath()));
+        }
+
+        final File legacyFile = new File(dataFolder, directoryName + EXTENSION);
+        if (legacyFile.isFile()) {
+            Logs.info("Splitting " + legacyFile.getName() + " into " + directoryName + "/ on the next save");
+            return Optional.ofNullable(readFile(legacyFile.toPath()));
+        }
+
+        return Optional.empty();
+    }
+
+    @Override
+    public Map<K, V> load(Supplier<Map<K, V>> supplier) {
+        return load().orElseGet(supplier);
+    }
+
+    @Override
+    protected Map<K, V> loadData(Path path) {
+        final List<Path> files;
+        try (Stream<Path> stream = Files.list(path)) {
+            files = stream.filter(file -> file.getFileName().toString().endsWith(EXTENSION)).toList();
+        } catch (IOException exception) {
+            Logs.severe("Could not list " + path.getFileName() + ": " + exception.getMessage());
+            return null;
+        }
+
+        // Files are independent of each other, so they are parsed side by side.
+        final List<Map<K, V>> contents = files.parallelStream()
+                .map(this::readFile)
+                .toList();
+
+        final Map<K, V> data = new HashMap<>();
+        boolean misplaced = false;
+
+        synchronized (this) {
+            for (int i = 0; i < files.size(); i++) {
+                final Map<K, V> content = contents.get(i);
+                if (content == null) continue;
+
+                final String fileName = files.get(i).getFileName().toString();
+                final String name = fileName.substring(0, fileName.length() - EXTENSION.length());
+
+                for (Map.Entry<K, V> entry : content.entrySet()) {
+                    final String shard = shardOf(entry.getKey());
+                    shardKeys.computeIfAbsent(shard, ignored -> new HashSet<>()).add(entry.getKey());
+
+                    final boolean duplicate = data.put(entry.getKey(), entry.getValue()) != null;
+                    misplaced |= duplicate || !shard.equals(name);
+                }
+            }
+
+            // Written with a different number of shards, so everything moves.
+            allDirty = misplaced;
+        }
+
+        return data;
+    }
+
+    private Map<K, V> readFile(Path path) {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return this.gson.fromJson(reader, this.mapType);
+        } catch (IOException exception) {
+            Logs.severe("Could not read " + path.getFileName() + ": " + exception.getMessage());
+            return null;
+        } catch (Exception exception) {
+            Logs.severe("Could not read " + path.getFileName() + ": " + exception.getMessage());
+            GsonStorageHandler.quarantine(path);
+            return null;
+        }
+    }
+
+    @Override
+    protected void saveData(Path path, Map<K, V> data) {
+        GsonStorageHandler.write(path, this.gson, data, this.mapType);
+    }
+
+    /**
+     * Writes every file, whether it changed or not.
+     */
+    @Override
+    public boolean trySave(Map<K, V> data) {
+        markAllDirty();
+        return prepareSave(data).write();
+    }
+
+    @Override
+    public void saveAndBackup(Map<K, V> data) {
+        if (directory.isDirectory()) {
+            final Path backup = new File(new File(dataFolder, "backups"), directoryName + "-" + BACKUP_SUFFIX.format(new Date())).toPath();
+
+            try (Stream<Path> stream = Files.list(directory.toPath())) {
+                Files.createDirectories(backup);
+                for (Path file : (Iterable<Path>) stream::iterator) {
+                    if (file.getFileName().toString().endsWith(EXTENSION)) {
+                        Files.copy(file, backup.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        save(data);
+    }
+
+    /**
+     * Snapshots the files marked dirty, or all of them after a change that was
+     * not tied to a key.
+     */
+    @Override
+    public PreparedSave prepareSave(Map<K, V> data) {
+        final boolean full;
+        final Set<String> dirty;
+        final Map<String, Map<K, V>> contents = new HashMap<>();
+
+        synchronized (this) {
+            full = allDirty;
+            dirty = new HashSet<>(dirtyShards);
+            allDirty = false;
+            dirtyShards.clear();
+
+            if (full) {
+                shardKeys.clear();
+                data.forEach((key, value) -> {
+                    final String shard = shardOf(key);
+                    shardKeys.computeIfAbsent(shard, name -> new HashSet<>()).add(key);
+                    contents.computeIfAbsent(shard, name -> new HashMap<>()).put(key, value);
+                });
+            } else {
+                for (String shard : dirty) {
+                    final Map<K, V> content = new HashMap<>();
+                    final Set<K> keys = shardKeys.getOrDefault(shard, Set.of());
+
+                    for (Iterator<K> iterator = keys.iterator(); iterator.hasNext(); ) {
+                        final K key = iterator.next();
+                        final V value = data.get(key);
+                        if (value == null) {
+                            iterator.remove();
+                        } else {
+                            content.put(key, value);
+                        }
+                    }
+
+                    if (keys.isEmpty()) {
+                        shardKeys.remove(shard);
+                    }
+
+                    contents.put(shard, content);
+                }
+            }
+        }
+
+        // Null for files whose keys are all gone.
+        final Map<String, JsonElement> trees = new HashMap<>();
+        try {
+            contents.forEach((shard, content) -> trees.put(shard, content.isEmpty() ? null : this.gson.toJsonTree(content, this.mapType)));
+        } catch (Exception exception) {
+            Logs.severe("Failed to snapshot " + directoryName + ": " + exception.getMessage());
+            exception.printStackTrace();
+            redo(full, dirty);
+            return () -> false;
+        }
+
+        return new PreparedSave() {
+            @Override
+            public boolean write() {
+                return writeShards(trees, full);
+            }
+
+            @Override
+            public void discard() {
+                redo(full, trees.keySet());
+            }
+        };
+    }
+
+    private boolean writeShards(Map<String, JsonElement> trees, boolean full) {
+        directory.mkdirs();
+
+        final List<String> failed = new ArrayList<>();
+        trees.forEach((shard, tree) -> {
+            final Path path = directory.toPath().resolve(shard + EXTENSION);
+
+            if (tree == null) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException exception) {
+                    Logs.severe("Failed to delete " + path.getFileName() + ": " + exception.getMessage());
+                    failed.add(shard);
+                }
+            } else if (!writeAtomically(path, temporary -> GsonStorageHandler.write(temporary, this.gson, tree, JsonElement.class))) {
+                failed.add(shard);
+            }
+        });
+
+        boolean stale = false;
+        if (full) {
+            // Files of keys that are gone, or left from another number of shards.
+            try (Stream<Path> stream = Files.list(directory.toPath())) {
+                for (Path file : (Iterable<Path>) stream::iterator) {
+                    final String fileName = file.getFileName().toString();
+                    if (fileName.endsWith(EXTENSION) && !trees.containsKey(fileName.substring(0, fileName.length() - EXTENSION.length()))) {
+                        Files.delete(file);
+                    }
+                }
+            } catch (IOException exception) {
+                Logs.severe("Failed to clean up " + directoryName + ": " + exception.getMessage());
+                stale = true;
+            }
+        }
+
+        if (failed.isEmpty() && !stale) {
+            return true;
+        }
+
+        redo(stale, failed);
+        return false;
+    }
+
+    /**
+     * Marks what a save did not get to write as dirty again.
+     */
+    private synchronized void redo(boolean full, Collection<String> shards) {
+        if (full) {
+            allDirty = true;
+        } else {
+            dirtyShards.addAll(shards);
+        }
+    }
+
+    /**
+     * @return the name of the file holding the key, without its extension
+     */
+    private String shardOf(K key) {
+        final JsonElement tree = this.gson.toJsonTree(key, this.keyType);
+        final String text = tree.isJsonPrimitive() ? tree.getAsString() : tree.toString();
+
+        if (shards > 0) {
+            return "shard-" + Math.floorMod(text.hashCode(), shards);
+        }
+
+        // Lower case, so keys differing only in case cannot end up in two files
+        // that are one on case-insensitive filesystems. Keys sharing a name just
+        // share the file.
+        final StringBuilder name = new StringBuilder();
+        for (char character : text.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (name.length() == MAX_NAME_LENGTH) break;
+
+            final boolean safe = (character >= 'a' && character <= 'z') || (character >= '0' && character <= '9') || character == '-' || character == '_';
+            name.append(safe ? character : '_');
+        }
+
+        return name.append('-').append(Integer.toHexString(text.hashCode())).toString();
+    }
+
+}
@@ -0,0 +1,41 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.file.mapped;
+
+import java.nio.ByteBuffer;
+
+final class IntMappedKey implements MappedKey<Integer> {
+    static final IntMappedKey INSTANCE = new IntMappedKey();
+
+    private IntMappedKey() {
+    }
+
+    @Override
+    public String getName() {
+        return "int";
+    }
+
+    @Override
+    public int getSize() {
+        return 4;
+    }
+
+    @Override
+    public int hash(Integer key) {
+        return key;
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, int offset, Integer key) {
+        buffer.putInt(offset, key);
+    }
+
+    @Override
+    public Integer read(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset);
+    }
+
+    @Override
+    public boolean matches(ByteBuffer buffer, int offset, Integer key) {
+        return buffer.getInt(offset) == key;
+    }
+
+}
@@ -0,0 +1,41 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.file.mapped;
+
+import java.nio.ByteBuffer;
+
+final class LongMappedKey implements MappedKey<Long> {
+    static final LongMappedKey INSTANCE = new LongMappedKey();
+
+    private LongMappedKey() {
+    }
+
+    @Override
+    public String getName() {
+        return "long";
+    }
+
+    @Override
+    public int getSize() {
+        return 8;
+    }
+
+    @Override
+    public int hash(Long key) {
+        return Long.hashCode(key);
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, int offset, Long key) {
+        buffer.putLong(offset, key);
+    }
+
+    @Override
+    public Long read(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset);
+    }
+
+    @Override
+    public boolean matches(ByteBuffer buffer, int offset, Long key) {
+        return buffer.getLong(offset) == key;
+    }
+
+}
@@ -0,0 +1,117 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.file.mapped;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A field of a {@link MappedSchema}, pointing at where its value sits inside
+ * every record. Array fields address their first element, use {@code at} for
+ * the others.
+ */
+public abstract class MappedField {
+    private final Object owner;
+    private final String name;
+    private final Type type;
+    private final int length;
+    private final int offset;
+
+    MappedField(Object owner, String name, Type type, int length, int offset) {
+        this.owner = owner;
+        this.name = name;
+        this.type = type;
+        this.length = length;
+        this.offset = offset;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return how many values the field holds, 1 unless it is an array
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return the offset of the field inside a record, in bytes
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    Object getOwner() {
+        return owner;
+    }
+
+    int elementOffset(int index) {
+        Preconditions.checkElementIndex(index, length, name);
+        return offset + index * type.getSize();
+    }
+
+    public enum Type {
+        INT(4),
+        LONG(8),
+        DOUBLE(8);
+
+        private final int size;
+
+        Type(int size) {
+            this.size = size;
+        }
+
+        public int getSize() {
+            return size;
+        }
+    }
+
+    public static final class IntField extends MappedField {
+
+        IntField(Object owner, String name, int length, int offset) {
+            super(owner, name, Type.INT, length, offset);
+        }
+
+        /**
+         * @return the element of this array at the index, as a field of its own
+         */
+        public IntField at(int index) {
+            return new IntField(getOwner(), getName() + "[" + index + "]", 1, elementOffset(index));
+        }
+
+    }
+
+    public static final class LongField extends MappedField {
+
+        LongField(Object owner, String name, int length, int offset) {
+            super(owner, name, Type.LONG, length, offset);
+        }
+
+        /**
+         * @return the element of this array at the index, as a field of its own
+         */
+        public LongField at(int index) {
+            return new LongField(getOwner(), getName() + "[" + index + "]", 1, elementOffset(index));
+        }
+
+    }
+
+    public static final class DoubleField extends MappedField {
+
+        DoubleField(Object owner, String name, int length, int offset) {
+            super(owner, name, Type.DOUBLE, length, offset);
+        }
+
+        /**
+         * @return the element of this array at the index, as a field of its own
+         */
+        public DoubleField at(int index) {
+            return new DoubleField(getOwner(), getName() + "[" + index + "]", 1, elementOffset(index));
+        }
+
+    }
+
+}
@@ -0,0 +1,59 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.file.mapped;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Writes the keys of a {@link MappedStorageHandler} into a fixed number of
+ * bytes, next to the record they belong to.
+ * <p>
+ * {@link #hash(Object)} decides where a key is looked up in the file, so it
+ * has to give the same value for the same key on every run.
+ */
+public interface MappedKey<K> {
+
+    static MappedKey<UUID> uuid() {
+        return UuidMappedKey.INSTANCE;
+    }
+
+    static MappedKey<Long> longKey() {
+        return LongMappedKey.INSTANCE;
+    }
+
+    static MappedKey<Integer> intKey() {
+        return IntMappedKey.INSTANCE;
+    }
+
+    /**
+     * Strings of up to {@code maxBytes} bytes of UTF-8.
+     */
+    static MappedKey<String> string(int maxBytes) {
+        return new StringMappedKey(maxBytes);
+    }
+
+    /**
+     * @return a name for the encoding, kept in the header of the file to make
+     * sure it is always read with the same one
+     */
+    String getName();
+
+    /**
+     * @return how many bytes a key takes
+     */
+    int getSize();
+
+    int hash(K key);
+
+    void write(ByteBuffer buffer, int offset, K key);
+
+    K read(ByteBuffer buffer, int offset);
+
+    /**
+     * @return whether the key written at the offset is this one, ideally
+     * without reading it back into an object
+     */
+    default boolean matches(ByteBuffer buffer, int offset, K key) {
+        return key.equals(read(buffer, offset));
+    }
+
+}
@@ -0,0 +1,166 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.file.mapped;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The fixed layout of the records a {@link MappedStorageHandler} stores.
+ * <pre>{@code
+ * MappedSchema.Builder builder = MappedSchema.builder();
+ * MappedField.IntField kills = builder.intField("kills");
+ * MappedField.LongField playtime = builder.longField("playtime");
+ * MappedField.IntField blocksBroken = builder.intArray("blocks-broken", 16);
+ * MappedSchema schema = builder.build();
+ * }</pre>
+ * Fields are matched by name when a file written with another schema is
+ * opened, so fields can be added, removed or grown later on. A field that
+ * changes type starts over from zero.
+ */
+public final class MappedSchema {
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+
+    private final Object owner;
+    private final Map<String, MappedField> fields;
+    private final int recordSize;
+
+    private MappedSchema(Object owner, Map<String, MappedField> fields) {
+        this.owner = owner;
+        this.fields = Collections.unmodifiableMap(fields);
+
+        int end = 0;
+        for (MappedField field : fields.values()) {
+            end = Math.max(end, field.getOffset() + field.getLength() * field.getType().getSize());
+        }
+        this.recordSize = align(end);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public List<MappedField> getFields() {
+        return new ArrayList<>(fields.values());
+    }
+
+    public MappedField getField(String name) {
+        return fields.get(name);
+    }
+
+    /**
+     * @return the size of a record in bytes, padded to a multiple of 8
+     */
+    public int getRecordSize() {
+        return recordSize;
+    }
+
+    void checkField(MappedField field) {
+        Preconditions.checkArgument(field.getOwner() == owner, "Field %s is not part of this schema", field.getName());
+    }
+
+    /**
+     * @return the layout as kept in the header of a file, to tell whether it
+     * was written with the same schema
+     */
+    String describe() {
+        final List<String> parts = new ArrayList<>();
+        for (MappedField field : fields.values()) {
+            parts.add(field.getName() + ":" + field.getType() + ":" + field.getLength() + ":" + field.getOffset());
+        }
+
+        return String.join(",", parts);
+    }
+
+    /**
+     * Reads back a layout written by {@link #describe()}.
+     */
+    static MappedSchema parse(String description) {
+        final Object owner = new Object();
+        final Map<String, MappedField> fields = new LinkedHashMap<>();
+
+        if (!description.isEmpty()) {
+            for (String part : description.split(",")) {
+                final String[] values = part.split(":");
+                Preconditions.checkArgument(values.length == 4, "Malformed field %s", part);
+
+                final String name = values[0];
+                final int length = Integer.parseInt(values[2]);
+                final int offset = Integer.parseInt(values[3]);
+                fields.put(name, switch (MappedField.Type.valueOf(values[1])) {
+                    case INT -> new MappedField.IntField(owner, name, length, offset);
+                    case LONG -> new MappedField.LongField(owner, name, length, offset);
+                    case DOUBLE -> new MappedField.DoubleField(owner, name, length, offset);
+                });
+            }
+        }
+
+        return new MappedSchema(owner, fields);
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    public static final class Builder {
+        private final Map<String, MappedField> fields = new LinkedHashMap<>();
+        private int size = 0;
+        private boolean built = false;
+
+        private Builder() {
+        }
+
+        public MappedField.IntField intField(String name) {
+            return intArray(name, 1);
+        }
+
+        public MappedField.IntField intArray(String name, int length) {
+            return add(new MappedField.IntField(this, name, length, reserve(name, MappedField.Type.INT, length)));
+        }
+
+        public MappedField.LongField longField(String name) {
+            return longArray(name, 1);
+        }
+
+        public MappedField.LongField longArray(String name, int length) {
+            return add(new MappedField.LongField(this, name, length, reserve(name, MappedField.Type.LONG, length)));
+        }
+
+        public MappedField.DoubleField doubleField(String name) {
+            return doubleArray(name, 1);
+        }
+
+        public MappedField.DoubleField doubleArray(String name, int length) {
+            return add(new MappedField.DoubleField(this, name, length, reserve(name, MappedField.Type.DOUBLE, length)));
+        }
+
+        public MappedSchema build() {
+            Preconditions.checkState(!fields.isEmpty(), "A schema needs at least one field");
+            built = true;
+            return new MappedSchema(this, new LinkedHashMap<>(fields));
+        }
+
+        private int reserve(String name, MappedField.Type type, int length) {
+            Preconditions.checkState(!built, "Fields cannot be added after build()");
+            Preconditions.checkArgument(NAME.matcher(name).matches(), "Field names may only hold letters, digits, '_', '.' and '-': %s", name);
+            Preconditions.checkArgument(!fields.containsKey(name), "Duplicate field %s", name);
+            Preconditions.checkArgument(length > 0, "length must be positive");
+
+            // Values are aligned to their own size.
+            final int offset = (size + type.getSize() - 1) / type.getSize() * type.getSize();
+            size = offset + length * type.getSize();
+            return offset;
+        }
+
+        private <F extends MappedField> F add(F field) {
+            fields.put(field.getName(), field);
+            return field;
+        }
+
+    }
+
+}
@@ -0,0 +1,605 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.file.mapped;
+
+import com.google.common.base.Preconditions;
+import io.github.johnnypixelz.utilizer.plugin.Logs;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Stores fixed-layout records, such as counters or stat arrays, in a
+ * memory-mapped file holding an open-addressing hash table.
+ * <p>
+ * Values are read and written in place in the mapped file, so there is
+ * nothing to parse on startup and nothing to save. The operating system
+ * writes changed pages back in its own time, even if the server crashes,
+ * and {@link #flush()} only needs to be called to survive the machine going
+ * down. Reading a key that has no record gives 0, writing to it creates it.
+ * <p>
+ * The table doubles once three quarters full. Doubling, and opening a file
+ * written with another {@link MappedSchema}, copy the records into a new file
+ * numbered one higher, so a crash half way through leaves the last complete
+ * one to open. Files are never renamed or replaced while mapped.
+ * <p>
+ * Calls are synchronized, each of them a lookup and a read or write.
+ * {@link #close()} the handler when the plugin disables.
+ */
+public class MappedStorageHandler<K> implements Closeable {
+    private static final String EXTENSION = ".mapped";
+    private static final int MAGIC = 0x554D4150;
+    private static final int FORMAT_VERSION = 1;
+    private static final int MIN_CAPACITY = 16;
+
+    // Header, followed by the description of the key and schema.
+    private static final int MAGIC_OFFSET = 0;
+    private static final int FORMAT_OFFSET = 4;
+    private static final int COMPLETE_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int SIZE_OFFSET = 16;
+    private static final int SLOT_SIZE_OFFSET = 20;
+    private static final int RECORD_OFFSET_OFFSET = 24;
+    private static final int DESCRIPTION_LENGTH_OFFSET = 28;
+    private static final int HEADER_SIZE = 32;
+
+    // Slots: the hash of the key, whether the slot is used, the key and the
+    // record. Unused slots are all zeroes.
+    private static final int HASH_OFFSET = 0;
+    private static final int USED_OFFSET = 4;
+    private static final int KEY_OFFSET = 8;
+
+    private final String fileName;
+    private final File dataFolder;
+    private final MappedKey<K> key;
+    private final MappedSchema schema;
+    private final String description;
+
+    // Guarded by this.
+    private Table table;
+    private boolean closed = false;
+
+    /**
+     * Maps the file, creating it with room for {@code initialCapacity} records
+     * if it does not exist yet.
+     */
+    public MappedStorageHandler(String fileName, MappedKey<K> key, MappedSchema schema, int initialCapacity, File dataFolder) {
+        Preconditions.checkArgument(initialCapacity > 0, "initialCapacity must be positive");
+
+        this.fileName = fileName;
+        this.dataFolder = dataFolder;
+        this.key = key;
+        this.schema = schema;
+        this.description = key.getName() + ";" + schema.describe();
+
+        try {
+            this.table = open(initialCapacity);
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Could not map " + fileName + EXTENSION, exception);
+        }
+    }
+
+    public MappedSchema getSchema() {
+        return schema;
+    }
+
+    public synchronized int getInt(K key, MappedField.IntField field) {
+        final int record = find(key, field);
+        return record < 0 ? 0 : table.buffer.getInt(record + field.getOffset());
+    }
+
+    public synchronized void setInt(K key, MappedField.IntField field, int value) {
+        // Before touching the table, creating the record may replace it.
+        final int position = findOrCreate(key, field) + field.getOffset();
+        table.buffer.putInt(position, value);
+    }
+
+    /**
+     * @return the value after adding
+     */
+    public synchronized int addInt(K key, MappedField.IntField field, int delta) {
+        final int position = findOrCreate(key, field) + field.getOffset();
+        final int value = table.buffer.getInt(position) + delta;
+        table.buffer.putInt(position, value);
+        return value;
+    }
+
+    public synchronized long getLong(K key, MappedField.LongField field) {
+        final int record = find(key, field);
+        return record < 0 ? 0 : table.buffer.getLong(record + field.getOffset());
+    }
+
+    public synchronized void setLong(K key, MappedField.LongField field, long value) {
+        final int position = findOrCreate(key, field) + field.getOffset();
+        table.buffer.putLong(position, value);
+    }
+
+    /**
+     * @return the value after adding
+     */
+    public synchronized long addLong(K key, MappedField.LongField field, long delta) {
+        final int position = findOrCreate(key, field) + field.getOffset();
+        final long value = table.buffer.getLong(position) + delta;
+        table.buffer.putLong(position, value);
+        return value;
+    }
+
+    public synchronized double getDouble(K key, MappedField.DoubleField field) {
+        final int record = find(key, field);
+        return record < 0 ? 0 : table.buffer.getDouble(record + field.getOffset());
+    }
+
+    public synchronized void setDouble(K key, MappedField.DoubleField field, double value) {
+        final int position = findOrCreate(key, field) + field.getOffset();
+        table.buffer.putDouble(position, value);
+    }
+
+    /**
+     * @return the value after adding
+     */
+    public synchronized double addDouble(K key, MappedField.DoubleField field, double delta) {
+        final int position = findOrCreate(key, field) + field.getOffset();
+        final double value = table.buffer.getDouble(position) + delta;
+        table.buffer.putDouble(position, value);
+        return value;
+    }
+
+    public synchronized boolean contains(K key) {
+        checkOpen();
+        return indexOf(key, hash(key)) >= 0;
+    }
+
+    /**
+     * Deletes the record of the key, so all its fields read 0 again.
+     *
+     * @return whether the key had a record
+     */
+    public synchronized boolean remove(K key) {
+        checkOpen();
+
+        int hole = indexOf(key, hash(key));
+        if (hole < 0) return false;
+
+        // Moves back the records after the hole whose probe went through it,
+        // so lookups never stop early at an empty slot.
+        int index = hole;
+        while (true) {
+            index = (index + 1) & table.mask;
+            final int slot = table.slot(index);
+            if (table.buffer.get(slot + USED_OFFSET) == 0) break;
+
+            final int home = table.buffer.getInt(slot + HASH_OFFSET) & table.mask;
+            if (((index - home) & table.mask) >= ((index - hole) & table.mask)) {
+                table.move(index, hole);
+                hole = index;
+            }
+        }
+
+        table.clear(hole);
+        table.setSize(table.getSize() - 1);
+        return true;
+    }
+
+    public synchronized int size() {
+        checkOpen();
+        return table.getSize();
+    }
+
+    /**
+     * @return a copy of the keys that have a record
+     */
+    public synchronized List<K> keys() {
+        checkOpen();
+
+        final List<K> keys = new ArrayList<>(table.getSize());
+        for (int index = 0; index < table.capacity; index++) {
+            final int slot = table.slot(index);
+            if (table.buffer.get(slot + USED_OFFSET) != 0) {
+                keys.add(key.read(table.buffer, slot + KEY_OFFSET));
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Forces changes out to the disk, rather than leaving it to the
+     * operating system.
+     */
+    public synchronized void flush() {
+        checkOpen();
+        table.buffer.force();
+    }
+
+    /**
+     * Flushes and closes the file. The handler cannot be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+
+        closed = true;
+        table.buffer.force();
+        table.close();
+    }
+
+    /**
+     * @return the position of the record of the key, or -1 if it has none
+     */
+    private int find(K key, MappedField field) {
+        checkOpen();
+        schema.checkField(field);
+
+        final int index = indexOf(key, hash(key));
+        return index < 0 ? -1 : table.slot(index) + table.recordOffset;
+    }
+
+    /**
+     * @return the position of the record of the key, created if it has none
+     */
+    private int findOrCreate(K key, MappedField field) {
+        checkOpen();
+        schema.checkField(field);
+
+        final int hash = hash(key);
+        int index = indexOf(key, hash);
+        if (index >= 0) {
+            return table.slot(index) + table.recordOffset;
+        }
+
+        if (table.getSize() + 1 > table.capacity / 4 * 3) {
+            try {
+                table = copy(table, table.capacity * 2);
+            } catch (IOException exception) {
+                throw new UncheckedIOException("Could not grow " + fileName + EXTENSION, exception);
+            }
+            index = indexOf(key, hash);
+        }
+
+        final int slot = table.slot(-index - 1);
+        this.key.write(table.buffer, slot + KEY_OFFSET, key);
+        table.buffer.putInt(slot + HASH_OFFSET, hash);
+        table.buffer.put(slot + USED_OFFSET, (byte) 1);
+        table.setSize(table.getSize() + 1);
+
+        return slot + table.recordOffset;
+    }
+
+    /**
+     * @return the index of the slot holding the key, or {@code -index - 1}
+     * of the free slot it would go in
+     */
+    private int indexOf(K key, int hash) {
+        int index = hash & table.mask;
+
+        while (true) {
+            final int slot = table.slot(index);
+            if (table.buffer.get(slot + USED_OFFSET) == 0) {
+                return -index - 1;
+            }
+
+            if (table.buffer.getInt(slot + HASH_OFFSET) == hash && this.key.matches(table.buffer, slot + KEY_OFFSET, key)) {
+                return index;
+            }
+
+            index = (index + 1) & table.mask;
+        }
+    }
+
+    private int hash(K key) {
+        // Spread, as neighbouring keys would otherwise fill runs of slots.
+        final int hash = this.key.hash(key) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private void checkOpen() {
+        Preconditions.checkState(!closed, "%s%s is closed", fileName, EXTENSION);
+    }
+
+    private Table open(int initialCapacity) throws IOException {
+        dataFolder.mkdirs();
+
+        final Map<Long, Path> generations = new TreeMap<>(Comparator.reverseOrder());
+        try (Stream<Path> stream = Files.list(dataFolder.toPath())) {
+            for (Path path : (Iterable<Path>) stream::iterator) {
+                final Long generation = generationOf(path);
+                if (generation != null) {
+                    generations.put(generation, path);
+                }
+            }
+        }
+
+        Table found = null;
+        for (Map.Entry<Long, Path> entry : generations.entrySet()) {
+            if (found == null) {
+                found = Table.open(entry.getValue(), entry.getKey());
+                if (found != null) continue;
+            }
+
+            // Older files, and newer ones whose copy never completed.
+            delete(entry.getValue());
+        }
+
+        if (found == null) {
+            final Table created = Table.create(pathOf(0), 0, capacityFor(initialCapacity), key.getSize(), schema, description);
+            created.complete();
+            return created;
+        }
+
+        if (!found.keyName.equals(key.getName())) {
+            found.close();
+            throw new IllegalStateException(found.path.getFileName() + " holds keys written as " + found.keyName + ", not " + key.getName());
+        }
+
+        return found.description.equals(description) ? found : copy(found, found.capacity);
+    }
+
+    /**
+     * Copies every record into a new file with the given capacity and the
+     * current schema, then drops the old one.
+     */
+    private Table copy(Table from, int capacity) throws IOException {
+        final Table to = Table.create(pathOf(from.generation + 1), from.generation + 1, capacity, key.getSize(), schema, description);
+
+        try {
+            copyRecords(from, to);
+        } catch (RuntimeException exception) {
+            to.close();
+            delete(to.path);
+            throw exception;
+        }
+
+        from.close();
+        delete(from.path);
+        return to;
+    }
+
+    private void copyRecords(Table from, Table to) {
+        final boolean sameSchema = from.schema.describe().equals(schema.describe());
+
+        int size = 0;
+        for (int index = 0; index < from.capacity; index++) {
+            final int source = from.slot(index);
+            if (from.buffer.get(source + USED_OFFSET) == 0) continue;
+
+            int free = from.buffer.getInt(source + HASH_OFFSET) & to.mask;
+            while (to.buffer.get(to.slot(free) + USED_OFFSET) != 0) {
+                free = (free + 1) & to.mask;
+            }
+
+            final int target = to.slot(free);
+            to.buffer.put(target, from.buffer, source, KEY_OFFSET + key.getSize());
+
+            if (sameSchema) {
+                to.buffer.put(target + to.recordOffset, from.buffer, source + from.recordOffset, schema.getRecordSize());
+            } else {
+                // Fields are carried over by name, as long as their type stayed the same.
+                for (MappedField field : schema.getFields()) {
+                    final MappedField old = from.schema.getField(field.getName());
+                    if (old == null || old.getType() != field.getType()) continue;
+
+                    final int length = Math.min(old.getLength(), field.getLength()) * field.getType().getSize();
+                    to.buffer.put(target + to.recordOffset + field.getOffset(), from.buffer, source + from.recordOffset + old.getOffset(), length);
+                }
+            }
+
+            size++;
+        }
+
+        to.setSize(size);
+        to.complete();
+    }
+
+    private Path pathOf(long generation) {
+        return new File(dataFolder, fileName + "." + generation + EXTENSION).toPath();
+    }
+
+    private Long generationOf(Path path) {
+        final String name = path.getFileName().toString();
+        final String prefix = fileName + ".";
+        if (!name.startsWith(prefix) || !name.endsWith(EXTENSION)) return null;
+
+        final String generation = name.substring(prefix.length(), name.length() - EXTENSION.length());
+        if (generation.isEmpty() || !generation.chars().allMatch(Character::isDigit)) return null;
+
+        try {
+            return Long.parseLong(generation);
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException exception) {
+            // Still mapped on some systems, it goes on the next start instead.
+            Logs.warn("Could not delete " + path.getFileName() + ": " + exception.getMessage());
+        }
+    }
+
+    private static int capacityFor(int records) {
+        // Room for the records while staying under three quarters full.
+        final long needed = (long) records * 4 / 3 + 1;
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed) {
+            Preconditions.checkArgument(capacity < 1 << 30, "Too many records: %s", records);
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    /**
+     * One mapped file.
+     */
+    private static final class Table {
+        private final Path path;
+        private final long generation;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private final int mask;
+        private final int slotSize;
+        private final int recordOffset;
+        private final int tableOffset;
+        private final String description;
+        private final String keyName;
+        private final MappedSchema schema;
+
+        private Table(Path path, long generation, FileChannel channel, MappedByteBuffer buffer, int tableOffset, String description) {
+            this.path = path;
+            this.generation = generation;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = buffer.getInt(CAPACITY_OFFSET);
+            this.mask = capacity - 1;
+            this.slotSize = buffer.getInt(SLOT_SIZE_OFFSET);
+            this.recordOffset = buffer.getInt(RECORD_OFFSET_OFFSET);
+            this.tableOffset = tableOffset;
+            this.description = description;
+
+            final int separator = description.indexOf(';');
+            Preconditions.checkArgument(separator >= 0, "Malformed description %s", description);
+            this.keyName = description.substring(0, separator);
+            this.schema = MappedSchema.parse(description.substring(separator + 1));
+        }
+
+        /**
+         * Creates an empty file, not marked complete yet.
+         */
+        private static Table create(Path path, long generation, int capacity, int keySize, MappedSchema schema, String description) throws IOException {
+            final byte[] descriptionBytes = description.getBytes(StandardCharsets.UTF_8);
+            final int recordOffset = KEY_OFFSET + align(keySize);
+            final int slotSize = recordOffset + schema.getRecordSize();
+            final int tableOffset = align(HEADER_SIZE + descriptionBytes.length);
+
+            final long fileSize = tableOffset + (long) capacity * slotSize;
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException(path.getFileName() + " would outgrow the 2GB a mapping can hold");
+            }
+
+            final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                // Mapping past the end grows the file, filled with zeroes.
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+                buffer.putInt(MAGIC_OFFSET, MAGIC);
+                buffer.putInt(FORMAT_OFFSET, FORMAT_VERSION);
+                buffer.putInt(CAPACITY_OFFSET, capacity);
+                buffer.putInt(SLOT_SIZE_OFFSET, slotSize);
+                buffer.putInt(RECORD_OFFSET_OFFSET, recordOffset);
+                buffer.putInt(DESCRIPTION_LENGTH_OFFSET, descriptionBytes.length);
+                buffer.put(HEADER_SIZE, descriptionBytes);
+
+                return new Table(path, generation, channel, buffer, tableOffset, description);
+            } catch (IOException | RuntimeException exception) {
+                channel.close();
+                throw exception;
+            }
+        }
+
+        /**
+         * @return the file, or null if it was never completed
+         */
+        private static Table open(Path path, long generation) throws IOException {
+            final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                final long fileSize = channel.size();
+                if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+                    channel.close();
+                    return null;
+                }
+
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+                if (buffer.getInt(COMPLETE_OFFSET) != 1) {
+                    channel.close();
+                    return null;
+                }
+
+                if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(FORMAT_OFFSET) != FORMAT_VERSION) {
+                    throw new IOException(path.getFileName() + " is not a mapped storage file, or from a newer version");
+                }
+
+                final int capacity = buffer.getInt(CAPACITY_OFFSET);
+                final int descriptionLength = buffer.getInt(DESCRIPTION_LENGTH_OFFSET);
+                final int tableOffset = align(HEADER_SIZE + descriptionLength);
+                if (capacity <= 0 || Integer.bitCount(capacity) != 1 || descriptionLength < 0
+                        || tableOffset + (long) capacity * buffer.getInt(SLOT_SIZE_OFFSET) > fileSize) {
+                    throw new IOException(path.getFileName() + " is corrupted");
+                }
+
+                final byte[] description = new byte[descriptionLength];
+                buffer.get(HEADER_SIZE, description);
+
+                return new Table(path, generation, channel, buffer, tableOffset, new String(description, StandardCharsets.UTF_8));
+            } catch (IOException | RuntimeException exception) {
+                channel.close();
+                throw exception;
+            }
+        }
+
+        private int slot(int index) {
+            return tableOffset + index * slotSize;
+        }
+
+        private int getSize() {
+            return buffer.getInt(SIZE_OFFSET);
+        }
+
+        private void setSize(int size) {
+            buffer.putInt(SIZE_OFFSET, size);
+        }
+
+        private void move(int from, int to) {
+            final int source = slot(from);
+            final int target = slot(to);
+            for (int offset = 0; offset < slotSize; offset += 8) {
+                buffer.putLong(target + offset, buffer.getLong(source + offset));
+            }
+
+            clear(from);
+        }
+
+        private void clear(int index) {
+            final int slot = slot(index);
+            for (int offset = 0; offset < slotSize; offset += 8) {
+                buffer.putLong(slot + offset, 0);
+            }
+        }
+
+        /**
+         * Marks the file as the one to open, once everything else is on disk.
+         */
+        private void complete() {
+            buffer.force();
+            buffer.putInt(COMPLETE_OFFSET, 1);
+            buffer.force();
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,54 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.file.mapped;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The length of the UTF-8 bytes as a short, followed by the bytes.
+ */
+final class StringMappedKey implements MappedKey<String> {
+    private final int maxBytes;
+
+    StringMappedKey(int maxBytes) {
+        Preconditions.checkArgument(maxBytes > 0 && maxBytes <= Short.MAX_VALUE, "maxBytes must be between 1 and %s", Short.MAX_VALUE);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public String getName() {
+        return "string:" + maxBytes;
+    }
+
+    @Override
+    public int getSize() {
+        return 2 + maxBytes;
+    }
+
+    @Override
+    public int hash(String key) {
+        return key.hashCode();
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, int offset, String key) {
+        final byte[] bytes = encode(key);
+        buffer.putShort(offset, (short) bytes.length);
+        buffer.put(offset + 2, bytes);
+    }
+
+    @Override
+    public String read(ByteBuffer buffer, int offset) {
+        final byte[] bytes = new byte[buffer.getShort(offset)];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte[] encode(String key) {
+        final byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        Preconditions.checkArgument(bytes.length <= maxBytes, "Key %s is longer than %s bytes", key, maxBytes);
+        return bytes;
+    }
+
+}
@@ -0,0 +1,44 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.file.mapped;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+final class UuidMappedKey implements MappedKey<UUID> {
+    static final UuidMappedKey INSTANCE = new UuidMappedKey();
+
+    private UuidMappedKey() {
+    }
+
+    @Override
+    public String getName() {
+        return "uuid";
+    }
+
+    @Override
+    public int getSize() {
+        return 16;
+    }
+
+    @Override
+    public int hash(UUID key) {
+        return key.hashCode();
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, int offset, UUID key) {
+        buffer.putLong(offset, key.getMostSignificantBits());
+        buffer.putLong(offset + 8, key.getLeastSignificantBits());
+    }
+
+    @Override
+    public UUID read(ByteBuffer buffer, int offset) {
+        return new UUID(buffer.getLong(offset), buffer.getLong(offset + 8));
+    }
+
+    @Override
+    public boolean matches(ByteBuffer buffer, int offset, UUID key) {
+        return buffer.getLong(offset) == key.getMostSignificantBits()
+                && buffer.getLong(offset + 8) == key.getLeastSignificantBits();
+    }
+
+}
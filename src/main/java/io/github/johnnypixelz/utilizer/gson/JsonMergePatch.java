@@ -0,0 +1,89 @@
+package io.github.johnnypixelz.utilizer.gson;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * JSON merge patches, as described by RFC 7386.
+ * <p>
+ * A patch is an object holding only the members that changed, with
+ * {@code null} for removed ones. Arrays and other values are replaced whole.
+ */
+public final class JsonMergePatch {
+
+    /**
+     * Builds the patch that turns {@code source} into {@code target}.
+     */
+    @NotNull
+    public static JsonElement diff(@NotNull JsonElement source, @NotNull JsonElement target) {
+        Objects.requireNonNull(source, "source");
+        Objects.requireNonNull(target, "target");
+
+        if (!source.isJsonObject() || !target.isJsonObject()) {
+            return target.deepCopy();
+        }
+
+        final JsonObject sourceObject = source.getAsJsonObject();
+        final JsonObject targetObject = target.getAsJsonObject();
+        final JsonObject patch = new JsonObject();
+
+        for (String member : sourceObject.keySet()) {
+            if (!targetObject.has(member)) {
+                patch.add(member, JsonNull.INSTANCE);
+            }
+        }
+
+        for (Map.Entry<String, JsonElement> entry : targetObject.entrySet()) {
+            final JsonElement sourceValue = sourceObject.get(entry.getKey());
+            if (entry.getValue().equals(sourceValue)) continue;
+
+            patch.add(entry.getKey(), sourceValue == null ? entry.getValue().deepCopy() : diff(sourceValue, entry.getValue()));
+        }
+
+        return patch;
+    }
+
+    /**
+     * Applies a patch made by {@link #diff(JsonElement, JsonElement)}.
+     *
+     * @return the patched copy, {@code target} itself is left untouched
+     */
+    @NotNull
+    public static JsonElement apply(@NotNull JsonElement target, @NotNull JsonElement patch) {
+        Objects.requireNonNull(target, "target");
+        Objects.requireNonNull(patch, "patch");
+
+        if (!patch.isJsonObject()) {
+            return patch.deepCopy();
+        }
+
+        final JsonObject result = target.isJsonObject() ? target.getAsJsonObject().deepCopy() : new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : patch.getAsJsonObject().entrySet()) {
+            if (entry.getValue().isJsonNull()) {
+                result.remove(entry.getKey());
+                continue;
+            }
+
+            final JsonElement current = result.get(entry.getKey());
+            result.add(entry.getKey(), apply(current == null ? JsonNull.INSTANCE : current, entry.getValue()));
+        }
+
+        return result;
+    }
+
+    /**
+     * @return whether the patch changes nothing
+     */
+    public static boolean isEmpty(@NotNull JsonElement patch) {
+        return patch.isJsonObject() && patch.getAsJsonObject().size() == 0;
+    }
+
+    private JsonMergePatch() {
+    }
+
+}
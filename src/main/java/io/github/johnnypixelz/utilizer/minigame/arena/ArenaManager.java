@@ -2,7 +2,6 @@ package io.github.johnnypixelz.utilizer.minigame.arena;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import io.github.johnnypixelz.utilizer.tasks.Tasks;
 import io.github.johnnypixelz.utilizer.file.adapters.InterfaceAdapter;
 import io.github.johnnypixelz.utilizer.file.storage.Storage;
 import io.github.johnnypixelz.utilizer.file.storage.container.file.FileStorageContainer;
@@ -49,6 +48,14 @@ public class ArenaManager<T extends Arena> {
     public void registerArena(String name, T arena) {
         if (arenaExists(name)) return;
         storageContainer.get().put(name, arena);
+        storageContainer.markDirty();
+    }
+
+    /**
+     * Reports that an arena changed, so the next autosave writes it.
+     */
+    public void markDirty() {
+        storageContainer.markDirty();
     }
 
     public ArenaManager<T> load() {
@@ -56,8 +63,14 @@ public class ArenaManager<T extends Arena> {
         return this;
     }
 
+    /**
+     * Saves every so many seconds, writing off the main thread. Saves are
+     * skipped when nothing was registered or reported with {@link #markDirty()},
+     * except for every {@value FileStorageContainer#FULL_SAVE_EVERY}th one,
+     * which writes anyway so arenas changed in place are not lost for long.
+     */
     public BukkitTask setupAutosave(long seconds) {
-        return Tasks.sync().timer(this::save, seconds * 20L);
+        return storageContainer.autoSave(seconds * 20L);
     }
 
     public void save() {
@@ -2,6 +2,7 @@ package io.github.johnnypixelz.utilizer.sql;
 
 import com.zaxxer.hikari.HikariConfig;
 import io.github.johnnypixelz.utilizer.sql.drivers.SQLDriver;
+import io.github.johnnypixelz.utilizer.sql.drivers.SqliteDriver;
 import org.bukkit.configuration.ConfigurationSection;
 
 import org.jetbrains.annotations.NotNull;
@@ -19,6 +20,16 @@ public class DatabaseCredentials {
         return new DatabaseCredentials(address, port, database, username, password, driver, options);
     }
 
+    /**
+     * Credentials for an embedded SQLite database.
+     *
+     * @param file The database file, relative to the plugin's data folder
+     */
+    @NotNull
+    public static DatabaseCredentials sqlite(@NotNull String file) {
+        return of("localhost", 0, file, "", "", new SqliteDriver());
+    }
+
     @NotNull
     public static DatabaseCredentials fromConfig(@NotNull ConfigurationSection section, SQLDriver... supportedDrivers) {
         if (supportedDrivers.length == 0) {
@@ -48,14 +59,15 @@ public class DatabaseCredentials {
             sqlDriver = supportedDrivers[0];
         }
 
-        return of(
+        return new DatabaseCredentials(
                 section.getString("address", "localhost"),
                 section.getInt("port", 3306),
                 section.getString("database", "minecraft"),
                 section.getString("username", "root"),
                 section.getString("password", "password"),
                 sqlDriver,
-                options
+                options,
+                section.getInt("pool-size", 0)
         );
     }
 
@@ -66,8 +78,13 @@ public class DatabaseCredentials {
     private final String password;
     private final SQLDriver sqlDriver;
     private final Map<String, String> options;
+    private final int maximumPoolSize;
 
     private DatabaseCredentials(@NotNull String address, int port, @NotNull String database, @NotNull String username, @NotNull String password, @NotNull SQLDriver sqlDriver, @NotNull Map<String, String> options) {
+        this(address, port, database, username, password, sqlDriver, options, 0);
+    }
+
+    private DatabaseCredentials(@NotNull String address, int port, @NotNull String database, @NotNull String username, @NotNull String password, @NotNull SQLDriver sqlDriver, @NotNull Map<String, String> options, int maximumPoolSize) {
         this.address = Objects.requireNonNull(address);
         this.port = port;
         this.database = Objects.requireNonNull(database);
@@ -75,6 +92,22 @@ public class DatabaseCredentials {
         this.password = Objects.requireNonNull(password);
         this.sqlDriver = Objects.requireNonNull(sqlDriver);
         this.options = Objects.requireNonNull(options);
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    /**
+     * Returns a copy of these credentials whose connection pool holds at most
+     * the given number of connections, instead of
+     * {@link SQLPools#getDefaultMaximumPoolSize()}. Clients only share a pool
+     * if they ask for the same size.
+     */
+    @NotNull
+    public DatabaseCredentials withMaximumPoolSize(int maximumPoolSize) {
+        if (maximumPoolSize <= 0) {
+            throw new IllegalArgumentException("maximumPoolSize must be positive");
+        }
+
+        return new DatabaseCredentials(address, port, database, username, password, sqlDriver, options, maximumPoolSize);
     }
 
     @NotNull
@@ -111,6 +144,13 @@ public class DatabaseCredentials {
         return options;
     }
 
+    /**
+     * @return the pool size these credentials ask for, or 0 to use the default
+     */
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
     @NotNull
     public HikariConfig getHikariConfig() {
         return sqlDriver.generateHikariConfig(this);
@@ -1,51 +1,61 @@
 package io.github.johnnypixelz.utilizer.sql;
 
-import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import io.github.johnnypixelz.utilizer.sql.dialects.SQLDialect;
 import io.github.johnnypixelz.utilizer.sql.handlers.PreparedStatementHandler;
 import io.github.johnnypixelz.utilizer.sql.handlers.ResultSetHandler;
+import io.github.johnnypixelz.utilizer.sql.handlers.TransactionHandler;
 import io.github.johnnypixelz.utilizer.tasks.Tasks;
 
 import org.jetbrains.annotations.NotNull;
 import java.io.Closeable;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Locale;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.OptionalInt;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * SQL class for opening SQL connections. Heavily inspired by lucko/helper library
  */
 public class SQLClient implements Closeable {
 
-    private static final AtomicInteger POOL_COUNTER = new AtomicInteger(0);
-
-    // https://github.com/brettwooldridge/HikariCP/wiki/About-Pool-Sizing
-    private static final int MAXIMUM_POOL_SIZE = (Runtime.getRuntime().availableProcessors() * 2) + 1;
-    private static final int MINIMUM_IDLE = Math.min(MAXIMUM_POOL_SIZE, 10);
-
-    private static final long MAX_LIFETIME = TimeUnit.MINUTES.toMillis(30);
-    private static final long CONNECTION_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
-    private static final long LEAK_DETECTION_THRESHOLD = TimeUnit.SECONDS.toMillis(10);
+    private static final Executor SYNC_EXECUTOR = runnable -> Tasks.sync().run(runnable);
+    private static final int TRANSACTION_ATTEMPTS = 3;
+    private static final long TRANSACTION_RETRY_DELAY = 20;
 
     HikariDataSource hikariDataSource;
+    private final SQLPools.Pool pool;
+    private final SQLExecutor executor;
+    private final SQLDialect dialect;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
 
+    /**
+     * Opens a client on the pool shared by every client with equal
+     * credentials, opening that pool first if this is the only one.
+     */
     public SQLClient(DatabaseCredentials databaseCredentials) {
-        final HikariConfig hikari = databaseCredentials.getHikariConfig();
-
-        hikari.setPoolName("sql-" + POOL_COUNTER.getAndIncrement());
-
-        hikari.setMaximumPoolSize(MAXIMUM_POOL_SIZE);
-        hikari.setMinimumIdle(MINIMUM_IDLE);
-
-        hikari.setMaxLifetime(MAX_LIFETIME);
-        hikari.setConnectionTimeout(CONNECTION_TIMEOUT);
-        hikari.setLeakDetectionThreshold(LEAK_DETECTION_THRESHOLD);
+        this.pool = SQLPools.acquire(databaseCredentials);
+        this.hikariDataSource = pool.getDataSource();
+        this.executor = pool.getExecutor();
+        this.dialect = databaseCredentials.getSqlDriver().getDialect();
+    }
 
-        this.hikariDataSource = new HikariDataSource(hikari);
+    /**
+     * Runs the callback on the main thread once the future completes
+     * successfully, e.g. {@code SQLClient.thenSync(client.queryAsync(...), result -> ...)}.
+     */
+    public static <T> CompletableFuture<Void> thenSync(@NotNull CompletableFuture<T> future, @NotNull Consumer<? super T> callback) {
+        return future.thenAcceptAsync(callback, SYNC_EXECUTOR);
     }
 
     @NotNull
@@ -53,8 +63,14 @@ public class SQLClient implements Closeable {
         return hikariDataSource;
     }
 
+    /**
+     * Borrows a connection from the pool, to be closed once done with.
+     *
+     * @throws SQLException if the pool has a single connection, as with
+     *                      SQLite, and this thread is already holding it
+     */
     public Connection getConnection() throws SQLException {
-        return hikariDataSource.getConnection();
+        return pool.getConnection();
     }
 
     public void execute(@NotNull String statement) {
@@ -75,11 +91,41 @@ public class SQLClient implements Closeable {
     }
 
     public void executeAsync(@NotNull String statement) {
-        Tasks.async().run(() -> execute(statement));
+        executeAsync(statement, preparedStatement -> {
+        });
     }
 
+    /**
+     * Runs the statement on this client's own executor, printing the stack
+     * trace of anything it fails with. {@link #executeFuture(String, PreparedStatementHandler)}
+     * leaves failures to the caller instead.
+     */
     public void executeAsync(@NotNull String statement, @NotNull PreparedStatementHandler preparer) {
-        Tasks.async().run(() -> execute(statement, preparer));
+        executeFuture(statement, preparer).exceptionally(throwable -> {
+            throwable.printStackTrace();
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> executeFuture(@NotNull String statement) {
+        return executeFuture(statement, preparedStatement -> {
+        });
+    }
+
+    /**
+     * Runs the statement on this client's own executor.
+     *
+     * @return a future completing once the statement ran, or exceptionally
+     * with the {@link SQLException} it failed with
+     */
+    public CompletableFuture<Void> executeFuture(@NotNull String statement, @NotNull PreparedStatementHandler preparer) {
+        return supplyAsync(() -> {
+            try (Connection connection = this.getConnection(); PreparedStatement preparedStatement = connection.prepareStatement(statement)) {
+                preparer.handle(preparedStatement);
+                preparedStatement.execute();
+                return null;
+            }
+        });
     }
 
     public <R> Optional<R> executeQuery(@NotNull String query, @NotNull ResultSetHandler<R> handler) {
@@ -109,9 +155,181 @@ public class SQLClient implements Closeable {
         }
     }
 
+    /**
+     * Looks up the JDBC type of a column, as one of {@link java.sql.Types}.
+     *
+     * @return the type, or empty if the table or column does not exist
+     */
+    public OptionalInt getColumnType(@NotNull String table, @NotNull String column) {
+        try (Connection connection = this.getConnection()) {
+            final DatabaseMetaData metaData = connection.getMetaData();
+            // Unquoted names are stored upper case by some databases and lower case by others.
+            for (String name : new String[]{table, table.toLowerCase(Locale.ROOT), table.toUpperCase(Locale.ROOT)}) {
+                try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, name, "%")) {
+                    while (columns.next()) {
+                        if (columns.getString("COLUMN_NAME").equalsIgnoreCase(column)) {
+                            return OptionalInt.of(columns.getInt("DATA_TYPE"));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException sqlException) {
+            sqlException.printStackTrace();
+        }
+
+        return OptionalInt.empty();
+    }
+
+    public <R> CompletableFuture<Optional<R>> queryAsync(@NotNull String query, @NotNull ResultSetHandler<R> handler) {
+        return queryAsync(query, preparedStatement -> {
+        }, handler);
+    }
+
+    /**
+     * Runs the query on this client's own executor.
+     *
+     * @return a future completing with what the handler returned, or
+     * exceptionally with the {@link SQLException} the query failed with
+     */
+    public <R> CompletableFuture<Optional<R>> queryAsync(@NotNull String query, @NotNull PreparedStatementHandler preparer, @NotNull ResultSetHandler<R> handler) {
+        return supplyAsync(() -> {
+            try (Connection connection = this.getConnection(); PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+                preparer.handle(preparedStatement);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    return Optional.ofNullable(handler.handle(resultSet));
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs the handler's statements on a single connection and commits them
+     * once, all or nothing.
+     * <pre>{@code
+     * client.transaction(tx -> {
+     *     tx.execute("UPDATE accounts SET balance = balance - ? WHERE id = ?", ...);
+     *     tx.execute("UPDATE accounts SET balance = balance + ? WHERE id = ?", ...);
+     *     return null;
+     * });
+     * }</pre>
+     * A transaction that fails on a deadlock or a serialization failure is
+     * rolled back and run again, up to three times in
+     * all, so the handler should not change anything outside of the database.
+     *
+     * @return what the handler returned
+     * @throws SQLException what the last attempt failed with, once rolled back
+     */
+    public <R> R transaction(@NotNull TransactionHandler<R> handler) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return runTransaction(handler);
+            } catch (SQLException exception) {
+                if (attempt >= TRANSACTION_ATTEMPTS || !isTransientFailure(exception)) {
+                    throw exception;
+                }
+
+                // Randomized, so the transactions that collided don't just collide again.
+                final long delay = TRANSACTION_RETRY_DELAY << (attempt - 1);
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(delay / 2, delay + 1));
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    throw exception;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs {@link #transaction(TransactionHandler)} on this client's own executor.
+     *
+     * @return a future completing with what the handler returned, or
+     * exceptionally with the {@link SQLException} the transaction failed with
+     */
+    public <R> CompletableFuture<R> transactionAsync(@NotNull TransactionHandler<R> handler) {
+        return supplyAsync(() -> transaction(handler));
+    }
+
+    /**
+     * Runs the task on this client's own executor, for async work that makes
+     * several calls on this client in a row.
+     *
+     * @return a future completing with what the task returned, or
+     * exceptionally with what it threw
+     */
+    public <R> CompletableFuture<R> callAsync(@NotNull Callable<R> task) {
+        return supplyAsync(task::call);
+    }
+
+    private <R> R runTransaction(TransactionHandler<R> handler) throws SQLException {
+        try (Connection connection = this.getConnection()) {
+            final boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            final SQLTransaction transaction = new SQLTransaction(connection);
+            try {
+                final R result = handler.handle(transaction);
+                transaction.flush();
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException exception) {
+                try {
+                    transaction.close();
+                    connection.rollback();
+                } catch (SQLException rollbackException) {
+                    exception.addSuppressed(rollbackException);
+                }
+                throw exception;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private boolean isTransientFailure(SQLException exception) {
+        // Batches report the failure of each statement as a chained exception.
+        for (Throwable throwable : exception) {
+            if (throwable instanceof SQLException sqlException && dialect.isTransientFailure(sqlException)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private <R> CompletableFuture<R> supplyAsync(SQLSupplier<R> supplier) {
+        final CompletableFuture<R> future = new CompletableFuture<>();
+
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(supplier.get());
+                } catch (Throwable throwable) {
+                    future.completeExceptionally(throwable);
+                }
+            });
+        } catch (RuntimeException exception) {
+            future.completeExceptionally(exception);
+        }
+
+        return future;
+    }
+
+    /**
+     * Lets go of the shared pool. Closing the last client on a pool waits for
+     * pending async work to finish, then closes the pool.
+     */
     @Override
     public void close() {
-        hikariDataSource.close();
+        if (closed.compareAndSet(false, true)) {
+            SQLPools.release(pool);
+        }
+    }
+
+    private interface SQLSupplier<R> {
+
+        R get() throws Exception;
+
     }
 
 }
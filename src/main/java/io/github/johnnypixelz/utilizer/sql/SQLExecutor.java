@@ -0,0 +1,135 @@
+package io.github.johnnypixelz.utilizer.sql;
+
+import io.github.johnnypixelz.utilizer.plugin.Logs;
+import org.bukkit.Bukkit;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads an {@link SQLClient} runs its async work on, kept apart from
+ * Bukkit's async pool so that slow queries cannot starve other plugins.
+ * <p>
+ * On Java 21 and newer every task gets its own virtual thread, otherwise a
+ * fixed pool of platform threads is used. Either way only a bounded number of
+ * tasks may be pending at once. Once that limit is reached, submitting from
+ * the main thread fails fast with a {@link RejectedExecutionException} instead
+ * of freezing the server, and submitting from any other thread waits for room.
+ * Work submitted from one of the executor's own threads, such as a callback
+ * chained onto one of its futures, goes over the limit instead, since waiting
+ * there could mean waiting on the very permit that thread is holding.
+ */
+final class SQLExecutor implements Executor {
+
+    private static final ThreadLocal<SQLExecutor> WORKER = new ThreadLocal<>();
+
+    static SQLExecutor create(String name, int threads, int maximumPending) {
+        final ExecutorService virtual = newVirtualThreadExecutor(name);
+        if (virtual != null) {
+            return new SQLExecutor(virtual, maximumPending);
+        }
+
+        final AtomicInteger counter = new AtomicInteger(0);
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        return new SQLExecutor(Executors.newFixedThreadPool(threads, threadFactory), maximumPending);
+    }
+
+    private final ExecutorService delegate;
+    private final Semaphore pending;
+
+    private SQLExecutor(ExecutorService delegate, int maximumPending) {
+        this.delegate = delegate;
+        this.pending = new Semaphore(maximumPending);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        final boolean acquired = acquire();
+
+        try {
+            delegate.execute(() -> {
+                WORKER.set(this);
+                try {
+                    task.run();
+                } finally {
+                    WORKER.remove();
+                    if (acquired) {
+                        pending.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            if (acquired) {
+                pending.release();
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Stops accepting work and waits for what is already queued to finish.
+     */
+    void shutdown(long timeout, TimeUnit unit) {
+        delegate.shutdown();
+
+        try {
+            if (!delegate.awaitTermination(timeout, unit)) {
+                Logs.warn("SQL tasks were still running after " + timeout + " " + unit.name().toLowerCase() + ", abandoning them.");
+                delegate.shutdownNow();
+            }
+        } catch (InterruptedException exception) {
+            delegate.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return whether a permit was taken, which is not the case for work
+     * submitted by one of this executor's own threads once it is full
+     */
+    private boolean acquire() {
+        if (pending.tryAcquire()) return true;
+        if (WORKER.get() == this) return false;
+
+        if (Bukkit.isPrimaryThread()) {
+            throw new RejectedExecutionException("Too many pending SQL tasks, refusing to block the main thread");
+        }
+
+        try {
+            pending.acquire();
+            return true;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room in the SQL queue", exception);
+        }
+    }
+
+    // Thread.ofVirtual() only exists on Java 21+, and we compile against 17.
+    private static ExecutorService newVirtualThreadExecutor(String name) {
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+
+            final Method nameMethod = builderClass.getMethod("name", String.class, long.class);
+            final Object namedBuilder = nameMethod.invoke(builder, name + "-", 0L);
+            final ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(namedBuilder);
+
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, threadFactory);
+        } catch (ReflectiveOperationException | LinkageError exception) {
+            return null;
+        }
+    }
+
+}
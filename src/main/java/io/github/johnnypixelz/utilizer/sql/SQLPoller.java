@@ -1,23 +1,66 @@
 package io.github.johnnypixelz.utilizer.sql;
 
 import io.github.johnnypixelz.utilizer.event.StatefulEventEmitter;
+import io.github.johnnypixelz.utilizer.sql.dialects.SQLDialect;
 import io.github.johnnypixelz.utilizer.tasks.Tasks;
 import org.bukkit.scheduler.BukkitTask;
 
 import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Passes messages between servers through a shared table.
+ * <p>
+ * Messages are read by id, an indexed keyset read of at most
+ * {@link #POLL_LIMIT} rows at a time. On PostgreSQL, senders also
+ * {@code NOTIFY} a channel named after the table, and a listening thread reads
+ * as soon as one arrives, so messages are picked up within milliseconds. The
+ * table stays the source of truth, so a notification missed while the
+ * listening connection was down is picked up all the same. Other databases are
+ * polled every few ticks, backing off while nothing is sent.
+ */
 public class SQLPoller implements Closeable {
+    private static final int POLL_LIMIT = 500;
+    // Idle polls stretch the interval up to this many times the configured one.
+    private static final int MAX_BACKOFF = 16;
+    private static final long CLEANUP_INTERVAL_TICKS = 20 * 60;
+
+    // Kept under the pool's leak detection threshold. The listening connection
+    // is handed back and taken again after every cycle.
+    private static final long LISTEN_CYCLE = TimeUnit.SECONDS.toMillis(5);
+    private static final int LISTEN_WAIT = (int) TimeUnit.SECONDS.toMillis(1);
+    private static final long LISTEN_RETRY_DELAY = TimeUnit.SECONDS.toMillis(5);
+
     private final SQLClient sqlClient;
+    private final SQLDialect dialect;
     private final String table;
     private final StatefulEventEmitter<String> eventEmitter;
     private final UUID pollerId;
 
     private long lastId = -1;
-    private BukkitTask pollTask;
+    // Rows up to this id had been read by the previous cleanup, so every
+    // poller has had a full cleanup interval to read them.
+    private long cleanupBoundary = -1;
+    // Separate from the poll lock, so senders never wait on a running poll.
+    private final Object backoffLock = new Object();
+    private int backoff = 1;
+    private int idleTicks = 0;
+
+    private volatile boolean closed = false;
+    private volatile BukkitTask pollTask;
     private BukkitTask cleanOldMessagesTask;
+    private Thread listenThread;
 
     public SQLPoller(DatabaseCredentials credentials, String table) {
         this(credentials, table, 20);
@@ -25,6 +68,7 @@ public class SQLPoller implements Closeable {
 
     public SQLPoller(DatabaseCredentials credentials, String table, int pollIntervalInTicks) {
         this.sqlClient = new SQLClient(credentials);
+        this.dialect = credentials.getSqlDriver().getDialect();
         this.table = table;
         this.eventEmitter = new StatefulEventEmitter<>();
         this.pollerId = UUID.randomUUID();
@@ -39,12 +83,13 @@ public class SQLPoller implements Closeable {
     public void initialize(int pollIntervalInTicks) {
         sqlClient.execute("""
                 CREATE TABLE IF NOT EXISTS %s (
-                    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+                    %s,
                     time BIGINT NOT NULL,
-                    message VARCHAR(255) NOT NULL,
+                    message %s NOT NULL,
                     poller_id VARCHAR(255) NOT NULL
                 )
-                """.formatted(table));
+                """.formatted(table, dialect.getAutoIncrementPrimaryKey("id"), dialect.getLargeTextType()));
+        widenMessageColumn();
 
         final Optional<Long> latestId = sqlClient.executeQuery("""
                 SELECT COALESCE(MAX(ID), -1) AS latest_id
@@ -59,57 +104,217 @@ public class SQLPoller implements Closeable {
         });
 
         this.lastId = latestId.orElse(-1L);
+        this.cleanupBoundary = lastId;
+
+        if (dialect.supportsNotifications()) {
+            this.listenThread = new Thread(this::listen, "sql-poller-" + table);
+            this.listenThread.setDaemon(true);
+            this.listenThread.start();
+        } else {
+            this.pollTask = Tasks.async().timer(this::tick, pollIntervalInTicks);
+        }
+
+        this.cleanOldMessagesTask = Tasks.async().timer(this::cleanOldMessages, CLEANUP_INTERVAL_TICKS);
+    }
 
-        this.pollTask = Tasks.async().timer(this::poll, pollIntervalInTicks);
-        this.cleanOldMessagesTask = Tasks.async().timer(this::cleanOldMessages, 20 * 30);
+    /**
+     * Tables made before messages were allowed past 255 characters cut off
+     * anything longer, which breaks the JSON of most synced values.
+     */
+    private void widenMessageColumn() {
+        final String alter = dialect.alterColumnType(table, "message", dialect.getLargeTextType(), true);
+        if (alter != null && sqlClient.getColumnType(table, "message").orElse(Types.OTHER) == Types.VARCHAR) {
+            sqlClient.execute(alter);
+        }
     }
 
     public StatefulEventEmitter<String> getEventEmitter() {
         return eventEmitter;
     }
 
+    /**
+     * @return the id this poller sends its messages under, unique to it
+     */
+    public UUID getPollerId() {
+        return pollerId;
+    }
+
     public void sendMessage(String message) {
+        final long time = Instant.now().toEpochMilli();
+
+        if (dialect.supportsNotifications()) {
+            // One round trip for both, and the notification goes out with
+            // the commit of the row it announces.
+            sqlClient.executeQuery("""
+                    WITH sent AS (
+                        INSERT INTO %s (time, message, poller_id)
+                        VALUES (?, ?, ?)
+                        RETURNING id
+                    )
+                    SELECT pg_notify(?, '')
+                    FROM sent
+                    """.formatted(table), preparedStatement -> {
+                preparedStatement.setLong(1, time);
+                preparedStatement.setString(2, message);
+                preparedStatement.setString(3, pollerId.toString());
+                preparedStatement.setString(4, table);
+            }, resultSet -> null);
+            return;
+        }
+
         sqlClient.execute("""
                 INSERT INTO %s (time, message, poller_id)
                 VALUES (?, ?, ?)
                 """.formatted(table), preparedStatement -> {
-            preparedStatement.setLong(1, Instant.now().toEpochMilli());
+            preparedStatement.setLong(1, time);
             preparedStatement.setString(2, message);
             preparedStatement.setString(3, pollerId.toString());
         });
+
+        // Replies tend to follow, so stop backing off.
+        synchronized (backoffLock) {
+            backoff = 1;
+        }
     }
 
-    private void poll() {
-        sqlClient.executeQuery("""
-                SELECT id, message
+    private void tick() {
+        synchronized (backoffLock) {
+            if (++idleTicks < backoff) return;
+            idleTicks = 0;
+        }
+
+        final boolean received = poll();
+
+        synchronized (backoffLock) {
+            backoff = received ? 1 : Math.min(backoff * 2, MAX_BACKOFF);
+        }
+    }
+
+    /**
+     * Reads every message sent since the last read.
+     *
+     * @return whether any message was read
+     */
+    private synchronized boolean poll() {
+        boolean received = false;
+
+        while (true) {
+            final List<String> messages = new ArrayList<>();
+            final Optional<Integer> rows = sqlClient.executeQuery("""
+                    SELECT id, message, poller_id
                     FROM %s
                     WHERE id > ?
-                    AND (UNIX_TIMESTAMP(NOW()) * 1000) - time < 60000
-                    AND poller_id != '?'
-                """.formatted(table), preparedStatement -> {
-            preparedStatement.setLong(1, lastId);
-            preparedStatement.setString(2, pollerId.toString());
-        }, resultSet -> {
-            long id = resultSet.getLong("id");
-            String message = resultSet.getString("message");
+                    ORDER BY id
+                    LIMIT %d
+                    """.formatted(table, POLL_LIMIT), preparedStatement -> {
+                preparedStatement.setLong(1, lastId);
+            }, resultSet -> {
+                int count = 0;
+                while (resultSet.next()) {
+                    count++;
+                    this.lastId = Math.max(this.lastId, resultSet.getLong("id"));
 
-            this.lastId = Math.max(this.lastId, id);
-            eventEmitter.emit(message);
-            return null;
-        });
+                    // Our own messages are skipped here rather than in the query,
+                    // so that lastId moves past them too.
+                    if (!pollerId.toString().equals(resultSet.getString("poller_id"))) {
+                        messages.add(resultSet.getString("message"));
+                    }
+                }
+
+                return count;
+            });
+
+            messages.forEach(eventEmitter::emit);
+            received |= !messages.isEmpty();
+
+            if (rows.orElse(0) < POLL_LIMIT) {
+                return received;
+            }
+        }
+    }
+
+    private void listen() {
+        while (!closed) {
+            try (Connection connection = sqlClient.getConnection(); Statement statement = connection.createStatement()) {
+                // Through reflection, since the driver is only downloaded at runtime.
+                final Class<?> pgConnectionType = Class.forName("org.postgresql.PGConnection");
+                final Object pgConnection = connection.unwrap(pgConnectionType);
+                final Method getNotifications = pgConnectionType.getMethod("getNotifications", int.class);
+
+                statement.execute("LISTEN \"" + table + "\"");
+
+                try {
+                    // Catches up on whatever was sent while we were not listening.
+                    poll();
+
+                    final long cycleEnd = System.currentTimeMillis() + LISTEN_CYCLE;
+                    while (!closed && System.currentTimeMillis() < cycleEnd) {
+                        final Object[] notifications = (Object[]) getNotifications.invoke(pgConnection, LISTEN_WAIT);
+                        if (notifications != null && notifications.length > 0) {
+                            poll();
+                        }
+                    }
+                } finally {
+                    statement.execute("UNLISTEN \"" + table + "\"");
+                }
+            } catch (SQLException | InvocationTargetException exception) {
+                if (closed) return;
+
+                exception.printStackTrace();
+                sleep(LISTEN_RETRY_DELAY);
+            } catch (ReflectiveOperationException exception) {
+                // Not the PostgreSQL driver after all, so fall back to polling.
+                exception.printStackTrace();
+                this.pollTask = Tasks.async().timer(this::tick, 20);
+                return;
+            }
+        }
     }
 
     private void cleanOldMessages() {
+        final long boundary;
+        synchronized (this) {
+            boundary = cleanupBoundary;
+            cleanupBoundary = lastId;
+        }
+
+        if (boundary < 0) return;
+
+        // Deleting by id keeps this on the primary key instead of scanning the table.
         sqlClient.execute("""
                 DELETE FROM %s
-                WHERE (UNIX_TIMESTAMP(NOW()) * 1000) - time > 60000
-                """.formatted(table));
+                WHERE id <= ?
+                """.formatted(table), preparedStatement -> {
+            preparedStatement.setLong(1, boundary);
+        });
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     @Override
     public void close() {
-        pollTask.cancel();
+        closed = true;
+
+        if (pollTask != null) {
+            pollTask.cancel();
+        }
+
         cleanOldMessagesTask.cancel();
+
+        if (listenThread != null) {
+            try {
+                listenThread.join(LISTEN_WAIT * 2L);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
         sqlClient.close();
     }
 
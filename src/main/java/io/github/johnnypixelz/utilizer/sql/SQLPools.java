@@ -0,0 +1,186 @@
+package io.github.johnnypixelz.utilizer.sql;
+
+import com.google.common.base.Preconditions;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.github.johnnypixelz.utilizer.plugin.Logs;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection pools shared between every {@link SQLClient} opened with
+ * credentials that connect the same way.
+ * <p>
+ * Storage handlers and pollers each open their own client, and each used to
+ * get its own pool, so a handful of synced maps would hold hundreds of idle
+ * connections to the same database. Now the first client opens the pool, the
+ * others share it, and it is closed once the last of them is closed.
+ * <p>
+ * Clients only share a pool if everything that shapes its connections is the
+ * same: the driver, the JDBC URL and options, the login and the pool size.
+ */
+public final class SQLPools {
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger(0);
+
+    private static final long MAX_LIFETIME = TimeUnit.MINUTES.toMillis(30);
+    private static final long CONNECTION_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+    private static final long LEAK_DETECTION_THRESHOLD = TimeUnit.SECONDS.toMillis(10);
+
+    // How many async tasks may wait for a connection before callers get pushed back on.
+    private static final int MAXIMUM_PENDING_TASKS = 1024;
+    private static final long SHUTDOWN_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    private static final Map<PoolKey, Pool> POOLS = new HashMap<>();
+
+    // https://github.com/brettwooldridge/HikariCP/wiki/About-Pool-Sizing
+    private static int defaultMaximumPoolSize = (Runtime.getRuntime().availableProcessors() * 2) + 1;
+
+    /**
+     * Sets the pool size used for credentials that do not set their own, see
+     * {@link DatabaseCredentials#withMaximumPoolSize(int)}. Only affects pools
+     * opened afterwards.
+     */
+    public static synchronized void setDefaultMaximumPoolSize(int maximumPoolSize) {
+        Preconditions.checkArgument(maximumPoolSize > 0, "maximumPoolSize must be positive");
+        defaultMaximumPoolSize = maximumPoolSize;
+    }
+
+    public static synchronized int getDefaultMaximumPoolSize() {
+        return defaultMaximumPoolSize;
+    }
+
+    public static synchronized int getOpenPools() {
+        return POOLS.size();
+    }
+
+    static synchronized Pool acquire(DatabaseCredentials credentials) {
+        final HikariConfig hikari = credentials.getHikariConfig();
+        final PoolKey key = PoolKey.of(credentials, hikari);
+        Pool pool = POOLS.get(key);
+
+        if (pool == null) {
+            for (PoolKey open : POOLS.keySet()) {
+                if (open.withMaximumPoolSize(0).equals(key.withMaximumPoolSize(0))) {
+                    Logs.warn("Opening a second pool to " + credentials.getDatabase() + ", as clients ask for different pool sizes ("
+                            + describeSize(open.maximumPoolSize()) + " and " + describeSize(key.maximumPoolSize()) + ")");
+                    break;
+                }
+            }
+
+            pool = open(credentials, hikari, key);
+            POOLS.put(key, pool);
+        }
+
+        pool.references++;
+        return pool;
+    }
+
+    private static String describeSize(int maximumPoolSize) {
+        return maximumPoolSize > 0 ? String.valueOf(maximumPoolSize) : "default";
+    }
+
+    static void release(Pool pool) {
+        synchronized (SQLPools.class) {
+            if (--pool.references > 0) return;
+
+            POOLS.remove(pool.key, pool);
+        }
+
+        // Outside the lock, draining may take a while.
+        pool.executor.shutdown(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+        pool.dataSource.close();
+    }
+
+    private static Pool open(DatabaseCredentials credentials, HikariConfig hikari, PoolKey key) {
+        final int driverMaximumPoolSize = credentials.getSqlDriver().getMaximumPoolSize();
+        int maximumPoolSize = credentials.getMaximumPoolSize() > 0 ? credentials.getMaximumPoolSize() : defaultMaximumPoolSize;
+        if (driverMaximumPoolSize > 0) {
+            maximumPoolSize = Math.min(maximumPoolSize, driverMaximumPoolSize);
+        }
+
+        final String poolName = "sql-" + POOL_COUNTER.getAndIncrement();
+        hikari.setPoolName(poolName);
+
+        hikari.setMaximumPoolSize(maximumPoolSize);
+        hikari.setMinimumIdle(Math.min(maximumPoolSize, 10));
+
+        hikari.setMaxLifetime(MAX_LIFETIME);
+        hikari.setConnectionTimeout(CONNECTION_TIMEOUT);
+        hikari.setLeakDetectionThreshold(LEAK_DETECTION_THRESHOLD);
+
+        final HikariDataSource dataSource = new HikariDataSource(hikari);
+        final SQLExecutor executor = SQLExecutor.create(poolName + "-worker", maximumPoolSize, MAXIMUM_PENDING_TASKS);
+        return new Pool(key, dataSource, executor);
+    }
+
+    /**
+     * What decides how a pool connects. Taken from the Hikari config the
+     * driver builds, so driver specific handling such as SQLite's file path
+     * is part of it.
+     */
+    private record PoolKey(String driver, String jdbcUrl, String dataSourceClassName, Map<String, String> properties,
+                           String username, String password, Map<String, String> options, int maximumPoolSize) {
+
+        private static PoolKey of(DatabaseCredentials credentials, HikariConfig hikari) {
+            final Map<String, String> properties = new TreeMap<>();
+            hikari.getDataSourceProperties().forEach((name, value) -> properties.put(String.valueOf(name), String.valueOf(value)));
+
+            return new PoolKey(credentials.getSqlDriver().getClass().getName(), hikari.getJdbcUrl(), hikari.getDataSourceClassName(), properties,
+                    Objects.requireNonNullElse(hikari.getUsername(), credentials.getUsername()),
+                    Objects.requireNonNullElse(hikari.getPassword(), credentials.getPassword()),
+                    new TreeMap<>(credentials.getOptions()), credentials.getMaximumPoolSize());
+        }
+
+        private PoolKey withMaximumPoolSize(int maximumPoolSize) {
+            return new PoolKey(driver, jdbcUrl, dataSourceClassName, properties, username, password, options, maximumPoolSize);
+        }
+
+    }
+
+    static final class Pool {
+        private final PoolKey key;
+        private final HikariDataSource dataSource;
+        private final SQLExecutor executor;
+        private int references = 0;
+        // Only set for pools that have a single connection.
+        private final SingleConnectionSource single;
+
+        private Pool(PoolKey key, HikariDataSource dataSource, SQLExecutor executor) {
+            this.key = key;
+            this.dataSource = dataSource;
+            this.executor = executor;
+            // The size the pool ended up with, not the one asked for, which is 0 unless set.
+            this.single = dataSource.getMaximumPoolSize() == 1 ? new SingleConnectionSource(dataSource) : null;
+        }
+
+        HikariDataSource getDataSource() {
+            return dataSource;
+        }
+
+        SQLExecutor getExecutor() {
+            return executor;
+        }
+
+        /**
+         * Borrows a connection. A pool of one connection fails right away when
+         * the thread holding it asks again.
+         *
+         * @see SingleConnectionSource
+         */
+        Connection getConnection() throws SQLException {
+            return single != null ? single.getConnection() : dataSource.getConnection();
+        }
+
+    }
+
+    private SQLPools() {
+    }
+
+}
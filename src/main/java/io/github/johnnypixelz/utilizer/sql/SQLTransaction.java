@@ -0,0 +1,119 @@
+package io.github.johnnypixelz.utilizer.sql;
+
+import io.github.johnnypixelz.utilizer.sql.handlers.PreparedStatementHandler;
+import io.github.johnnypixelz.utilizer.sql.handlers.ResultSetHandler;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * The statements of one {@link SQLClient#transaction} call, all run on the
+ * same connection and committed together.
+ * <p>
+ * {@link #batch} statements are queued and sent to the database in a single
+ * round trip. Consecutive batches of the same statement are grouped, and
+ * everything queued is sent before any other statement runs, so statements
+ * still run in the order they were given.
+ */
+public final class SQLTransaction {
+    private final Connection connection;
+
+    private String batchStatement = null;
+    private PreparedStatement batch = null;
+
+    SQLTransaction(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Runs the statement right away.
+     *
+     * @return how many rows it changed
+     */
+    public int execute(@NotNull String statement) throws SQLException {
+        return execute(statement, preparedStatement -> {
+        });
+    }
+
+    /**
+     * Runs the statement right away.
+     *
+     * @return how many rows it changed
+     */
+    public int execute(@NotNull String statement, @NotNull PreparedStatementHandler preparer) throws SQLException {
+        flush();
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(statement)) {
+            preparer.handle(preparedStatement);
+            return preparedStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * Queues the statement, to be sent with the others queued next to it.
+     * Use it for statements whose update count does not matter.
+     */
+    public void batch(@NotNull String statement, @NotNull PreparedStatementHandler preparer) throws SQLException {
+        if (!statement.equals(batchStatement)) {
+            flush();
+
+            batch = connection.prepareStatement(statement);
+            batchStatement = statement;
+        }
+
+        preparer.handle(batch);
+        batch.addBatch();
+    }
+
+    public <R> Optional<R> query(@NotNull String query, @NotNull ResultSetHandler<R> handler) throws SQLException {
+        return query(query, preparedStatement -> {
+        }, handler);
+    }
+
+    public <R> Optional<R> query(@NotNull String query, @NotNull PreparedStatementHandler preparer, @NotNull ResultSetHandler<R> handler) throws SQLException {
+        flush();
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparer.handle(preparedStatement);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return Optional.ofNullable(handler.handle(resultSet));
+            }
+        }
+    }
+
+    /**
+     * @return the transaction's connection, for anything not covered here.
+     * Do not commit or close it.
+     */
+    @NotNull
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Sends whatever is queued.
+     */
+    void flush() throws SQLException {
+        if (batch == null) return;
+
+        try {
+            batch.executeBatch();
+        } finally {
+            close();
+        }
+    }
+
+    void close() throws SQLException {
+        if (batch == null) return;
+
+        final PreparedStatement closing = batch;
+        batch = null;
+        batchStatement = null;
+        closing.close();
+    }
+
+}
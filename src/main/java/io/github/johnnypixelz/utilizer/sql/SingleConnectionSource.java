@@ -0,0 +1,54 @@
+package io.github.johnnypixelz.utilizer.sql;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lends out the connection of a pool that only has one, such as SQLite's.
+ * <p>
+ * The thread already holding the connection cannot be lent it a second time,
+ * and would otherwise wait out the connection timeout on itself, so asking
+ * fails right away instead. Other threads wait for it as usual.
+ */
+final class SingleConnectionSource {
+    private final DataSource dataSource;
+    // The thread holding the connection, if any.
+    private volatile Thread holder = null;
+
+    SingleConnectionSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    Connection getConnection() throws SQLException {
+        if (holder == Thread.currentThread()) {
+            throw new SQLException("This pool has a single connection and this thread is already holding it. "
+                    + "Run nested statements on the connection or transaction you already have.");
+        }
+
+        final Connection connection = dataSource.getConnection();
+        holder = Thread.currentThread();
+        return releasingOnClose(connection);
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        final AtomicBoolean closed = new AtomicBoolean(false);
+
+        return (Connection) Proxy.newProxyInstance(SingleConnectionSource.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            // Cleared before the connection goes back, so its next borrower is not mistaken for us.
+            if (method.getName().equals("close") && method.getParameterCount() == 0 && closed.compareAndSet(false, true)) {
+                holder = null;
+            }
+
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException exception) {
+                throw exception.getCause();
+            }
+        });
+    }
+
+}
@@ -0,0 +1,81 @@
+package io.github.johnnypixelz.utilizer.sql.dialects;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * MySQL and MariaDB.
+ */
+public class MysqlDialect implements SQLDialect {
+
+    @Override
+    public String getLargeTextType() {
+        return "MEDIUMTEXT";
+    }
+
+    @Override
+    public String getLargeBinaryType() {
+        return "MEDIUMBLOB";
+    }
+
+    @Override
+    public String getAutoIncrementPrimaryKey(String column) {
+        return column + " BIGINT PRIMARY KEY AUTO_INCREMENT";
+    }
+
+    @Override
+    public String alterColumnType(String table, String column, String type, boolean notNull) {
+        // MODIFY replaces the whole definition, so NOT NULL has to be restated.
+        return "ALTER TABLE " + table + " MODIFY COLUMN " + column + " " + type + (notNull ? " NOT NULL" : "");
+    }
+
+    @Override
+    public int getMaxParameters() {
+        return 65535;
+    }
+
+    @Override
+    public boolean isTransientFailure(SQLException exception) {
+        // Deadlocks (1213) already report 40001, lock wait timeouts (1205) do not.
+        return SQLDialect.super.isTransientFailure(exception) || exception.getErrorCode() == 1205;
+    }
+
+    @Override
+    public void configureStreaming(Connection connection, Statement statement, int fetchSize) throws SQLException {
+        // MariaDB's driver streams with any fetch size. Connector/J only does so with
+        // useCursorFetch, and otherwise streams row by row when given Integer.MIN_VALUE.
+        // useCursorFetch is left to the credentials' options, since it turns every
+        // statement on the connection into a server-side prepared statement.
+        final String driver = connection.getMetaData().getDriverName();
+        final String url = connection.getMetaData().getURL();
+        if (driver.contains("MySQL") && (url == null || !url.contains("useCursorFetch=true"))) {
+            statement.setFetchSize(Integer.MIN_VALUE);
+        } else {
+            statement.setFetchSize(fetchSize);
+        }
+    }
+
+    @Override
+    public String upsert(String table, List<String> keyColumns, List<String> valueColumns, int rows) {
+        final List<String> columns = new ArrayList<>(keyColumns);
+        columns.addAll(valueColumns);
+
+        if (valueColumns.isEmpty()) {
+            // Unlike INSERT IGNORE, this does not also swallow unrelated errors.
+            final String key = keyColumns.get(0);
+            return insert(table, columns, rows) + " ON DUPLICATE KEY UPDATE " + key + " = " + key;
+        }
+
+        // VALUES() is deprecated on MySQL 8.0.20+ but still works there, and row aliases don't exist on MariaDB.
+        final String updates = valueColumns.stream()
+                .map(column -> column + " = VALUES(" + column + ")")
+                .collect(Collectors.joining(", "));
+
+        return insert(table, columns, rows) + " ON DUPLICATE KEY UPDATE " + updates;
+    }
+
+}
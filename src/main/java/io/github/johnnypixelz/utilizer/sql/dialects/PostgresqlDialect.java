@@ -0,0 +1,64 @@
+package io.github.johnnypixelz.utilizer.sql.dialects;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class PostgresqlDialect implements SQLDialect {
+
+    @Override
+    public String getLargeTextType() {
+        return "TEXT";
+    }
+
+    @Override
+    public String getLargeBinaryType() {
+        return "BYTEA";
+    }
+
+    @Override
+    public String getAutoIncrementPrimaryKey(String column) {
+        return column + " BIGSERIAL PRIMARY KEY";
+    }
+
+    @Override
+    public String alterColumnType(String table, String column, String type, boolean notNull) {
+        // Constraints are left as they are by ALTER COLUMN ... TYPE.
+        final String alter = "ALTER TABLE " + table + " ALTER COLUMN " + column + " TYPE " + type;
+        if (type.equals(getLargeBinaryType())) {
+            // Text has no implicit cast to bytes.
+            return alter + " USING convert_to(" + column + ", 'UTF8')";
+        }
+
+        return alter;
+    }
+
+    @Override
+    public int getMaxParameters() {
+        // The wire protocol counts parameters in a signed 16 bit integer.
+        return 32767;
+    }
+
+    @Override
+    public boolean supportsNotifications() {
+        return true;
+    }
+
+    @Override
+    public String upsert(String table, List<String> keyColumns, List<String> valueColumns, int rows) {
+        final List<String> columns = new ArrayList<>(keyColumns);
+        columns.addAll(valueColumns);
+
+        final String conflict = " ON CONFLICT (" + String.join(", ", keyColumns) + ")";
+        if (valueColumns.isEmpty()) {
+            return insert(table, columns, rows) + conflict + " DO NOTHING";
+        }
+
+        final String updates = valueColumns.stream()
+                .map(column -> column + " = EXCLUDED." + column)
+                .collect(Collectors.joining(", "));
+
+        return insert(table, columns, rows) + conflict + " DO UPDATE SET " + updates;
+    }
+
+}
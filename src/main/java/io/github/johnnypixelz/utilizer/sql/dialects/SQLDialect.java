@@ -0,0 +1,141 @@
+package io.github.johnnypixelz.utilizer.sql.dialects;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+/**
+ * The parts of SQL that differ between databases. Every {@link
+ * io.github.johnnypixelz.utilizer.sql.drivers.SQLDriver} exposes the dialect
+ * of the database it connects to.
+ */
+public interface SQLDialect {
+
+    SQLDialect MYSQL = new MysqlDialect();
+    SQLDialect POSTGRESQL = new PostgresqlDialect();
+    SQLDialect SQLITE = new SqliteDialect();
+
+    /**
+     * Picks the dialect of whatever database the connection is open to, for
+     * code that is handed a bare {@link Connection}.
+     */
+    static SQLDialect of(Connection connection) throws SQLException {
+        final String product = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+        if (product.contains("postgres")) return POSTGRESQL;
+        if (product.contains("sqlite")) return SQLITE;
+
+        return MYSQL;
+    }
+
+    /**
+     * @return the column type for text too large for a VARCHAR
+     */
+    String getLargeTextType();
+
+    /**
+     * @return the column type for binary data of arbitrary size
+     */
+    String getLargeBinaryType();
+
+    /**
+     * @return the definition of a BIGINT primary key numbered by the database,
+     * as in {@code id BIGINT PRIMARY KEY AUTO_INCREMENT}
+     */
+    String getAutoIncrementPrimaryKey(String column);
+
+    /**
+     * Builds a statement changing the type of an existing column, keeping it
+     * {@code NOT NULL} if {@code notNull} is set.
+     *
+     * @return the statement, or null if the column can already hold values of
+     * the new type as it is
+     */
+    String alterColumnType(String table, String column, String type, boolean notNull);
+
+    /**
+     * @return how many {@code ?} placeholders a single statement may hold
+     */
+    int getMaxParameters();
+
+    /**
+     * @return whether the database can push notifications to listening
+     * connections, as PostgreSQL does with {@code LISTEN} and {@code NOTIFY}
+     */
+    default boolean supportsNotifications() {
+        return false;
+    }
+
+    /**
+     * @return whether the transaction failed only because it ran into another
+     * one, as with deadlocks and serialization failures, so running it again
+     * may well succeed
+     */
+    default boolean isTransientFailure(SQLException exception) {
+        // Class 40 is "transaction rollback", which covers both 40001 and
+        // PostgreSQL's 40P01 deadlock.
+        final String state = exception.getSQLState();
+        return state != null && state.startsWith("40");
+    }
+
+    /**
+     * Sets up a statement so its results are read from the server a few rows
+     * at a time, instead of all at once. The connection is already outside of
+     * auto-commit when this is called.
+     */
+    default void configureStreaming(Connection connection, Statement statement, int fetchSize) throws SQLException {
+        statement.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Builds an insert of {@code rows} rows that updates the value columns of
+     * rows whose key already exists, using the database's native upsert.
+     * Placeholders are in row order, key columns first within each row.
+     * A key must not appear twice in the same statement.
+     */
+    String upsert(String table, List<String> keyColumns, List<String> valueColumns, int rows);
+
+    /**
+     * Builds a plain insert of {@code rows} rows.
+     */
+    default String insert(String table, List<String> columns, int rows) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES " + placeholders(columns.size(), rows);
+    }
+
+    /**
+     * Builds a delete of every row whose key column is one of {@code keys} values.
+     */
+    default String deleteIn(String table, String keyColumn, int keys) {
+        return "DELETE FROM " + table + " WHERE " + keyColumn + " IN " + placeholders(keys, 1);
+    }
+
+    /**
+     * @return how many rows of {@code columns} columns fit in one statement,
+     * capped at {@code limit}
+     */
+    default int getMaxRows(int columns, int limit) {
+        return Math.max(1, Math.min(limit, getMaxParameters() / columns));
+    }
+
+    /**
+     * @return {@code rows} groups of {@code columns} placeholders, as in
+     * {@code (?, ?), (?, ?)}
+     */
+    static String placeholders(int columns, int rows) {
+        final StringJoiner row = new StringJoiner(", ", "(", ")");
+        for (int i = 0; i < columns; i++) {
+            row.add("?");
+        }
+
+        final String rowString = row.toString();
+        final StringJoiner joiner = new StringJoiner(", ");
+        for (int i = 0; i < rows; i++) {
+            joiner.add(rowString);
+        }
+
+        return joiner.toString();
+    }
+
+}
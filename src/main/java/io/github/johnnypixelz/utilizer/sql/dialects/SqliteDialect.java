@@ -0,0 +1,66 @@
+package io.github.johnnypixelz.utilizer.sql.dialects;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * SQLite 3.24 or newer, for its upserts.
+ */
+public class SqliteDialect implements SQLDialect {
+
+    @Override
+    public String getLargeTextType() {
+        return "TEXT";
+    }
+
+    @Override
+    public String getLargeBinaryType() {
+        return "BLOB";
+    }
+
+    @Override
+    public String getAutoIncrementPrimaryKey(String column) {
+        // Only this exact spelling makes the column an alias of the rowid.
+        return column + " INTEGER PRIMARY KEY AUTOINCREMENT";
+    }
+
+    @Override
+    public String alterColumnType(String table, String column, String type, boolean notNull) {
+        // Column types are only a preference in SQLite, any column holds text
+        // and blobs of any size, so there is never anything to change.
+        return null;
+    }
+
+    @Override
+    public boolean isTransientFailure(SQLException exception) {
+        // SQLITE_BUSY and SQLITE_LOCKED, along with their extended codes.
+        final int code = exception.getErrorCode() & 0xFF;
+        return code == 5 || code == 6;
+    }
+
+    @Override
+    public int getMaxParameters() {
+        // SQLITE_MAX_VARIABLE_NUMBER since 3.32.
+        return 32766;
+    }
+
+    @Override
+    public String upsert(String table, List<String> keyColumns, List<String> valueColumns, int rows) {
+        final List<String> columns = new ArrayList<>(keyColumns);
+        columns.addAll(valueColumns);
+
+        final String conflict = " ON CONFLICT (" + String.join(", ", keyColumns) + ")";
+        if (valueColumns.isEmpty()) {
+            return insert(table, columns, rows) + conflict + " DO NOTHING";
+        }
+
+        final String updates = valueColumns.stream()
+                .map(column -> column + " = excluded." + column)
+                .collect(Collectors.joining(", "));
+
+        return insert(table, columns, rows) + conflict + " DO UPDATE SET " + updates;
+    }
+
+}
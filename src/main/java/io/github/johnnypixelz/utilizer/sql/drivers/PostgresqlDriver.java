@@ -4,6 +4,7 @@ import com.zaxxer.hikari.HikariConfig;
 import io.github.johnnypixelz.utilizer.maven.Dependency;
 import io.github.johnnypixelz.utilizer.maven.DependencyLoader;
 import io.github.johnnypixelz.utilizer.sql.DatabaseCredentials;
+import io.github.johnnypixelz.utilizer.sql.dialects.SQLDialect;
 
 public class PostgresqlDriver implements SQLDriver {
 
@@ -27,6 +28,11 @@ public class PostgresqlDriver implements SQLDriver {
         return Dependency.of("org.postgresql", "postgresql", "42.7.3");
     }
 
+    @Override
+    public SQLDialect getDialect() {
+        return SQLDialect.POSTGRESQL;
+    }
+
     @Override
     public HikariConfig generateHikariConfig(DatabaseCredentials databaseCredentials) {
         final HikariConfig hikariConfig = new HikariConfig();
@@ -3,6 +3,7 @@ package io.github.johnnypixelz.utilizer.sql.drivers;
 import com.zaxxer.hikari.HikariConfig;
 import io.github.johnnypixelz.utilizer.maven.Dependency;
 import io.github.johnnypixelz.utilizer.sql.DatabaseCredentials;
+import io.github.johnnypixelz.utilizer.sql.dialects.SQLDialect;
 
 import org.jetbrains.annotations.Nullable;
 import java.util.HashMap;
@@ -19,6 +20,21 @@ public interface SQLDriver {
 
     Dependency getDriverDependency();
 
+    /**
+     * @return the SQL dialect spoken by this driver's database
+     */
+    default SQLDialect getDialect() {
+        return SQLDialect.MYSQL;
+    }
+
+    /**
+     * @return the most connections worth opening to this database, or 0 to
+     * leave it to the credentials and {@link io.github.johnnypixelz.utilizer.sql.SQLPools}
+     */
+    default int getMaximumPoolSize() {
+        return 0;
+    }
+
     default String getJdbcUrlSchema() {
         return "jdbc:{source}://{address}:{port}/{database}";
     }
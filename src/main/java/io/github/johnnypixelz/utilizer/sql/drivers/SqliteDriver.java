@@ -0,0 +1,89 @@
+package io.github.johnnypixelz.utilizer.sql.drivers;
+
+import com.zaxxer.hikari.HikariConfig;
+import io.github.johnnypixelz.utilizer.maven.Dependency;
+import io.github.johnnypixelz.utilizer.maven.DependencyLoader;
+import io.github.johnnypixelz.utilizer.plugin.Provider;
+import io.github.johnnypixelz.utilizer.sql.DatabaseCredentials;
+import io.github.johnnypixelz.utilizer.sql.dialects.SQLDialect;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An embedded database in a single file, for servers that have nobody to
+ * share their data with. The credentials' database is the file, relative to
+ * the plugin's data folder; address, port, username and password are unused.
+ * See {@link DatabaseCredentials#sqlite(String)}.
+ */
+public class SqliteDriver implements SQLDriver {
+
+    @Override
+    public String getName() {
+        return "sqlite";
+    }
+
+    @Override
+    public String getDriverClassName() {
+        return "org.sqlite.JDBC";
+    }
+
+    @Override
+    public String getDataSourceClassName() {
+        return "org.sqlite.SQLiteDataSource";
+    }
+
+    @Override
+    public Dependency getDriverDependency() {
+        return Dependency.of("org.xerial", "sqlite-jdbc", "3.45.3.0");
+    }
+
+    @Override
+    public SQLDialect getDialect() {
+        return SQLDialect.SQLITE;
+    }
+
+    /**
+     * SQLite allows a single writer at a time. More connections would only
+     * queue up on the file lock, or fail with SQLITE_BUSY once they timed out.
+     * <p>
+     * Code holding the connection, such as a transaction handler or a
+     * streaming read, must not use the client for anything else until it lets
+     * go. Asking for a second connection on the same thread fails right away
+     * with an {@link java.sql.SQLException}. Waiting on another thread that
+     * asks for one blocks until the connection timeout.
+     */
+    @Override
+    public int getMaximumPoolSize() {
+        return 1;
+    }
+
+    @Override
+    public HikariConfig generateHikariConfig(DatabaseCredentials databaseCredentials) {
+        final HikariConfig hikariConfig = new HikariConfig();
+
+        DependencyLoader.load(getDriverDependency());
+        hikariConfig.setDataSourceClassName(getDataSourceClassName());
+
+        File file = new File(databaseCredentials.getDatabase());
+        if (!file.isAbsolute()) {
+            file = new File(Provider.getPlugin().getDataFolder(), databaseCredentials.getDatabase());
+        }
+        file.getAbsoluteFile().getParentFile().mkdirs();
+
+        hikariConfig.addDataSourceProperty("url", "jdbc:sqlite:" + file.getAbsolutePath());
+
+        final Map<String, String> options = new HashMap<>();
+        // Readers no longer block the writer, and commits append to the log instead of rewriting pages.
+        options.put("journalMode", "WAL");
+        // In WAL mode NORMAL can only lose the last commits on power loss, never corrupt the file.
+        options.put("synchronous", "NORMAL");
+        options.put("busyTimeout", "5000");
+        options.putAll(databaseCredentials.getOptions());
+        options.forEach(hikariConfig::addDataSourceProperty);
+
+        return hikariConfig;
+    }
+
+}
@@ -0,0 +1,11 @@
+package io.github.johnnypixelz.utilizer.sql.handlers;
+
+import io.github.johnnypixelz.utilizer.sql.SQLTransaction;
+
+import java.sql.SQLException;
+
+public interface TransactionHandler<R> {
+
+    R handle(SQLTransaction transaction) throws SQLException;
+
+}
@@ -0,0 +1,560 @@
+package io.github.johnnypixelz.utilizer.sql.v2;
+
+import io.github.johnnypixelz.utilizer.sql.dialects.SQLDialect;
+import io.github.johnnypixelz.utilizer.sql.v2.annotations.Column;
+import io.github.johnnypixelz.utilizer.sql.v2.annotations.Index;
+import io.github.johnnypixelz.utilizer.sql.v2.annotations.Table;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Everything {@link TableWrapper} needs to know about a {@link Table} class,
+ * worked out once per class instead of once per row.
+ * <p>
+ * Fields are read and written through method handles, every column has its
+ * reader and binder picked up front, and the SQL of every operation is built
+ * here. Selects always list their columns in declaration order, so rows are
+ * read by index rather than by looking up column names.
+ */
+final class TableMapper<T> {
+
+    private static final ClassValue<TableMapper<?>> MAPPERS = new ClassValue<>() {
+        @Override
+        protected TableMapper<?> computeValue(Class<?> type) {
+            return new TableMapper<>(type);
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    static <T> TableMapper<T> of(Class<T> type) {
+        return (TableMapper<T>) MAPPERS.get(type);
+    }
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private final String table;
+    private final MethodHandle constructor;
+    private final List<ColumnMapping> columns;
+    private final ColumnMapping primaryKey;
+    private final Map<String, String> createIndexQueries;
+
+    private final String createTableQuery;
+    private final String selectAllQuery;
+    private final String insertQuery;
+    private final String updateQuery;
+    private final String deleteQuery;
+    private final String deleteAllQuery;
+    private final String selectByKeyQuery;
+
+    private TableMapper(Class<T> type) {
+        final Table tableSchema = type.getAnnotation(Table.class);
+        if (tableSchema == null) {
+            throw new IllegalArgumentException("Class must have @Table annotation");
+        }
+
+        this.table = tableSchema.name();
+
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            final Constructor<T> declaredConstructor = type.getDeclaredConstructor();
+            declaredConstructor.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(declaredConstructor).asType(CONSTRUCTOR_TYPE);
+
+            final List<ColumnMapping> columns = new ArrayList<>();
+            final List<IndexDefinition> indexes = new ArrayList<>();
+            ColumnMapping primaryKey = null;
+
+            for (Field field : type.getDeclaredFields()) {
+                final Column columnSchema = field.getAnnotation(Column.class);
+                if (columnSchema == null) continue;
+
+                field.setAccessible(true);
+                final ColumnMapping column = new ColumnMapping(
+                        columnSchema,
+                        columns.size() + 1,
+                        lookup.unreflectGetter(field).asType(GETTER_TYPE),
+                        lookup.unreflectSetter(field).asType(SETTER_TYPE),
+                        field.getType()
+                );
+
+                columns.add(column);
+                if (columnSchema.primaryKey() && primaryKey == null) {
+                    primaryKey = column;
+                }
+
+                for (Index index : field.getAnnotationsByType(Index.class)) {
+                    indexes.add(new IndexDefinition(index, List.of(columnSchema.name())));
+                }
+            }
+
+            for (Index index : type.getAnnotationsByType(Index.class)) {
+                if (index.columns().length == 0) {
+                    throw new IllegalArgumentException("@Index on " + type.getName() + " must list its columns");
+                }
+
+                indexes.add(new IndexDefinition(index, List.of(index.columns())));
+            }
+
+            if (columns.isEmpty()) {
+                throw new IllegalArgumentException(type.getName() + " has no @Column fields");
+            }
+
+            this.columns = List.copyOf(columns);
+            this.primaryKey = primaryKey;
+            this.createIndexQueries = buildIndexQueries(indexes);
+        } catch (NoSuchMethodException exception) {
+            throw new IllegalArgumentException(type.getName() + " needs a no-args constructor", exception);
+        } catch (IllegalAccessException exception) {
+            throw new IllegalArgumentException("Cannot access the fields of " + type.getName(), exception);
+        }
+
+        final String columnList = columns.stream().map(ColumnMapping::getName).collect(Collectors.joining(", "));
+        final String definitions = columns.stream()
+                .map(column -> column.getName() + " " + column.getSqlType() + (column == primaryKey ? " PRIMARY KEY" : ""))
+                .collect(Collectors.joining(", "));
+
+        this.createTableQuery = "CREATE TABLE IF NOT EXISTS " + table + " (" + definitions + ")";
+        this.selectAllQuery = "SELECT " + columnList + " FROM " + table;
+        this.insertQuery = "INSERT INTO " + table + " (" + columnList + ") VALUES " + placeholders(columns.size());
+        this.deleteAllQuery = "DELETE FROM " + table;
+
+        if (primaryKey != null) {
+            final String assignments = columns.stream()
+                    .filter(column -> column != primaryKey)
+                    .map(column -> column.getName() + " = ?")
+                    .collect(Collectors.joining(", "));
+
+            this.selectByKeyQuery = selectAllQuery + " WHERE " + primaryKey.getName() + " = ?";
+            this.updateQuery = assignments.isEmpty() ? null : "UPDATE " + table + " SET " + assignments + " WHERE " + primaryKey.getName() + " = ?";
+            this.deleteQuery = "DELETE FROM " + table + " WHERE " + primaryKey.getName() + " = ?";
+        } else {
+            this.selectByKeyQuery = null;
+            this.updateQuery = null;
+            this.deleteQuery = null;
+        }
+    }
+
+    String getTable() {
+        return table;
+    }
+
+    List<ColumnMapping> getColumns() {
+        return columns;
+    }
+
+    ColumnMapping getPrimaryKey() {
+        if (primaryKey == null) {
+            throw new IllegalArgumentException("Primary key not found");
+        }
+
+        return primaryKey;
+    }
+
+    ColumnMapping getPrimaryKeyIfPresent() {
+        return primaryKey;
+    }
+
+    /**
+     * @return the mapped column with that name, or null if there is none
+     */
+    ColumnMapping findColumn(String name) {
+        for (ColumnMapping column : columns) {
+            if (column.getName().equalsIgnoreCase(name)) return column;
+        }
+
+        return null;
+    }
+
+    String getCreateTableQuery() {
+        return createTableQuery;
+    }
+
+    /**
+     * @return the statement creating every declared index, by index name
+     */
+    Map<String, String> getCreateIndexQueries() {
+        return createIndexQueries;
+    }
+
+    String getSelectAllQuery() {
+        return selectAllQuery;
+    }
+
+    String getSelectByKeyQuery() {
+        getPrimaryKey();
+        return selectByKeyQuery;
+    }
+
+    String getInsertQuery() {
+        return insertQuery;
+    }
+
+    String getUpdateQuery() {
+        getPrimaryKey();
+        if (updateQuery == null) {
+            throw new IllegalArgumentException(table + " has no columns besides its primary key");
+        }
+
+        return updateQuery;
+    }
+
+    String getDeleteQuery() {
+        getPrimaryKey();
+        return deleteQuery;
+    }
+
+    /**
+     * Builds the dialect's native upsert of one row, bound with
+     * {@link #bindKeyFirst(PreparedStatement, Object)}.
+     */
+    String getUpsertQuery(SQLDialect dialect) {
+        final ColumnMapping key = getPrimaryKey();
+        final List<String> values = columns.stream()
+                .filter(column -> column != key)
+                .map(ColumnMapping::getName)
+                .toList();
+
+        return dialect.upsert(table, List.of(key.getName()), values, 1);
+    }
+
+    String getDeleteAllQuery() {
+        return deleteAllQuery;
+    }
+
+    /**
+     * Reads the current row of a result set whose columns are in the order of
+     * {@link #getSelectAllQuery()}.
+     */
+    @SuppressWarnings("unchecked")
+    T read(ResultSet resultSet) throws SQLException {
+        final Object object;
+        try {
+            object = constructor.invokeExact();
+        } catch (Throwable throwable) {
+            throw new IllegalStateException("Could not create a row object for " + table, throwable);
+        }
+
+        for (ColumnMapping column : columns) {
+            column.set(object, column.read(resultSet));
+        }
+
+        return (T) object;
+    }
+
+    /**
+     * Binds every column of the object, in declaration order, starting at
+     * parameter {@code offset + 1}.
+     *
+     * @return the index of the last bound parameter
+     */
+    int bindAll(PreparedStatement statement, T object, int offset) throws SQLException {
+        for (ColumnMapping column : columns) {
+            column.bind(statement, ++offset, object);
+        }
+
+        return offset;
+    }
+
+    /**
+     * Binds the object for {@link #getUpdateQuery()}: every other column, then
+     * the primary key.
+     */
+    void bindUpdate(PreparedStatement statement, T object) throws SQLException {
+        final ColumnMapping key = getPrimaryKey();
+        final Object keyValue = key.get(object);
+        if (keyValue == null) {
+            throw new IllegalArgumentException("Primary key value cannot be null");
+        }
+
+        int index = 0;
+        for (ColumnMapping column : columns) {
+            if (column == key) continue;
+            column.bind(statement, ++index, object);
+        }
+
+        key.getType().bind(statement, index + 1, keyValue);
+    }
+
+    /**
+     * Binds the primary key, then every other column in declaration order.
+     */
+    void bindKeyFirst(PreparedStatement statement, T object) throws SQLException {
+        final ColumnMapping key = getPrimaryKey();
+        key.bind(statement, 1, object);
+
+        int index = 1;
+        for (ColumnMapping column : columns) {
+            if (column == key) continue;
+            column.bind(statement, ++index, object);
+        }
+    }
+
+    private Map<String, String> buildIndexQueries(List<IndexDefinition> indexes) {
+        final Map<String, String> queries = new LinkedHashMap<>();
+
+        for (IndexDefinition index : indexes) {
+            for (String column : index.columns) {
+                if (findColumn(column) == null) {
+                    throw new IllegalArgumentException("Index on unknown column " + column + " in " + table);
+                }
+            }
+
+            final String name = index.name.isEmpty() ? "idx_" + table + "_" + String.join("_", index.columns) : index.name;
+            queries.put(name, "CREATE " + (index.unique ? "UNIQUE " : "") + "INDEX " + name + " ON " + table + " (" + String.join(", ", index.columns) + ")");
+        }
+
+        return Collections.unmodifiableMap(queries);
+    }
+
+    private static String placeholders(int count) {
+        final StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append('?');
+        }
+
+        return builder.append(')').toString();
+    }
+
+    private static final class IndexDefinition {
+        private final String name;
+        private final List<String> columns;
+        private final boolean unique;
+
+        private IndexDefinition(Index index, List<String> columns) {
+            this.name = index.name();
+            this.columns = columns;
+            this.unique = index.unique();
+        }
+
+    }
+
+    static final class ColumnMapping {
+        private final String name;
+        private final String sqlType;
+        private final int index;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final ColumnType type;
+        private final Class<?> fieldType;
+        private final boolean primitive;
+
+        private ColumnMapping(Column column, int index, MethodHandle getter, MethodHandle setter, Class<?> fieldType) {
+            this.name = column.name();
+            this.sqlType = column.type();
+            this.index = index;
+            this.getter = getter;
+            this.setter = setter;
+            this.type = ColumnType.of(fieldType, column.type());
+            this.fieldType = fieldType;
+            this.primitive = fieldType.isPrimitive();
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getSqlType() {
+            return sqlType;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        ColumnType getType() {
+            return type;
+        }
+
+        Object get(Object object) {
+            try {
+                return (Object) getter.invokeExact(object);
+            } catch (Throwable throwable) {
+                throw new IllegalStateException("Could not read column " + name, throwable);
+            }
+        }
+
+        void set(Object object, Object value) {
+            // Leave primitives at their default rather than failing on a NULL column.
+            if (value == null && primitive) return;
+
+            try {
+                setter.invokeExact(object, value);
+            } catch (Throwable throwable) {
+                throw new IllegalStateException("Could not write column " + name, throwable);
+            }
+        }
+
+        Object read(ResultSet resultSet) throws SQLException {
+            // Left to the driver, which converts to the field's type if it can.
+            if (type == ColumnType.OBJECT) {
+                return resultSet.getObject(index, fieldType);
+            }
+
+            return type.read(resultSet, index);
+        }
+
+        void bind(PreparedStatement statement, int parameter, Object object) throws SQLException {
+            type.bind(statement, parameter, get(object));
+        }
+
+    }
+
+    /**
+     * How one Java type is read from and bound to JDBC.
+     */
+    enum ColumnType {
+        STRING(Types.VARCHAR) {
+            @Override
+            Object read(ResultSet resultSet, int index) throws SQLException {
+                return resultSet.getString(index);
+            }
+        },
+        INT(Types.INTEGER) {
+            @Override
+            Object read(ResultSet resultSet, int index) throws SQLException {
+                final int value = resultSet.getInt(index);
+                return resultSet.wasNull() ? null : value;
+            }
+        },
+        LONG(Types.BIGINT) {
+            @Override
+            Object read(ResultSet resultSet, int index) throws SQLException {
+                final long value = resultSet.getLong(index);
+                return resultSet.wasNull() ? null : value;
+            }
+        },
+        DOUBLE(Types.DOUBLE) {
+            @Override
+            Object read(ResultSet resultSet, int index) throws SQLException {
+                final double value = resultSet.getDouble(index);
+                return resultSet.wasNull() ? null : value;
+            }
+        },
+        FLOAT(Types.REAL) {
+            @Override
+            Object read(ResultSet resultSet, int index) throws SQLException {
+                final float value = resultSet.getFloat(index);
+                return resultSet.wasNull() ? null : value;
+            }
+        },
+        BOOLEAN(Types.BOOLEAN) {
+            @Override
+            Object read(ResultSet resultSet, int index) throws SQLException {
+                final boolean value = resultSet.getBoolean(index);
+                return resultSet.wasNull() ? null : value;
+            }
+        },
+        BYTE(Types.TINYINT) {
+            @Override
+            Object read(ResultSet resultSet, int index) throws SQLException {
+                final byte value = resultSet.getByte(index);
+                return resultSet.wasNull() ? null : value;
+            }
+        },
+        UUID_STRING(Types.VARCHAR) {
+            @Override
+            Object read(ResultSet resultSet, int index) throws SQLException {
+                final String value = resultSet.getString(index);
+                return value == null ? null : UUID.fromString(value);
+            }
+
+            @Override
+            void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+                super.bind(statement, index, value == null ? null : value.toString());
+            }
+        },
+        /**
+         * For columns declared as {@code UUID}, as on PostgreSQL, which take
+         * the value itself rather than its text.
+         */
+        UUID_NATIVE(Types.OTHER) {
+            @Override
+            Object read(ResultSet resultSet, int index) throws SQLException {
+                return resultSet.getObject(index, UUID.class);
+            }
+        },
+        DATE(Types.DATE) {
+            @Override
+            Object read(ResultSet resultSet, int index) throws SQLException {
+                return resultSet.getDate(index);
+            }
+        },
+        TIMESTAMP(Types.TIMESTAMP) {
+            @Override
+            Object read(ResultSet resultSet, int index) throws SQLException {
+                return resultSet.getTimestamp(index);
+            }
+        },
+        /**
+         * Any other type, passed to and from the driver as it is.
+         */
+        OBJECT(Types.OTHER) {
+            @Override
+            Object read(ResultSet resultSet, int index) throws SQLException {
+                return resultSet.getObject(index);
+            }
+        };
+
+        private final int sqlType;
+
+        ColumnType(int sqlType) {
+            this.sqlType = sqlType;
+        }
+
+        abstract Object read(ResultSet resultSet, int index) throws SQLException;
+
+        void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+            if (value == null) {
+                statement.setNull(index, sqlType);
+            } else {
+                statement.setObject(index, value);
+            }
+        }
+
+        /**
+         * @param sqlType The type the column is declared with
+         */
+        static ColumnType of(Class<?> type, String sqlType) {
+            if (type == String.class) return STRING;
+            if (type == int.class || type == Integer.class) return INT;
+            if (type == long.class || type == Long.class) return LONG;
+            if (type == double.class || type == Double.class) return DOUBLE;
+            if (type == float.class || type == Float.class) return FLOAT;
+            if (type == boolean.class || type == Boolean.class) return BOOLEAN;
+            if (type == byte.class || type == Byte.class) return BYTE;
+            if (type == UUID.class) return isUuidColumn(sqlType) ? UUID_NATIVE : UUID_STRING;
+            if (type == Date.class) return DATE;
+            if (type == Timestamp.class) return TIMESTAMP;
+
+            return OBJECT;
+        }
+
+        private static boolean isUuidColumn(String sqlType) {
+            final String trimmed = sqlType.trim();
+            return trimmed.regionMatches(true, 0, "UUID", 0, 4)
+                    && (trimmed.length() == 4 || Character.isWhitespace(trimmed.charAt(4)));
+        }
+
+    }
+
+}
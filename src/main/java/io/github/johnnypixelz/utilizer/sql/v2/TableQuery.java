@@ -0,0 +1,239 @@
+package io.github.johnnypixelz.utilizer.sql.v2;
+
+import com.google.common.base.Preconditions;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A select on a {@link TableWrapper}'s table, built up from range predicates,
+ * an ordering and a limit.
+ * <p>
+ * Pages are fetched with keyset pagination: pass the last row of a page to
+ * {@link #after(Object)} to get the rows that follow it. Unlike an OFFSET,
+ * this reads only the rows it returns, as long as an index covers the
+ * ordering.
+ * <pre>{@code
+ * List<Account> top = accounts.query().orderByDescending("balance").limit(10).list();
+ * List<Account> next = accounts.query().orderByDescending("balance").limit(10).after(top.get(9)).list();
+ * }</pre>
+ */
+public final class TableQuery<T> {
+    private final TableMapper<T> mapper;
+    private final Connection connection;
+
+    private final List<String> predicates = new ArrayList<>();
+    private final List<Binding> bindings = new ArrayList<>();
+    private final List<TableMapper.ColumnMapping> orderColumns = new ArrayList<>();
+    private Boolean descending = null;
+    private T after = null;
+    private int limit = -1;
+
+    TableQuery(TableMapper<T> mapper, Connection connection) {
+        this.mapper = mapper;
+        this.connection = connection;
+    }
+
+    public TableQuery<T> equal(String column, Object value) {
+        return where(column, "=", value);
+    }
+
+    public TableQuery<T> notEqual(String column, Object value) {
+        return where(column, "<>", value);
+    }
+
+    public TableQuery<T> lessThan(String column, Object value) {
+        return where(column, "<", value);
+    }
+
+    public TableQuery<T> lessThanOrEqual(String column, Object value) {
+        return where(column, "<=", value);
+    }
+
+    public TableQuery<T> greaterThan(String column, Object value) {
+        return where(column, ">", value);
+    }
+
+    public TableQuery<T> greaterThanOrEqual(String column, Object value) {
+        return where(column, ">=", value);
+    }
+
+    /**
+     * Matches values from {@code from} to {@code to}, both included.
+     */
+    public TableQuery<T> between(String column, Object from, Object to) {
+        final TableMapper.ColumnMapping mapping = column(column);
+        predicates.add(mapping.getName() + " BETWEEN ? AND ?");
+        bindings.add(new Binding(mapping, from));
+        bindings.add(new Binding(mapping, to));
+        return this;
+    }
+
+    public TableQuery<T> orderBy(String column) {
+        return order(column, false);
+    }
+
+    public TableQuery<T> orderByDescending(String column) {
+        return order(column, true);
+    }
+
+    public TableQuery<T> limit(int limit) {
+        Preconditions.checkArgument(limit > 0, "limit must be positive");
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Only returns rows ordered after the given one. The primary key breaks
+     * ties between rows with equal ordering columns, so no row is skipped or
+     * repeated between pages.
+     *
+     * @param row The last row of the previous page
+     */
+    public TableQuery<T> after(T row) {
+        Preconditions.checkState(descending != null, "after() needs an ordering");
+        this.after = row;
+        return this;
+    }
+
+    public List<T> list() throws SQLException {
+        final List<T> results = new ArrayList<>();
+
+        try (PreparedStatement stmt = prepare(limit); ResultSet resultSet = stmt.executeQuery()) {
+            while (resultSet.next()) {
+                results.add(mapper.read(resultSet));
+            }
+        }
+
+        return results;
+    }
+
+    public Optional<T> first() throws SQLException {
+        try (PreparedStatement stmt = prepare(1); ResultSet resultSet = stmt.executeQuery()) {
+            return resultSet.next() ? Optional.of(mapper.read(resultSet)) : Optional.empty();
+        }
+    }
+
+    /**
+     * @return the query this builds, with {@code ?} for every value
+     */
+    public String toSql() {
+        return build(new ArrayList<>(), limit);
+    }
+
+    private TableQuery<T> where(String column, String operator, Object value) {
+        final TableMapper.ColumnMapping mapping = column(column);
+        predicates.add(mapping.getName() + " " + operator + " ?");
+        bindings.add(new Binding(mapping, value));
+        return this;
+    }
+
+    private TableQuery<T> order(String column, boolean descending) {
+        // Keyset pagination compares every ordering column the same way.
+        Preconditions.checkState(this.descending == null || this.descending == descending, "All ordering columns must share one direction");
+        this.descending = descending;
+        orderColumns.add(column(column));
+        return this;
+    }
+
+    private TableMapper.ColumnMapping column(String name) {
+        final TableMapper.ColumnMapping mapping = mapper.findColumn(name);
+        if (mapping == null) {
+            throw new IllegalArgumentException("Unknown column " + name + " in " + mapper.getTable());
+        }
+
+        return mapping;
+    }
+
+    private PreparedStatement prepare(int limit) throws SQLException {
+        final List<Binding> allBindings = new ArrayList<>();
+        final PreparedStatement stmt = connection.prepareStatement(build(allBindings, limit));
+
+        try {
+            for (int i = 0; i < allBindings.size(); i++) {
+                final Binding binding = allBindings.get(i);
+                binding.column.getType().bind(stmt, i + 1, binding.value);
+            }
+        } catch (SQLException | RuntimeException exception) {
+            stmt.close();
+            throw exception;
+        }
+
+        return stmt;
+    }
+
+    private String build(List<Binding> allBindings, int limit) {
+        final List<TableMapper.ColumnMapping> ordering = new ArrayList<>(orderColumns);
+        final TableMapper.ColumnMapping primaryKey = mapper.getPrimaryKeyIfPresent();
+        if (descending != null && primaryKey != null && !ordering.contains(primaryKey)) {
+            ordering.add(primaryKey);
+        }
+
+        final List<String> conditions = new ArrayList<>(predicates);
+        allBindings.addAll(bindings);
+
+        if (after != null) {
+            conditions.add(keysetCondition(ordering, allBindings));
+        }
+
+        final StringBuilder query = new StringBuilder(mapper.getSelectAllQuery());
+        if (!conditions.isEmpty()) {
+            query.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+
+        if (!ordering.isEmpty()) {
+            final String direction = descending ? " DESC" : " ASC";
+            query.append(" ORDER BY ");
+            for (int i = 0; i < ordering.size(); i++) {
+                if (i > 0) query.append(", ");
+                query.append(ordering.get(i).getName()).append(direction);
+            }
+        }
+
+        if (limit != -1) {
+            query.append(" LIMIT ").append(limit);
+        }
+
+        return query.toString();
+    }
+
+    // (a > ?) OR (a = ? AND b > ?) ..., which every database can run off an index on (a, b).
+    private String keysetCondition(List<TableMapper.ColumnMapping> ordering, List<Binding> allBindings) {
+        final String comparison = descending ? " < ?" : " > ?";
+        final List<String> alternatives = new ArrayList<>();
+
+        for (int i = 0; i < ordering.size(); i++) {
+            final List<String> parts = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                final TableMapper.ColumnMapping equalColumn = ordering.get(j);
+                parts.add(equalColumn.getName() + " = ?");
+                allBindings.add(new Binding(equalColumn, equalColumn.get(after)));
+            }
+
+            final TableMapper.ColumnMapping column = ordering.get(i);
+            parts.add(column.getName() + comparison);
+            allBindings.add(new Binding(column, column.get(after)));
+
+            alternatives.add("(" + String.join(" AND ", parts) + ")");
+        }
+
+        return "(" + String.join(" OR ", alternatives) + ")";
+    }
+
+    private static final class Binding {
+        private final TableMapper.ColumnMapping column;
+        private final Object value;
+
+        private Binding(TableMapper.ColumnMapping column, Object value) {
+            this.column = column;
+            this.value = value;
+        }
+
+    }
+
+}
@@ -1,163 +1,225 @@
 package io.github.johnnypixelz.utilizer.sql.v2;
 
-import io.github.johnnypixelz.utilizer.sql.v2.annotations.Column;
+import com.google.common.base.Preconditions;
+import io.github.johnnypixelz.utilizer.sql.dialects.SQLDialect;
 import io.github.johnnypixelz.utilizer.sql.v2.annotations.Table;
 
-import java.lang.reflect.Field;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class TableWrapper<T> {
     private final Class<T> type;
     private final Connection connection;
+    private final TableMapper<T> mapper;
+    private SQLDialect dialect;
+    private int batchSize = 500;
+    private int fetchSize = 1000;
 
     public TableWrapper(Class<T> type, Connection connection) {
+        this(type, connection, null);
+    }
+
+    /**
+     * @param dialect The dialect upserts are written in, or null to work it
+     *                out from the connection when first needed
+     */
+    public TableWrapper(Class<T> type, Connection connection, SQLDialect dialect) {
         this.type = type;
         this.connection = connection;
+        this.dialect = dialect;
 
         // check if type has @Table annotation
         if (type.getAnnotation(Table.class) == null) {
             throw new IllegalArgumentException("Class must have @Table annotation");
         }
+
+        this.mapper = TableMapper.of(type);
     }
 
+    /**
+     * Sets how many rows the bulk operations send per JDBC batch.
+     *
+     * @return This object, for chaining
+     */
+    public TableWrapper<T> batchSize(int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be positive");
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets how many rows {@link #stream()} and {@link #forEach(Consumer)} ask
+     * the database for at a time.
+     *
+     * @return This object, for chaining
+     */
+    public TableWrapper<T> fetchSize(int fetchSize) {
+        Preconditions.checkArgument(fetchSize > 0, "fetchSize must be positive");
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * Creates the table and every {@link io.github.johnnypixelz.utilizer.sql.v2.annotations.Index @Index}
+     * declared on it, skipping whichever already exist.
+     */
     public void createTable() throws Exception {
-        Table tableSchema = type.getAnnotation(Table.class);
-        StringBuilder query = new StringBuilder("CREATE TABLE IF NOT EXISTS " + tableSchema.name() + " (");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(mapper.getCreateTableQuery());
+        }
 
-        for (Field field : type.getDeclaredFields()) {
-            field.setAccessible(true);
-            Column columnSchema = field.getAnnotation(Column.class);
-            if (columnSchema == null) continue;
+        final Map<String, String> indexQueries = mapper.getCreateIndexQueries();
+        if (indexQueries.isEmpty()) return;
 
-            query.append(columnSchema.name()).append(" ").append(columnSchema.type());
-            if (columnSchema.primaryKey()) {
-                query.append(" PRIMARY KEY");
+        // MySQL has no CREATE INDEX IF NOT EXISTS, so look them up instead.
+        final DatabaseMetaData metaData = connection.getMetaData();
+        final Set<String> existing = new HashSet<>();
+        try (ResultSet indexInfo = metaData.getIndexInfo(connection.getCatalog(), null, storedName(metaData, mapper.getTable()), false, true)) {
+            while (indexInfo.next()) {
+                final String name = indexInfo.getString("INDEX_NAME");
+                if (name != null) existing.add(name.toLowerCase(Locale.ROOT));
             }
-            query.append(", ");
         }
 
-        query.setLength(query.length() - 2);
-        query.append(")");
-
         try (Statement stmt = connection.createStatement()) {
-            stmt.executeUpdate(query.toString());
+            for (Map.Entry<String, String> index : indexQueries.entrySet()) {
+                if (existing.contains(index.getKey().toLowerCase(Locale.ROOT))) continue;
+                stmt.executeUpdate(index.getValue());
+            }
         }
     }
 
+    /**
+     * The metadata lookups match names exactly, while the table was created
+     * with an unquoted name that the database folded to its own case, such as
+     * lower case on PostgreSQL.
+     */
+    private static String storedName(DatabaseMetaData metaData, String name) throws SQLException {
+        if (metaData.storesLowerCaseIdentifiers()) return name.toLowerCase(Locale.ROOT);
+        if (metaData.storesUpperCaseIdentifiers()) return name.toUpperCase(Locale.ROOT);
+        return name;
+    }
+
+    /**
+     * Starts a select with range predicates, ordering and keyset pagination.
+     */
+    public TableQuery<T> query() {
+        return new TableQuery<>(mapper, connection);
+    }
+
     public List<T> selectAll() throws Exception {
         List<T> results = new ArrayList<>();
-        Table tableSchema = type.getAnnotation(Table.class);
-        String query = "SELECT * FROM " + tableSchema.name();
 
         try (Statement stmt = connection.createStatement();
-             ResultSet resultSet = stmt.executeQuery(query)) {
+             ResultSet resultSet = stmt.executeQuery(mapper.getSelectAllQuery())) {
 
             while (resultSet.next()) {
-                T obj = type.getDeclaredConstructor().newInstance();
-
-                for (Field field : type.getDeclaredFields()) {
-                    field.setAccessible(true);
-                    Column column = field.getAnnotation(Column.class);
-                    if (column == null) continue;
-
-                    if (field.getType() == String.class) {
-                        field.set(obj, resultSet.getString(column.name()));
-                    } else if (field.getType() == double.class || field.getType() == Double.class) {
-                        field.set(obj, resultSet.getDouble(column.name()));
-                    } else if (field.getType() == float.class || field.getType() == Float.class) {
-                        field.set(obj, resultSet.getFloat(column.name()));
-                    } else if (field.getType() == int.class || field.getType() == Integer.class) {
-                        field.set(obj, resultSet.getInt(column.name()));
-                    } else if (field.getType() == long.class || field.getType() == Long.class) {
-                        field.set(obj, resultSet.getLong(column.name()));
-                    } else if (field.getType() == boolean.class || field.getType() == Boolean.class) {
-                        field.set(obj, resultSet.getBoolean(column.name()));
-                    } else if (field.getType() == byte.class || field.getType() == Byte.class) {
-                        field.set(obj, resultSet.getByte(column.name()));
-                    } else if (field.getType() == UUID.class) {
-                        field.set(obj, UUID.fromString(resultSet.getString(column.name())));
-                    } else if (field.getType() == Date.class) {
-                        field.set(obj, resultSet.getDate(column.name()));
-                    } else if (field.getType() == Timestamp.class) {
-                        field.set(obj, resultSet.getTimestamp(column.name()));
-                    } else {
-                        throw new IllegalArgumentException("Unsupported field type: " + field.getType());
-                    }
-                }
-
-                results.add(obj);
+                results.add(mapper.read(resultSet));
             }
         }
 
         return results;
     }
 
-    public T selectByKey(Object key) throws Exception {
-        Table tableSchema = type.getAnnotation(Table.class);
-        StringBuilder query = new StringBuilder("SELECT * FROM " + tableSchema.name());
+    /**
+     * Streams every row, reading them from the database
+     * {@link #fetchSize(int)} at a time and mapping each only once the stream
+     * gets to it, so scanning a table of any size takes constant memory. On
+     * MySQL's Connector/J rows come one at a time instead, unless the
+     * credentials set the {@code useCursorFetch=true} option.
+     * <p>
+     * The stream holds a cursor open on the connection until it is closed, so
+     * use it in a try-with-resources block, and do not run other statements on
+     * the connection meanwhile.
+     */
+    public Stream<T> stream() throws Exception {
+        final boolean autoCommit = connection.getAutoCommit();
+        // PostgreSQL ignores the fetch size in auto-commit mode.
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
 
-        Field primaryKeyField = null;
+        Statement opened = null;
+        final ResultSet resultSet;
+        try {
+            opened = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            getDialect().configureStreaming(connection, opened, fetchSize);
+            resultSet = opened.executeQuery(mapper.getSelectAllQuery());
+        } catch (SQLException | RuntimeException exception) {
+            endStream(opened, autoCommit);
+            throw exception;
+        }
 
-        for (Field field : type.getDeclaredFields()) {
-            field.setAccessible(true);
-            Column columnSchema = field.getAnnotation(Column.class);
-            if (columnSchema == null) continue;
+        final Statement stmt = opened;
+
+        final Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!resultSet.next()) return false;
+                    action.accept(mapper.read(resultSet));
+                    return true;
+                } catch (SQLException exception) {
+                    throw new IllegalStateException("Could not read the next row of " + mapper.getTable(), exception);
+                }
+            }
+        };
 
-            if (columnSchema.primaryKey()) {
-                primaryKeyField = field;
-                break;
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                resultSet.close();
+            } catch (SQLException exception) {
+                exception.printStackTrace();
             }
 
-            query.append(columnSchema.name()).append(" = ?, ");
-        }
+            endStream(stmt, autoCommit);
+        });
+    }
 
-        if (primaryKeyField == null) {
-            throw new IllegalArgumentException("Primary key not found");
+    /**
+     * Runs the consumer on every row, the same way {@link #stream()} reads
+     * them.
+     */
+    public void forEach(Consumer<? super T> consumer) throws Exception {
+        try (Stream<T> stream = stream()) {
+            stream.forEach(consumer);
         }
+    }
+
+    private void endStream(Statement stmt, boolean autoCommit) {
+        try {
+            if (stmt != null) {
+                stmt.close();
+            }
 
-        query.append(" WHERE ").append(primaryKeyField.getAnnotation(Column.class).name()).append(" = ?");
+            if (autoCommit) {
+                // Nothing was written, this only ends the read.
+                connection.commit();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+    }
 
-        try (PreparedStatement stmt = connection.prepareStatement(query.toString())) {
-            stmt.setObject(1, key);
+    public T selectByKey(Object key) throws Exception {
+        try (PreparedStatement stmt = connection.prepareStatement(mapper.getSelectByKeyQuery())) {
+            mapper.getPrimaryKey().getType().bind(stmt, 1, key);
 
             try (ResultSet resultSet = stmt.executeQuery()) {
                 if (resultSet.next()) {
-                    T obj = type.getDeclaredConstructor().newInstance();
-
-                    for (Field field : type.getDeclaredFields()) {
-                        field.setAccessible(true);
-                        Column columnSchema = field.getAnnotation(Column.class);
-                        if (columnSchema == null) continue;
-
-                        if (field.getType() == String.class) {
-                            field.set(obj, resultSet.getString(columnSchema.name()));
-                        } else if (field.getType() == double.class || field.getType() == Double.class) {
-                            field.set(obj, resultSet.getDouble(columnSchema.name()));
-                        } else if (field.getType() == float.class || field.getType() == Float.class) {
-                            field.set(obj, resultSet.getFloat(columnSchema.name()));
-                        } else if (field.getType() == int.class || field.getType() == Integer.class) {
-                            field.set(obj, resultSet.getInt(columnSchema.name()));
-                        } else if (field.getType() == long.class || field.getType() == Long.class) {
-                            field.set(obj, resultSet.getLong(columnSchema.name()));
-                        } else if (field.getType() == boolean.class || field.getType() == Boolean.class) {
-                            field.set(obj, resultSet.getBoolean(columnSchema.name()));
-                        } else if (field.getType() == byte.class || field.getType() == Byte.class) {
-                            field.set(obj, resultSet.getByte(columnSchema.name()));
-                        } else if (field.getType() == UUID.class) {
-                            field.set(obj, UUID.fromString(resultSet.getString(columnSchema.name())));
-                        } else if (field.getType() == Date.class) {
-                            field.set(obj, resultSet.getDate(columnSchema.name()));
-                        } else if (field.getType() == Timestamp.class) {
-                            field.set(obj, resultSet.getTimestamp(columnSchema.name()));
-                        } else {
-                            throw new IllegalArgumentException("Unsupported field type: " + field.getType());
-                        }
-                    }
-
-                    return obj;
+                    return mapper.read(resultSet);
                 }
             }
         }
@@ -166,47 +228,14 @@ public class TableWrapper<T> {
     }
 
     public T selectByColumn(String column, Object value) throws Exception {
-        Table tableSchema = type.getAnnotation(Table.class);
-        String query = "SELECT * FROM " + tableSchema.name() + " WHERE " + column + " = ?";
+        String query = mapper.getSelectAllQuery() + " WHERE " + column + " = ?";
 
         try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            stmt.setObject(1, value);
+            bindColumn(stmt, 1, column, value);
 
             try (ResultSet resultSet = stmt.executeQuery()) {
                 if (resultSet.next()) {
-                    T obj = type.getDeclaredConstructor().newInstance();
-
-                    for (Field field : type.getDeclaredFields()) {
-                        field.setAccessible(true);
-                        Column columnSchema = field.getAnnotation(Column.class);
-                        if (columnSchema == null) continue;
-
-                        if (field.getType() == String.class) {
-                            field.set(obj, resultSet.getString(columnSchema.name()));
-                        } else if (field.getType() == double.class || field.getType() == Double.class) {
-                            field.set(obj, resultSet.getDouble(columnSchema.name()));
-                        } else if (field.getType() == float.class || field.getType() == Float.class) {
-                            field.set(obj, resultSet.getFloat(columnSchema.name()));
-                        } else if (field.getType() == int.class || field.getType() == Integer.class) {
-                            field.set(obj, resultSet.getInt(columnSchema.name()));
-                        } else if (field.getType() == long.class || field.getType() == Long.class) {
-                            field.set(obj, resultSet.getLong(columnSchema.name()));
-                        } else if (field.getType() == boolean.class || field.getType() == Boolean.class) {
-                            field.set(obj, resultSet.getBoolean(columnSchema.name()));
-                        } else if (field.getType() == byte.class || field.getType() == Byte.class) {
-                            field.set(obj, resultSet.getByte(columnSchema.name()));
-                        } else if (field.getType() == UUID.class) {
-                            field.set(obj, UUID.fromString(resultSet.getString(columnSchema.name())));
-                        } else if (field.getType() == Date.class) {
-                            field.set(obj, resultSet.getDate(columnSchema.name()));
-                        } else if (field.getType() == Timestamp.class) {
-                            field.set(obj, resultSet.getTimestamp(columnSchema.name()));
-                        } else {
-                            throw new IllegalArgumentException("Unsupported field type: " + field.getType());
-                        }
-                    }
-
-                    return obj;
+                    return mapper.read(resultSet);
                 }
             }
         }
@@ -215,131 +244,145 @@ public class TableWrapper<T> {
     }
 
     public void insert(T obj) throws Exception {
-        Table tableSchema = type.getAnnotation(Table.class);
-        StringBuilder query = new StringBuilder("INSERT INTO " + tableSchema.name() + " (");
-        StringBuilder values = new StringBuilder("VALUES (");
-
-        for (Field field : type.getDeclaredFields()) {
-            field.setAccessible(true);
-            Column columnSchema = field.getAnnotation(Column.class);
-            if (columnSchema == null) continue;
-
-            query.append(columnSchema.name()).append(", ");
-            values.append("?, ");
+        try (PreparedStatement stmt = connection.prepareStatement(mapper.getInsertQuery())) {
+            mapper.bindAll(stmt, obj, 0);
+            stmt.executeUpdate();
         }
+    }
 
-        query.setLength(query.length() - 2);
-        values.setLength(values.length() - 2);
-        query.append(") ").append(values).append(")");
+    public void updateByObject(T obj) throws Exception {
+        try (PreparedStatement stmt = connection.prepareStatement(mapper.getUpdateQuery())) {
+            mapper.bindUpdate(stmt, obj);
+            stmt.executeUpdate();
+        }
+    }
 
-        try (PreparedStatement stmt = connection.prepareStatement(query.toString())) {
-            int i = 1;
-            for (Field field : type.getDeclaredFields()) {
-                field.setAccessible(true);
-                Column columnSchema = field.getAnnotation(Column.class);
-                if (columnSchema == null) continue;
+    public void deleteByObject(T obj) throws Exception {
+        final Object primaryKeyValue = mapper.getPrimaryKey().get(obj);
+        if (primaryKeyValue == null) {
+            throw new IllegalArgumentException("Primary key value cannot be null");
+        }
 
-                stmt.setObject(i++, field.get(obj));
-            }
+        deleteByKey(primaryKeyValue);
+    }
 
+    public void deleteByKey(Object key) throws Exception {
+        try (PreparedStatement stmt = connection.prepareStatement(mapper.getDeleteQuery())) {
+            mapper.getPrimaryKey().getType().bind(stmt, 1, key);
             stmt.executeUpdate();
         }
     }
 
-    public void updateByObject(T obj) throws Exception {
-        Table tableSchema = type.getAnnotation(Table.class);
-        StringBuilder query = new StringBuilder("UPDATE " + tableSchema.name() + " SET ");
-
-        Field primaryKeyField = null;
-        Object primaryKeyValue = null;
-
-        for (Field field : type.getDeclaredFields()) {
-            field.setAccessible(true);
-            Column columnSchema = field.getAnnotation(Column.class);
-            if (columnSchema == null) continue;
-
-            if (columnSchema.primaryKey()) {
-                primaryKeyField = field;
-                primaryKeyValue = field.get(obj);
-                if (primaryKeyValue == null) {
-                    throw new IllegalArgumentException("Primary key value cannot be null");
-                }
-                continue;
-            }
-
-            query.append(columnSchema.name()).append(" = ?, ");
+    public void deleteAll() throws Exception {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(mapper.getDeleteAllQuery());
         }
+    }
 
-        if (primaryKeyField == null) {
-            throw new IllegalArgumentException("Primary key not found");
-        }
+    /**
+     * Inserts every object, in batches of {@link #batchSize(int)} rows inside
+     * one transaction. If the connection is already inside a transaction, the
+     * rows become part of it instead.
+     *
+     * @return the update count of every row, in order. Drivers may report
+     * {@link Statement#SUCCESS_NO_INFO} instead of a count.
+     */
+    public int[] insertAll(Collection<? extends T> objects) throws Exception {
+        return executeBatched(mapper.getInsertQuery(), objects, (stmt, obj) -> mapper.bindAll(stmt, obj, 0));
+    }
 
-        query.setLength(query.length() - 2);
-        query.append(" WHERE ").append(primaryKeyField.getAnnotation(Column.class).name()).append(" = ?");
+    /**
+     * Inserts every object, or updates it if its primary key already exists,
+     * using the database's native upsert. Batched like {@link #insertAll}.
+     * <p>
+     * MySQL reports 1 for an inserted row, 2 for an updated one and 0 for one
+     * that was already up to date.
+     */
+    public int[] upsertAll(Collection<? extends T> objects) throws Exception {
+        return executeBatched(mapper.getUpsertQuery(getDialect()), objects, mapper::bindKeyFirst);
+    }
 
-        try (PreparedStatement stmt = connection.prepareStatement(query.toString())) {
-            int i = 1;
-            for (Field field : type.getDeclaredFields()) {
-                field.setAccessible(true);
-                Column columnSchema = field.getAnnotation(Column.class);
-                if (columnSchema == null || columnSchema.primaryKey()) continue;
+    /**
+     * Deletes the rows with the given primary keys. Batched like
+     * {@link #insertAll}.
+     *
+     * @return how many rows every key deleted, in order
+     */
+    public int[] deleteAllByKeys(Collection<?> keys) throws Exception {
+        final TableMapper.ColumnType keyType = mapper.getPrimaryKey().getType();
+        return executeBatched(mapper.getDeleteQuery(), keys, (stmt, key) -> keyType.bind(stmt, 1, key));
+    }
 
-                stmt.setObject(i++, field.get(obj));
-            }
+    private <E> int[] executeBatched(String query, Collection<? extends E> elements, Binder<E> binder) throws SQLException {
+        final int[] results = new int[elements.size()];
+        if (elements.isEmpty()) return results;
 
-            stmt.setObject(i, primaryKeyValue);
-            stmt.executeUpdate();
+        final boolean ownTransaction = connection.getAutoCommit();
+        if (ownTransaction) {
+            connection.setAutoCommit(false);
         }
-    }
 
-    public void deleteByObject(T obj) throws Exception {
-        Table tableSchema = type.getAnnotation(Table.class);
-        Field primaryKeyField = null;
-        Object primaryKeyValue = null;
-
-        for (Field field : type.getDeclaredFields()) {
-            field.setAccessible(true);
-            Column columnSchema = field.getAnnotation(Column.class);
-            if (columnSchema == null) continue;
-
-            if (columnSchema.primaryKey()) {
-                primaryKeyField = field;
-                primaryKeyValue = field.get(obj);
-                if (primaryKeyValue == null) {
-                    throw new IllegalArgumentException("Primary key value cannot be null");
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            int done = 0;
+            int pending = 0;
+
+            for (E element : elements) {
+                binder.bind(stmt, element);
+                stmt.addBatch();
+
+                if (++pending == batchSize) {
+                    done = copyResults(stmt.executeBatch(), results, done);
+                    pending = 0;
                 }
-                break;
             }
-        }
 
-        if (primaryKeyField == null) {
-            throw new IllegalArgumentException("Primary key not found");
-        }
+            if (pending > 0) {
+                copyResults(stmt.executeBatch(), results, done);
+            }
 
-        String query = "DELETE FROM " + tableSchema.name() + " WHERE " + primaryKeyField.getAnnotation(Column.class).name() + " = ?";
+            if (ownTransaction) {
+                connection.commit();
+            }
+        } catch (SQLException | RuntimeException exception) {
+            if (ownTransaction) {
+                connection.rollback();
+            }
 
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            stmt.setObject(1, primaryKeyValue);
-            stmt.executeUpdate();
+            throw exception;
+        } finally {
+            if (ownTransaction) {
+                connection.setAutoCommit(true);
+            }
         }
+
+        return results;
     }
 
-    public void deleteByKey(Object key) throws Exception {
-        Table tableSchema = type.getAnnotation(Table.class);
-        String query = "DELETE FROM " + tableSchema.name() + " WHERE id = ?";
+    private static int copyResults(int[] batchResults, int[] results, int offset) {
+        System.arraycopy(batchResults, 0, results, offset, batchResults.length);
+        return offset + batchResults.length;
+    }
 
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            stmt.setObject(1, key);
-            stmt.executeUpdate();
+    private SQLDialect getDialect() throws SQLException {
+        if (dialect == null) {
+            dialect = SQLDialect.of(connection);
         }
+
+        return dialect;
     }
 
-    public void deleteAll() throws Exception {
-        Table tableSchema = type.getAnnotation(Table.class);
-        String query = "DELETE FROM " + tableSchema.name();
+    private interface Binder<E> {
 
-        try (Statement stmt = connection.createStatement()) {
-            stmt.executeUpdate(query);
+        void bind(PreparedStatement stmt, E element) throws SQLException;
+
+    }
+
+    private void bindColumn(PreparedStatement stmt, int index, String column, Object value) throws SQLException {
+        final TableMapper.ColumnMapping mapping = mapper.findColumn(column);
+        if (mapping != null) {
+            mapping.getType().bind(stmt, index, value);
+        } else {
+            stmt.setObject(index, value);
         }
     }
 
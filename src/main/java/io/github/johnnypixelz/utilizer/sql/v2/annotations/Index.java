@@ -0,0 +1,21 @@
+package io.github.johnnypixelz.utilizer.sql.v2.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An index created along with the table. On a {@link Column} field it indexes
+ * that column; on the {@link Table} class it indexes the listed columns, in
+ * order.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.FIELD})
+@Repeatable(Indexes.class)
+public @interface Index {
+    String name() default ""; // Defaults to idx_<table>_<columns>
+    String[] columns() default {}; // Required on the class, ignored on a field
+    boolean unique() default false;
+}
@@ -0,0 +1,222 @@
+package io.github.johnnypixelz.utilizer.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class LoadingCacheTest {
+
+    @Test
+    public void testLoadsOnceAndCaches() {
+        final AtomicInteger loads = new AtomicInteger();
+        final LoadingCache<Integer, String> cache = LoadingCache.builder()
+                .build(key -> {
+                    loads.incrementAndGet();
+                    return "value-" + key;
+                });
+
+        assertEquals("value-1", cache.get(1));
+        assertEquals("value-1", cache.get(1));
+        assertEquals(1, loads.get());
+        assertTrue(cache.getIfPresent(1).isPresent());
+        assertFalse(cache.getIfPresent(2).isPresent());
+    }
+
+    @Test
+    public void testNullIsNotCached() {
+        final AtomicInteger loads = new AtomicInteger();
+        final LoadingCache<Integer, String> cache = LoadingCache.builder()
+                .build(key -> {
+                    loads.incrementAndGet();
+                    return null;
+                });
+
+        assertNull(cache.get(1));
+        assertNull(cache.get(1));
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testMaximumSizeIsRespected() {
+        final LoadingCache<Integer, Integer> cache = LoadingCache.builder()
+                .maximumSize(100)
+                .build(key -> key);
+
+        for (int i = 0; i < 10_000; i++) {
+            cache.get(i);
+        }
+
+        assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    public void testEvictionListenerSkipsInvalidation() {
+        final AtomicInteger evicted = new AtomicInteger();
+        final LoadingCache<Integer, Integer> cache = LoadingCache.builder()
+                .maximumSize(100)
+                .<Integer, Integer>evictionListener((key, value) -> evicted.incrementAndGet())
+                .build(key -> key);
+
+        for (int i = 0; i < 1_000; i++) {
+            cache.get(i);
+        }
+        cache.invalidateAll();
+        cache.put(1, 1);
+        cache.invalidate(1);
+
+        assertEquals(900, evicted.get());
+    }
+
+    @Test
+    public void testFrequentKeysSurviveScan() {
+        final LoadingCache<Integer, Integer> cache = LoadingCache.builder()
+                .maximumSize(100)
+                .build(key -> key);
+
+        for (int round = 0; round < 20; round++) {
+            for (int hot = 0; hot < 50; hot++) {
+                cache.get(hot);
+            }
+        }
+
+        // A long run of keys that are each seen once should not push out the hot set.
+        for (int cold = 1_000; cold < 11_000; cold++) {
+            cache.get(cold);
+        }
+
+        int survivors = 0;
+        for (int hot = 0; hot < 50; hot++) {
+            if (cache.getIfPresent(hot).isPresent()) survivors++;
+        }
+
+        assertTrue("only " + survivors + " hot keys survived", survivors >= 45);
+    }
+
+    @Test
+    public void testMaximumWeightIsRespected() {
+        final LoadingCache<Integer, String> cache = LoadingCache.builder()
+                .maximumWeight(1_000)
+                .<Integer, String>weigher((key, value) -> value.length())
+                .build(key -> "x".repeat(key % 50 + 1));
+
+        for (int i = 0; i < 5_000; i++) {
+            cache.get(i);
+        }
+
+        assertTrue(cache.weightedSize() <= 1_000);
+    }
+
+    @Test
+    public void testExpireAfterWrite() {
+        final AtomicLong time = new AtomicLong();
+        final AtomicInteger loads = new AtomicInteger();
+        final LoadingCache<Integer, Integer> cache = LoadingCache.builder()
+                .expireAfterWrite(10, TimeUnit.SECONDS)
+                .ticker(time::get)
+                .build(key -> loads.incrementAndGet());
+
+        assertEquals(1, (int) cache.get(1));
+        time.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1, (int) cache.get(1));
+        time.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(2, (int) cache.get(1));
+    }
+
+    @Test
+    public void testExpireAfterAccess() {
+        final AtomicLong time = new AtomicLong();
+        final LoadingCache<Integer, Integer> cache = LoadingCache.builder()
+                .expireAfterAccess(10, TimeUnit.SECONDS)
+                .ticker(time::get)
+                .build(key -> key);
+
+        cache.get(1);
+        cache.get(2);
+
+        for (int i = 0; i < 5; i++) {
+            time.addAndGet(TimeUnit.SECONDS.toNanos(6));
+            cache.get(1);
+        }
+
+        cache.cleanUp();
+        assertTrue(cache.getIfPresent(1).isPresent());
+        assertFalse(cache.getIfPresent(2).isPresent());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testGetAllLoadsMissingInOneBatch() {
+        final AtomicInteger batches = new AtomicInteger();
+        final LoadingCache<Integer, Integer> cache = LoadingCache.builder()
+                .build(new CacheLoader<Integer, Integer>() {
+                    @Override
+                    public Integer load(Integer key) {
+                        return key * 2;
+                    }
+
+                    @Override
+                    public Map<Integer, Integer> loadAll(Set<? extends Integer> keys) {
+                        batches.incrementAndGet();
+                        final Map<Integer, Integer> values = new HashMap<>();
+                        for (Integer key : keys) {
+                            if (key != 3) values.put(key, key * 2);
+                        }
+                        return values;
+                    }
+                });
+
+        cache.get(1);
+
+        final Map<Integer, Integer> values = cache.getAll(List.of(1, 2, 3, 4));
+        assertEquals(1, batches.get());
+        assertEquals(List.of(1, 2, 4), List.copyOf(values.keySet()));
+        assertEquals(8, (int) values.get(4));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void testRecordStats() {
+        final LoadingCache<Integer, Integer> cache = LoadingCache.builder()
+                .maximumSize(10)
+                .recordStats("loading-cache-test")
+                .build(key -> key);
+
+        cache.get(1);
+        cache.get(1);
+        cache.getIfPresent(2);
+        for (int i = 0; i < 100; i++) {
+            cache.get(i);
+        }
+
+        final CacheStatsSnapshot stats = CacheRegistry.get("loading-cache-test").orElseThrow().snapshot();
+        assertEquals(101, stats.getMisses());
+        assertEquals(2, stats.getHits());
+        assertEquals(100, stats.getLoads());
+        assertEquals(100, cache.size() + stats.getEvictions());
+
+        CacheRegistry.unregister("loading-cache-test");
+    }
+
+    @Test
+    public void testStatsSnapshotDumpsToJson() {
+        final JsonObject idle = new Gson().toJsonTree(new CacheStatsSnapshot(0, 0, 0, 0, 0, 0, 0)).getAsJsonObject();
+        assertEquals(0.0, idle.get("hitRate").getAsDouble(), 0);
+
+        final JsonObject busy = new Gson().toJsonTree(new CacheStatsSnapshot(3, 1, 1, 0, 2_000_000, 2_000_000, 0)).getAsJsonObject();
+        assertEquals(0.75, busy.get("hitRate").getAsDouble(), 0);
+        assertEquals(2_000_000, busy.get("totalLoadNanos").getAsLong());
+        assertEquals(2_000_000, busy.get("maxLoadNanos").getAsLong());
+    }
+
+}
@@ -0,0 +1,39 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.database.sql.codec;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ValueCodecTest {
+    private static final JsonElement PROFILE = JsonParser.parseString("""
+            {"name":"Steve","coins":1500,"balance":12.75,"big":123456789012345678901234567890,
+             "muted":false,"nickname":null,"homes":[{"world":"world","x":-120,"y":64,"z":3.5}],"tags":[]}
+            """);
+
+    @Test
+    public void testEveryCodecRoundTrips() {
+        for (ValueCodec codec : new ValueCodec[]{ValueCodec.JSON, ValueCodec.BINARY, ValueCodec.DEFLATE}) {
+            final byte[] stored = codec.write(PROFILE);
+
+            assertEquals(codec.getId(), stored[0]);
+            assertEquals(codec.toString(), PROFILE, ValueCodec.read(stored));
+        }
+    }
+
+    @Test
+    public void testReadsLegacyJsonText() {
+        final byte[] legacy = PROFILE.toString().getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(PROFILE, ValueCodec.read(legacy));
+    }
+
+    @Test
+    public void testBinaryIsSmallerThanJson() {
+        assertTrue(ValueCodec.BINARY.encode(PROFILE).length < ValueCodec.JSON.encode(PROFILE).length);
+    }
+
+}
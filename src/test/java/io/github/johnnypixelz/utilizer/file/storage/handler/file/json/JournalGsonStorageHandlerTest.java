@@ -0,0 +1,97 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.file.json;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JournalGsonStorageHandlerTest {
+
+    @Test
+    public void testTornTrailingRecordIsCutOff() throws IOException {
+        final byte[] first = JournalGsonStorageHandler.record(JournalGsonStorageHandler.PUT, "\"a\"", "1");
+        final byte[] second = JournalGsonStorageHandler.record(JournalGsonStorageHandler.PUT, "\"b\"", "2");
+        final byte[] whole = concat(JournalGsonStorageHandler.fileHeader(3), first, second);
+        final Path journal = write(Arrays.copyOf(whole, whole.length - 3));
+
+        final Map<String, String> entries = new HashMap<>();
+        final Map<String, Integer> sizes = new HashMap<>();
+        final JournalGsonStorageHandler.Replay replay = JournalGsonStorageHandler.replay(journal, 3, entries, sizes);
+
+        final long intact = JournalGsonStorageHandler.fileHeader(3).length + first.length;
+        assertFalse(replay.stale());
+        assertEquals(intact, replay.length());
+        assertEquals(second.length - 3, replay.dropped());
+        assertEquals(Map.of("\"a\"", "1"), entries);
+        assertEquals(Integer.valueOf(first.length), sizes.get("\"a\""));
+        assertEquals(intact, Files.size(journal));
+    }
+
+    @Test
+    public void testRemovalsAreReplayed() throws IOException {
+        final Path journal = write(concat(JournalGsonStorageHandler.fileHeader(1),
+                JournalGsonStorageHandler.record(JournalGsonStorageHandler.PUT, "\"a\"", "1"),
+                JournalGsonStorageHandler.record(JournalGsonStorageHandler.REMOVE, "\"a\"", null)));
+
+        final Map<String, String> entries = new HashMap<>(Map.of("\"b\"", "2"));
+        final Map<String, Integer> sizes = new HashMap<>(Map.of("\"b\"", 20));
+        JournalGsonStorageHandler.replay(journal, 1, entries, sizes);
+
+        assertEquals(Map.of("\"b\"", "2"), entries);
+        assertEquals(Map.of("\"b\"", 20), sizes);
+    }
+
+    @Test
+    public void testJournalOfAnOlderGenerationIsIgnored() throws IOException {
+        final Path journal = write(concat(JournalGsonStorageHandler.fileHeader(2),
+                JournalGsonStorageHandler.record(JournalGsonStorageHandler.PUT, "\"a\"", "old")));
+
+        final Map<String, String> entries = new HashMap<>(Map.of("\"a\"", "new"));
+        final Map<String, Integer> sizes = new HashMap<>();
+        final JournalGsonStorageHandler.Replay replay = JournalGsonStorageHandler.replay(journal, 3, entries, sizes);
+
+        assertTrue(replay.stale());
+        assertEquals(0, replay.length());
+        assertEquals(Map.of("\"a\"", "new"), entries);
+        assertFalse(Files.exists(journal));
+    }
+
+    @Test
+    public void testSnapshotIsNeverCut() throws IOException {
+        final byte[] whole = concat(JournalGsonStorageHandler.fileHeader(7),
+                JournalGsonStorageHandler.record(JournalGsonStorageHandler.PUT, "\"a\"", "1"));
+        final Path snapshot = write(Arrays.copyOf(whole, whole.length - 1));
+
+        final JournalGsonStorageHandler.Replay replay = JournalGsonStorageHandler.replay(snapshot, -1, new HashMap<>(), new HashMap<>());
+
+        assertEquals(7, replay.generation());
+        assertEquals(whole.length - 1, Files.size(snapshot));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        JournalGsonStorageHandler.replay(write("{}".getBytes()), -1, new HashMap<>(), new HashMap<>());
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            output.writeBytes(part);
+        }
+        return output.toByteArray();
+    }
+
+    private static Path write(byte[] bytes) throws IOException {
+        final Path path = Files.createTempFile("journal", ".journal");
+        path.toFile().deleteOnExit();
+        return Files.write(path, bytes);
+    }
+
+}
@@ -0,0 +1,110 @@
+package io.github.johnnypixelz.utilizer.file.storage.handler.file.mapped;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class MappedStorageHandlerTest {
+    private final MappedSchema.Builder builder = MappedSchema.builder();
+    private final MappedField.IntField kills = builder.intField("kills");
+    private final MappedField.LongField playtime = builder.longField("playtime");
+    private final MappedField.IntField blocks = builder.intArray("blocks", 4);
+    private final MappedSchema schema = builder.build();
+
+    @Test
+    public void testMissingKeysReadZero() throws IOException {
+        try (MappedStorageHandler<UUID> handler = open(folder(), schema)) {
+            final UUID player = UUID.randomUUID();
+
+            assertEquals(0, handler.getInt(player, kills));
+            assertFalse(handler.contains(player));
+            assertEquals(0, handler.size());
+        }
+    }
+
+    @Test
+    public void testValuesSurviveReopening() throws IOException {
+        final File folder = folder();
+        final UUID player = UUID.randomUUID();
+
+        try (MappedStorageHandler<UUID> handler = open(folder, schema)) {
+            handler.setInt(player, kills, 7);
+            handler.addLong(player, playtime, 1200);
+            handler.addInt(player, blocks.at(2), 3);
+        }
+
+        try (MappedStorageHandler<UUID> handler = open(folder, schema)) {
+            assertEquals(7, handler.getInt(player, kills));
+            assertEquals(1200, handler.getLong(player, playtime));
+            assertEquals(3, handler.getInt(player, blocks.at(2)));
+            assertEquals(0, handler.getInt(player, blocks.at(1)));
+            assertEquals(1, handler.size());
+        }
+    }
+
+    @Test
+    public void testGrowsAndRemoves() throws IOException {
+        try (MappedStorageHandler<Long> handler = new MappedStorageHandler<>("counters", MappedKey.longKey(), schema, 1, folder())) {
+            for (long key = 0; key < 5000; key++) {
+                handler.setInt(key, kills, (int) key);
+            }
+            for (long key = 0; key < 5000; key += 3) {
+                assertTrue(handler.remove(key));
+            }
+
+            assertEquals(5000 - 1667, handler.size());
+            assertEquals(5000 - 1667, new HashSet<>(handler.keys()).size());
+            for (long key = 0; key < 5000; key++) {
+                assertEquals(key % 3 == 0 ? 0 : (int) key, handler.getInt(key, kills));
+            }
+        }
+    }
+
+    @Test
+    public void testCarriesFieldsOverToANewSchema() throws IOException {
+        final File folder = folder();
+        final UUID player = UUID.randomUUID();
+
+        try (MappedStorageHandler<UUID> handler = open(folder, schema)) {
+            handler.setInt(player, kills, 5);
+            handler.setInt(player, blocks.at(3), 9);
+        }
+
+        final MappedSchema.Builder changed = MappedSchema.builder();
+        final MappedField.DoubleField balance = changed.doubleField("balance");
+        final MappedField.IntField newBlocks = changed.intArray("blocks", 8);
+        final MappedField.IntField newKills = changed.intField("kills");
+
+        try (MappedStorageHandler<UUID> handler = open(folder, changed.build())) {
+            assertEquals(5, handler.getInt(player, newKills));
+            assertEquals(9, handler.getInt(player, newBlocks.at(3)));
+            assertEquals(0, handler.getDouble(player, balance), 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsFieldsOfOtherSchemas() throws IOException {
+        final MappedField.IntField other = MappedSchema.builder().intField("kills");
+
+        try (MappedStorageHandler<UUID> handler = open(folder(), schema)) {
+            handler.getInt(UUID.randomUUID(), other);
+        }
+    }
+
+    private static MappedStorageHandler<UUID> open(File folder, MappedSchema schema) {
+        return new MappedStorageHandler<>("stats", MappedKey.uuid(), schema, 16, folder);
+    }
+
+    private static File folder() throws IOException {
+        final File folder = Files.createTempDirectory("mapped").toFile();
+        folder.deleteOnExit();
+        return folder;
+    }
+
+}
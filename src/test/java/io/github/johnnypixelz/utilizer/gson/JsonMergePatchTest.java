@@ -0,0 +1,38 @@
+package io.github.johnnypixelz.utilizer.gson;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JsonMergePatchTest {
+
+    @Test
+    public void testDiffOnlyHoldsChanges() {
+        final JsonElement source = JsonParser.parseString("{\"name\":\"Steve\",\"stats\":{\"kills\":3,\"deaths\":1},\"tags\":[\"a\"],\"rank\":\"vip\"}");
+        final JsonElement target = JsonParser.parseString("{\"name\":\"Steve\",\"stats\":{\"kills\":4,\"deaths\":1},\"tags\":[\"a\",\"b\"]}");
+
+        final JsonElement patch = JsonMergePatch.diff(source, target);
+
+        assertEquals(JsonParser.parseString("{\"rank\":null,\"stats\":{\"kills\":4},\"tags\":[\"a\",\"b\"]}"), patch);
+        assertEquals(target, JsonMergePatch.apply(source, patch));
+    }
+
+    @Test
+    public void testApplyLeavesTargetUntouched() {
+        final JsonElement source = JsonParser.parseString("{\"a\":{\"b\":1}}");
+        final JsonElement patched = JsonMergePatch.apply(source, JsonParser.parseString("{\"a\":{\"b\":2,\"c\":3}}"));
+
+        assertEquals(JsonParser.parseString("{\"a\":{\"b\":1}}"), source);
+        assertEquals(JsonParser.parseString("{\"a\":{\"b\":2,\"c\":3}}"), patched);
+    }
+
+    @Test
+    public void testUnchangedValueGivesEmptyPatch() {
+        final JsonElement value = JsonParser.parseString("{\"a\":[1,2],\"b\":{\"c\":true}}");
+
+        assertTrue(JsonMergePatch.isEmpty(JsonMergePatch.diff(value, value.deepCopy())));
+    }
+
+}
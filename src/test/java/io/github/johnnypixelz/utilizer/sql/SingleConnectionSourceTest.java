@@ -0,0 +1,76 @@
+package io.github.johnnypixelz.utilizer.sql;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SingleConnectionSourceTest {
+    private static final long CONNECTION_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+
+    private static HikariDataSource openSqlite() throws Exception {
+        final HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:sqlite:" + Files.createTempFile("single-connection", ".db").toAbsolutePath());
+        config.setMaximumPoolSize(1);
+        config.setConnectionTimeout(CONNECTION_TIMEOUT);
+        return new HikariDataSource(config);
+    }
+
+    @Test
+    public void testNestedBorrowFailsFast() throws Exception {
+        try (HikariDataSource dataSource = openSqlite()) {
+            final SingleConnectionSource source = new SingleConnectionSource(dataSource);
+
+            try (Connection held = source.getConnection()) {
+                final long start = System.nanoTime();
+                try {
+                    source.getConnection().close();
+                    fail("The thread holding the only connection was lent it again");
+                } catch (SQLException expected) {
+                    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < CONNECTION_TIMEOUT / 2);
+                }
+
+                try (Statement statement = held.createStatement()) {
+                    statement.execute("SELECT 1");
+                }
+            }
+
+            // Released on close, so the same thread may borrow it again.
+            try (Connection again = source.getConnection()) {
+                assertFalse(again.isClosed());
+            }
+        }
+    }
+
+    @Test
+    public void testOtherThreadsWaitForTheConnection() throws Exception {
+        try (HikariDataSource dataSource = openSqlite()) {
+            final SingleConnectionSource source = new SingleConnectionSource(dataSource);
+
+            final CompletableFuture<Void> borrowed;
+            try (Connection held = source.getConnection()) {
+                borrowed = CompletableFuture.runAsync(() -> {
+                    try (Connection connection = source.getConnection()) {
+                        assertFalse(connection.isClosed());
+                    } catch (SQLException exception) {
+                        throw new IllegalStateException(exception);
+                    }
+                });
+
+                Thread.sleep(100);
+                assertFalse(borrowed.isDone());
+            }
+
+            borrowed.get(CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+    }
+
+}
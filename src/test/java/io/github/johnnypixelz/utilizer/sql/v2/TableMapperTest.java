@@ -0,0 +1,139 @@
+package io.github.johnnypixelz.utilizer.sql.v2;
+
+import io.github.johnnypixelz.utilizer.sql.dialects.SQLDialect;
+import io.github.johnnypixelz.utilizer.sql.v2.annotations.Column;
+import io.github.johnnypixelz.utilizer.sql.v2.annotations.Index;
+import io.github.johnnypixelz.utilizer.sql.v2.annotations.Table;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class TableMapperTest {
+
+    @Table(name = "accounts")
+    @Index(name = "idx_nickname_balance", columns = {"nickname", "balance"}, unique = true)
+    private static class Account {
+        @Column(name = "uuid", type = "VARCHAR(36)", primaryKey = true)
+        private UUID uuid;
+
+        @Column(name = "balance", type = "DOUBLE")
+        @Index
+        private double balance;
+
+        @Column(name = "nickname", type = "VARCHAR(16)")
+        private String nickname;
+
+        private String notAColumn;
+    }
+
+    @Table(name = "wallets")
+    private static class Wallet {
+        @Column(name = "owner", type = "UUID", primaryKey = true)
+        private UUID owner;
+
+        @Column(name = "amount", type = "NUMERIC(20, 2)")
+        private BigDecimal amount;
+    }
+
+    @Test
+    public void testQueriesArePrebuilt() {
+        final TableMapper<Account> mapper = TableMapper.of(Account.class);
+
+        assertSame(mapper, TableMapper.of(Account.class));
+        assertEquals("CREATE TABLE IF NOT EXISTS accounts (uuid VARCHAR(36) PRIMARY KEY, balance DOUBLE, nickname VARCHAR(16))", mapper.getCreateTableQuery());
+        assertEquals("SELECT uuid, balance, nickname FROM accounts WHERE uuid = ?", mapper.getSelectByKeyQuery());
+        assertEquals("INSERT INTO accounts (uuid, balance, nickname) VALUES (?, ?, ?)", mapper.getInsertQuery());
+        assertEquals("UPDATE accounts SET balance = ?, nickname = ? WHERE uuid = ?", mapper.getUpdateQuery());
+        assertEquals("DELETE FROM accounts WHERE uuid = ?", mapper.getDeleteQuery());
+        assertEquals("INSERT INTO accounts (uuid, balance, nickname) VALUES (?, ?, ?) ON CONFLICT (uuid) DO UPDATE SET balance = EXCLUDED.balance, nickname = EXCLUDED.nickname",
+                mapper.getUpsertQuery(SQLDialect.POSTGRESQL));
+    }
+
+    @Test
+    public void testIndexesAreCreated() {
+        assertEquals(
+                List.of("CREATE INDEX idx_accounts_balance ON accounts (balance)", "CREATE UNIQUE INDEX idx_nickname_balance ON accounts (nickname, balance)"),
+                List.copyOf(TableMapper.of(Account.class).getCreateIndexQueries().values())
+        );
+    }
+
+    @Test
+    public void testKeysetPagination() {
+        final Account last = new Account();
+        last.uuid = UUID.randomUUID();
+        last.balance = 100;
+
+        final String sql = new TableQuery<>(TableMapper.of(Account.class), null)
+                .greaterThan("balance", 10)
+                .orderByDescending("balance")
+                .limit(10)
+                .after(last)
+                .toSql();
+
+        assertEquals("SELECT uuid, balance, nickname FROM accounts WHERE balance > ? AND ((balance < ?) OR (balance = ? AND uuid < ?)) ORDER BY balance DESC, uuid DESC LIMIT 10", sql);
+    }
+
+    @Test
+    public void testReadsRowsByIndex() throws Exception {
+        final UUID uuid = UUID.randomUUID();
+        final Object[] row = {uuid.toString(), 12.5, null};
+        final boolean[] lastWasNull = new boolean[1];
+
+        final ResultSet resultSet = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getString" -> {
+                    final Object value = row[(int) args[0] - 1];
+                    lastWasNull[0] = value == null;
+                    return value;
+                }
+                case "getDouble" -> {
+                    final Object value = row[(int) args[0] - 1];
+                    lastWasNull[0] = value == null;
+                    return value == null ? 0.0 : value;
+                }
+                case "wasNull" -> {
+                    return lastWasNull[0];
+                }
+                default -> throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        final Account account = TableMapper.of(Account.class).read(resultSet);
+        assertEquals(uuid, account.uuid);
+        assertEquals(12.5, account.balance, 0);
+        assertNull(account.nickname);
+    }
+
+    @Test
+    public void testUuidColumnsAndOtherTypesGoToTheDriverAsTheyAre() throws Exception {
+        final Wallet wallet = new Wallet();
+        wallet.owner = UUID.randomUUID();
+        wallet.amount = new BigDecimal("12.50");
+
+        final List<Object> bound = new ArrayList<>();
+        final PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{PreparedStatement.class}, (proxy, method, args) -> {
+            if (!method.getName().equals("setObject")) throw new UnsupportedOperationException(method.getName());
+            bound.add(args[1]);
+            return null;
+        });
+        TableMapper.of(Wallet.class).bindAll(statement, wallet, 0);
+        assertEquals(List.of(wallet.owner, wallet.amount), bound);
+
+        final ResultSet resultSet = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class}, (proxy, method, args) -> {
+            if (!method.getName().equals("getObject") || args.length != 2) throw new UnsupportedOperationException(method.getName());
+            return (int) args[0] == 1 ? wallet.owner : wallet.amount;
+        });
+        final Wallet read = TableMapper.of(Wallet.class).read(resultSet);
+        assertEquals(wallet.owner, read.owner);
+        assertEquals(wallet.amount, read.amount);
+    }
+
+}